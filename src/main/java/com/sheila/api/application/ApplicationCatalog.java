@@ -0,0 +1,74 @@
+package com.sheila.api.application;
+
+import com.sheila.api.core.model.ApplicationDoc;
+import com.sheila.api.infrastructure.repository.ApplicationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Application kayıtlarının bellek içi kopyası (id ve name ile aranabilir).
+ * Sıcak yolda Mongo'ya gitmeden uygulamanın zamanlama ayarlarını okumak için; periyodik olarak tazelenir.
+ */
+@Component
+public class ApplicationCatalog {
+
+    private static final Logger log = LoggerFactory.getLogger(ApplicationCatalog.class);
+
+    private final ApplicationRepository applicationRepository;
+    private volatile Map<String, ApplicationDoc> byKey = Map.of(); // id ve name → kayıt
+    private volatile List<ApplicationDoc> all = List.of();
+    private volatile boolean loaded;
+
+    public ApplicationCatalog(ApplicationRepository applicationRepository) {
+        this.applicationRepository = applicationRepository;
+    }
+
+    /** appKey id veya name olabilir; bilinmiyorsa null. */
+    public ApplicationDoc find(String appKey) {
+        return appKey == null ? null : byKey.get(appKey);
+    }
+
+    /** İlk tazeleme başarıyla bitti mi (değilse all() boştur, okuyucular Mongo'ya düşer). */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /** Tüm uygulamalar (her biri bir kez); son tazelemedeki hali. */
+    public Collection<ApplicationDoc> all() {
+        return all;
+    }
+
+    @EventListener(ApplicationReadyEvent.class) // seed'den sonra
+    public void load() {
+        refresh();
+    }
+
+    @Scheduled(initialDelayString = "${app.scheduler.catalogRefreshMs:30000}",
+            fixedDelayString = "${app.scheduler.catalogRefreshMs:30000}")
+    public void refresh() {
+        try {
+            Map<String, ApplicationDoc> next = new HashMap<>();
+            List<ApplicationDoc> nextAll = new ArrayList<>();
+            for (ApplicationDoc a : applicationRepository.findAll()) {
+                next.put(a.getId(), a);
+                next.put(a.getName(), a);
+                nextAll.add(a);
+            }
+            byKey = next;
+            all = List.copyOf(nextAll);
+            loaded = true;
+        } catch (Exception e) {
+            log.warn("ApplicationCatalog refresh failed: {}", e.getMessage());
+        }
+    }
+}
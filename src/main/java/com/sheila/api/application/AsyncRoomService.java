@@ -0,0 +1,57 @@
+package com.sheila.api.application;
+
+import com.sheila.api.core.dto.Endpoint;
+import com.sheila.api.core.dto.GroupJoinResult;
+import com.sheila.api.core.dto.RoomJoinResult;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Oda/üyelik iş kuralları, reaktif Mongo driver'ı üzerinde bloklamadan.
+ * - appKey application id'si veya name'i olabilir; bulunamazsa AppNotFoundException.
+ * - Sonuçlar driver thread'lerinde tamamlanır; çağıran taraf (ör. Netty handler) kendi thread'ine geçmelidir.
+ * - Hatalar (RoomFullException, ApplicationCapacityExceededException, ...) Mono.error olarak döner.
+ */
+public interface AsyncRoomService {
+
+    /**
+     * Odaya katılır; oda yoksa application kapasitesi dahilinde oluşturulur. roomCapacity yalnızca oda ilk kez
+     * oluşturulurken kullanılır (null veya <1 ise config'teki varsayılan); mevcut odanın kapasitesi değişmez.
+     */
+    Mono<RoomJoinResult> joinRoom(String appKey, String roomName, String ip, int port, Integer roomCapacity);
+
+    /**
+     * JOIN_MULTI: gruptaki tüm endpoint'leri tüm odalara tek transaction'da ekler; biri bile sığmazsa hiçbiri eklenmez.
+     * Kapasite kuralları JOIN ile aynıdır (roomCapacity yalnızca yeni odalarda); sonuç odaların veriliş sırasıyladır.
+     */
+    Mono<List<GroupJoinResult>> joinRooms(String appKey, List<String> roomNames, List<Endpoint> group,
+                                          Integer roomCapacity);
+
+    /**
+     * JOIN_ANY: uygulamada boş koltuğu en çok olan odaya (prefix verilirse adı prefix ile başlayanlara) katılır.
+     * Uygun oda yoksa application kapasitesi dahilinde yeni oda oluşturulur.
+     */
+    Mono<RoomJoinResult> joinAnyRoom(String appKey, String prefix, String ip, int port);
+
+    /** Üye listesi birincilden; yazının hemen ardından (LEAVE sonrası kalanlar, RESYNC) okunabilir. */
+    Mono<List<Endpoint>> listRoomPeers(String appKey, String roomName);
+
+    /**
+     * LIST: lastSeen'i tazeler ve üye listesini döner. Okuma secondary'den (açıksa), aynı causal session içinde
+     * yapılır; en azından bu yazıya kadar tamamlanan üyelik değişikliklerini görür.
+     */
+    Mono<List<Endpoint>> touchAndListPeers(String appKey, String roomName, String ip, int port);
+
+    Mono<Void> leaveRoom(String appKey, String roomName, String ip, int port);
+
+    Mono<List<String>> listRoomNames(String appKey);
+
+    Mono<Void> touchClient(String appKey, String roomName, String ip, int port);
+
+    /** Üye kaydının lastSeen'ini oda id'si üzerinden tazeler (oturumlu PING/PONG/LIST); kayıt yoksa false. */
+    Mono<Boolean> touchMember(String roomId, String ip, int port);
+
+    /** İstemciyi oda id'si üzerinden siler (server-probe ve oturumlu LEAVE akışı). */
+    Mono<Void> evictClient(String roomId, String ip, int port);
+}
@@ -0,0 +1,186 @@
+package com.sheila.api.application;
+
+import com.sheila.api.core.dto.Endpoint;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.sheila.api.application.ProbeTracker.key;
+
+/**
+ * Endpoint başına bağlantı kalitesi: SRV_PING/PONG ile ölçülen RTT, jitter ve kayıp için EWMA.
+ * - Her probe endpoint'e özgü artan bir seq ve gönderim zamanı (ts, µs) taşır; PONG ikisini de geri yansıtır.
+ *   Yalnızca son açık probe'un seq'i ve ts'i birebir eşleşen yankı örnek sayılır (sahte/geç PONG RTT'yi bozamaz).
+ * - srtt/rttvar RFC 6298'deki gibi (α=1/8, β=1/4); kayıp, yanıtlanan (0) ve yanıtsız kalan (1) probe'ların α=1/8 EWMA'sı.
+ * - Yankı desteklemeyen (eski) istemcilerin probe'ları kayıp sayılmaz; ilk yankıdan sonra sayılmaya başlar.
+ *   Üst üste yankısız kalan probe'lar sayılır; sınırı aşan endpoint'e yankı gelene dek ölçüm probe'u gitmez.
+ * - Durum nesne başına değil, slot indeksli paralel primitif dizilerde tutulur; boşalan slotlar yeniden kullanılır.
+ * Zamanlar ServerClock (nano); tüm metotlar tek kilit altında ve kısa.
+ */
+public class LinkStats {
+    private static final float ALPHA = 1f / 8;
+    private static final float BETA = 1f / 4;
+
+    private final Map<String, Integer> slots = new HashMap<>();
+    private int[] free = new int[16];
+    private int freeCount;
+    private int used;
+
+    private int[] seq = new int[16];          // son gönderilen probe'un seq'i
+    private int[] acked = new int[16];        // son yankılanan seq (0: hiç yankı yok)
+    private int[] unechoed = new int[16];     // son yankıdan (ya da ilk probe'dan) beri yankısız kalan probe'lar
+    private long[] sentNanos = new long[16];  // son probe'un gönderim zamanı
+    private long[] sampledNanos = new long[16]; // son RTT örneğinin zamanı
+    private float[] srtt = new float[16];     // ms; NaN: örnek yok
+    private float[] rttvar = new float[16];   // ms (jitter)
+    private float[] loss = new float[16];     // 0..1
+
+    /** Probe gönderildi: endpoint'in yeni seq'ini döner. Önceki probe yanıtsız kaldıysa kayıp örneği işlenir. */
+    public synchronized int onProbeSent(String endpointKey, long nowNanos) {
+        int i = slot(endpointKey);
+        if (seq[i] != 0 && acked[i] != seq[i]) {
+            unechoed[i]++;
+            if (acked[i] > 0) loss[i] += ALPHA * (1f - loss[i]);
+        }
+        sentNanos[i] = nowNanos;
+        seq[i] = seq[i] == Integer.MAX_VALUE ? 1 : seq[i] + 1;
+        return seq[i];
+    }
+
+    /** PONG yankısı; seq ve ts son probe'unkiyle eşleşiyorsa RTT örneği alınır ve ham RTT (nano) döner, değilse -1. */
+    public synchronized long onEcho(String endpointKey, int echoSeq, long tsMicros, long receivedNanos) {
+        Integer slot = slots.get(endpointKey);
+        if (slot == null) return -1;
+        int i = slot;
+        if (echoSeq != seq[i] || acked[i] == echoSeq || tsMicros != sentNanos[i] / 1000) return -1;
+        long rttNanos = receivedNanos - sentNanos[i];
+        if (rttNanos < 0) return -1;
+
+        float r = rttNanos / 1_000_000f;
+        if (Float.isNaN(srtt[i])) {
+            srtt[i] = r;
+            rttvar[i] = r / 2;
+        } else {
+            rttvar[i] += BETA * (Math.abs(srtt[i] - r) - rttvar[i]);
+            srtt[i] += ALPHA * (r - srtt[i]);
+        }
+        loss[i] -= ALPHA * loss[i];
+        acked[i] = echoSeq;
+        unechoed[i] = 0;
+        sampledNanos[i] = receivedNanos;
+        return rttNanos;
+    }
+
+    /**
+     * Canlılık için yoklanması gerekmese de ölçüm için probe gerekli mi: hiç probe gitmemiş ya da
+     * son örnek ve son probe sampleNanos'tan eski (aktif istemcilerin RTT'si de tazelenir).
+     * Son maxUnechoed probe'u yankısız kalan endpoint (yankı desteklemeyen eski istemci) ölçülmez;
+     * canlılık probe'larından birine yankı gelirse ölçüm yeniden başlar.
+     */
+    public synchronized boolean needsSample(String endpointKey, long nowNanos, long sampleNanos, int maxUnechoed) {
+        Integer slot = slots.get(endpointKey);
+        if (slot == null) return true;
+        int i = slot;
+        if (unechoed[i] >= maxUnechoed) return false;
+        return nowNanos - sampledNanos[i] >= sampleNanos && nowNanos - sentNanos[i] >= sampleNanos;
+    }
+
+    /** Yumuşatılmış RTT (ms); henüz örnek yoksa NaN. */
+    public synchronized double rttMillis(String endpointKey) {
+        Integer slot = slots.get(endpointKey);
+        return slot == null ? Double.NaN : srtt[slot];
+    }
+
+    /** Verilen üyelerin ölçülmüş olanlarını toplama ekler (oda ve uygulama ortalamaları için). */
+    public synchronized void accumulate(Summary into, Collection<Endpoint> members) {
+        add(into, members);
+    }
+
+    /** Toplu biçim: into.get(i)'ye members.get(i) eklenir, tek kilitle (sayfa/tur başına bir kez). */
+    public synchronized void accumulate(List<Summary> into, List<? extends Collection<Endpoint>> members) {
+        for (int i = 0; i < members.size(); i++) add(into.get(i), members.get(i));
+    }
+
+    private void add(Summary into, Collection<Endpoint> members) {
+        for (Endpoint ep : members) {
+            Integer slot = slots.get(key(ep.getIp(), ep.getPort()));
+            if (slot == null || Float.isNaN(srtt[slot])) continue;
+            int i = slot;
+            into.count++;
+            into.rttSum += srtt[i];
+            into.jitterSum += rttvar[i];
+            into.lossSum += loss[i];
+        }
+    }
+
+    public synchronized void clear(String endpointKey) {
+        Integer slot = slots.remove(endpointKey);
+        if (slot != null) release(slot);
+    }
+
+    /** Artık kayıtlı olmayan endpoint'lerin slotlarını bırakır (tur sonunda). */
+    public synchronized void retainAll(Set<String> endpointKeys) {
+        for (Iterator<Map.Entry<String, Integer>> it = slots.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Integer> e = it.next();
+            if (endpointKeys.contains(e.getKey())) continue;
+            release(e.getValue());
+            it.remove();
+        }
+    }
+
+    private int slot(String endpointKey) {
+        Integer existing = slots.get(endpointKey);
+        if (existing != null) return existing;
+        int i;
+        if (freeCount > 0) {
+            i = free[--freeCount];
+        } else {
+            if (used == seq.length) grow(used * 2);
+            i = used++;
+        }
+        seq[i] = 0;
+        acked[i] = 0;
+        unechoed[i] = 0;
+        sentNanos[i] = 0;
+        sampledNanos[i] = 0;
+        srtt[i] = Float.NaN;
+        rttvar[i] = 0;
+        loss[i] = 0;
+        slots.put(endpointKey, i);
+        return i;
+    }
+
+    private void release(int i) {
+        if (freeCount == free.length) free = Arrays.copyOf(free, free.length * 2);
+        free[freeCount++] = i;
+    }
+
+    private void grow(int size) {
+        seq = Arrays.copyOf(seq, size);
+        acked = Arrays.copyOf(acked, size);
+        unechoed = Arrays.copyOf(unechoed, size);
+        sentNanos = Arrays.copyOf(sentNanos, size);
+        sampledNanos = Arrays.copyOf(sampledNanos, size);
+        srtt = Arrays.copyOf(srtt, size);
+        rttvar = Arrays.copyOf(rttvar, size);
+        loss = Arrays.copyOf(loss, size);
+    }
+
+    /** Ölçülmüş üyelerin ortalaması; count == 0 ise ortalamalar NaN. */
+    public static final class Summary {
+        private int count;
+        private double rttSum;
+        private double jitterSum;
+        private double lossSum;
+
+        public int getCount() { return count; }
+        public double getRttMillis() { return count == 0 ? Double.NaN : rttSum / count; }
+        public double getJitterMillis() { return count == 0 ? Double.NaN : jitterSum / count; }
+        public double getLoss() { return count == 0 ? Double.NaN : lossSum / count; }
+    }
+}
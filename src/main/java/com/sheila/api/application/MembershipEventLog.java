@@ -0,0 +1,420 @@
+package com.sheila.api.application;
+
+import com.sheila.api.core.dto.Endpoint;
+import com.sheila.api.core.model.ApplicationDoc;
+import com.sheila.api.transport.udp.OutboundMessage;
+import com.sheila.api.transport.udp.SendPriority;
+import com.sheila.api.transport.udp.UdpMessenger;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.sheila.api.application.ProbeTracker.key;
+
+/**
+ * Oda üyelik olaylarının (NEW_CLIENT / CLIENT_LEFT) sıralı ve onaylı teslimi.
+ * - Her (istemci ip:port, oda) çifti için ayrı bir olay akışı ve artan bir seq tutulur; birden çok odadaki istemcinin
+ *   akışları birbirini etkilemez. Olaylar room=<oda adı> taşır.
+ * - İstemci ACK|<kümülatif>|[seçici,...]|room=<oda> ile onaylar; onaylanmayanlar timer wheel ile yeniden gönderilir.
+ * - Onaysız pencere dolarsa veya yeniden gönderim hakkı biterse istemciye RESYNC (tam üye listesi) yollanır.
+ * - Snapshot'lar (ROOM, RESYNC) depolama okumasından önce alınan seq'i taşır; okuma sırasında yayınlanan olaylar
+ *   snapshot'tan sonra yeniden teslim edilir (uygulanmaları idempotenttir), böylece hiçbiri kaybolmaz.
+ */
+@Component
+public class MembershipEventLog {
+
+    private static final Logger log = LoggerFactory.getLogger(MembershipEventLog.class);
+
+    private final UdpMessenger messenger;
+    private final AsyncRoomService rooms;
+    private final RoomDirectory directory;
+    private final ApplicationCatalog catalog;
+    private final Map<String, Map<String, ClientStream>> streams = new ConcurrentHashMap<>(); // ip:port → roomId → akış
+
+    private Timer wheel;
+    private Executor resyncExecutor;
+
+    @Value("${app.events.enabled:true}") private boolean enabled;
+    @Value("${app.events.retransmitMs:500}") private long retransmitMs;
+    @Value("${app.events.maxRetransmits:4}") private int maxRetransmits;
+    @Value("${app.events.window:32}") private int window;
+    @Value("${app.events.tickMs:50}") private long tickMs;
+
+    public MembershipEventLog(UdpMessenger messenger, AsyncRoomService rooms, RoomDirectory directory,
+                              ApplicationCatalog catalog) {
+        this.messenger = messenger;
+        this.rooms = rooms;
+        this.directory = directory;
+        this.catalog = catalog;
+    }
+
+    @PostConstruct
+    public void start() {
+        start(new HashedWheelTimer(new DefaultThreadFactory("membership-wheel", true), tickMs, TimeUnit.MILLISECONDS, 512),
+                Executors.newSingleThreadExecutor(new DefaultThreadFactory("membership-resync", true)));
+    }
+
+    /**
+     * Yeniden gönderim zamanlayıcısı ve RESYNC yürütücüsü dışarıdan (ağ simülatörü: sanal saat, aynı thread).
+     * Üye listesi okuması driver thread'inde biter; RESYNC'in kalanı bu yürütücüde sırayla çalışır.
+     */
+    public void start(Timer wheel, Executor resyncExecutor) {
+        this.wheel = wheel;
+        this.resyncExecutor = resyncExecutor;
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (wheel != null) wheel.stop();
+        if (resyncExecutor instanceof ExecutorService es) es.shutdownNow();
+    }
+
+    /** Aynı olayı odadaki hedeflere tek batch halinde yayınlar; exclude (genelde olayın öznesi) atlanır. */
+    public void broadcast(String appKey, String roomId, String roomName, Collection<Endpoint> targets,
+                          String type, Endpoint subject, Endpoint exclude) {
+        String excludeKey = exclude == null ? null : key(exclude.getIp(), exclude.getPort());
+        List<OutboundMessage> batch = new ArrayList<>(targets.size());
+        for (Endpoint ep : targets) {
+            if (key(ep.getIp(), ep.getPort()).equals(excludeKey)) continue;
+            OutboundMessage m = prepare(appKey, roomId, roomName, ep, type, subject);
+            if (m != null) batch.add(m);
+        }
+        messenger.sendBatch(batch, SendPriority.MEMBERSHIP);
+    }
+
+    /**
+     * Birden fazla öznenin olayını (JOIN_MULTI) odadaki hedeflere tek batch halinde yayınlar.
+     * Öznelerin kendileri hedef alınmaz; onlar üye listesini ROOM_MULTI yanıtında alır.
+     */
+    public void broadcastAll(String appKey, String roomId, String roomName, Collection<Endpoint> targets,
+                             String type, Collection<Endpoint> subjects) {
+        Set<String> subjectKeys = new HashSet<>();
+        for (Endpoint s : subjects) subjectKeys.add(key(s.getIp(), s.getPort()));
+        List<OutboundMessage> batch = new ArrayList<>(targets.size() * subjects.size());
+        for (Endpoint ep : targets) {
+            if (subjectKeys.contains(key(ep.getIp(), ep.getPort()))) continue;
+            for (Endpoint subject : subjects) {
+                OutboundMessage m = prepare(appKey, roomId, roomName, ep, type, subject);
+                if (m != null) batch.add(m);
+            }
+        }
+        messenger.sendBatch(batch, SendPriority.MEMBERSHIP);
+    }
+
+    /** Tek bir hedefe sıralı olay gönderir: <type>|ip:port|seq=N|room=<oda> */
+    public void publish(String appKey, String roomId, String roomName, Endpoint target, String type, Endpoint subject) {
+        OutboundMessage m = prepare(appKey, roomId, roomName, target, type, subject);
+        if (m != null) messenger.sendBatch(List.of(m), SendPriority.MEMBERSHIP);
+    }
+
+    /** Olaya seq atar, geçmişe ve pencereye ekler; gönderilecek mesajı (RESYNC'e düştüyse null) döner. */
+    private OutboundMessage prepare(String appKey, String roomId, String roomName, Endpoint target,
+                                    String type, Endpoint subject) {
+        if (!enabled) {
+            return new OutboundMessage(target, type + "|" + subject);
+        }
+
+        ClientStream s = stream(target, roomId, appKey, roomName);
+        String text;
+        boolean resync = false;
+        synchronized (s) {
+            s.appKey = appKey;
+            long seq = ++s.lastSeq;
+            text = type + "|" + subject + "|seq=" + seq + "|room=" + roomName;
+            s.remember(seq, text);
+
+            if (s.resyncPending) {
+                // RESYNC yolda; okumadan sonra gelen olaylar geçmişten yeniden teslim edilir
+                return null;
+            }
+            if (s.unacked.size() >= window) {
+                log.debug("events: window full for {} in {} (lastSeq={}) → resync", target, roomName, seq);
+                resync = true;
+            } else {
+                Pending p = new Pending(seq, text);
+                s.unacked.put(seq, p);
+                arm(s, p);
+            }
+        }
+        if (resync) {
+            scheduleResync(s);
+            return null;
+        }
+        return new OutboundMessage(target, text);
+    }
+
+    /**
+     * ACK|<kümülatif>|[s1,s2,...]|room=<oda>
+     * Kümülatif değere kadar (dahil) tüm olaylar ve seçici listede verilenler onaylanmış sayılır.
+     * room verilmezse (eski istemci) endpoint'in tek akışı varsa ona uygulanır.
+     * Gönderenin bu odada akışı yoksa false döner (üye değil ya da sahte ACK).
+     */
+    public boolean onAck(String ip, int port, String roomName, long cumulative, List<Long> selective) {
+        ClientStream s = streamByName(key(ip, port), roomName);
+        if (s == null) return false;
+        synchronized (s) {
+            for (Iterator<Pending> it = s.unacked.headMap(cumulative, true).values().iterator(); it.hasNext(); ) {
+                Pending p = it.next();
+                if (p.held) continue; // snapshot'tan önce yazılmış bir ACK; olay henüz yeniden gönderilmedi
+                p.cancel();
+                it.remove();
+            }
+            for (Long seq : selective) {
+                Pending p = s.unacked.get(seq);
+                if (p == null || p.held) continue;
+                p.cancel();
+                s.unacked.remove(seq);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Depolama okumasından (JOIN/LIST) önce alınır: endpoint'in akışlarının o anki son seq'leri.
+     * Okuma sırasında yayınlanan olaylar snapshotSeq'te bu işaretle ayrılır.
+     */
+    public Mark mark(String ip, int port) {
+        if (!enabled) return Mark.NONE;
+        Map<String, ClientStream> rooms = streams.get(key(ip, port));
+        if (rooms == null || rooms.isEmpty()) return Mark.NONE;
+        Map<ClientStream, Long> seqs = new HashMap<>(rooms.size() * 2);
+        for (ClientStream s : rooms.values()) {
+            synchronized (s) {
+                seqs.put(s, s.lastSeq);
+            }
+        }
+        return new Mark(seqs);
+    }
+
+    /**
+     * ROOM yanıtı, mark'tan sonra okunmuş tam üye listesidir; o odanın mark'a kadarki olaylarını kapsar.
+     * Kapsanan bekleyenler iptal edilir, mark'tan sonra yayınlananlar snapshot'ın ardından yeniden teslim edilir
+     * (geçmiş yetmezse RESYNC). Snapshot'ın seq değerini döner; akış yoksa (olay yok, üye değil) 0 — akış açılmaz.
+     */
+    public long snapshotSeq(String ip, int port, String roomId, Mark mark) {
+        if (!enabled || roomId == null) return 0;
+        Map<String, ClientStream> rooms = streams.get(key(ip, port));
+        ClientStream s = rooms == null ? null : rooms.get(roomId);
+        if (s == null) return 0;
+        long from;
+        boolean resync = false;
+        synchronized (s) {
+            from = Math.min(mark.seq(s), s.lastSeq);
+            var covered = s.unacked.headMap(from, true);
+            covered.values().forEach(Pending::cancel);
+            covered.clear();
+            if (!s.resyncPending && !requeue(s, from)) resync = true;
+        }
+        if (resync) scheduleResync(s);
+        return from;
+    }
+
+    /** Ad ile gelen komutlar (LIST/LEAVE|app|oda) için endpoint'in üyesi olduğu odanın id'si; bilinmiyorsa null. */
+    public String roomIdOf(String appKey, String roomName, String ip, int port) {
+        ApplicationDoc app = catalog.find(appKey);
+        for (RoomDirectory.RoomEntry r : directory.roomsOf(key(ip, port))) {
+            if (r.getName().equals(roomName) && (app == null || app.getId().equals(r.getApplicationId()))) {
+                return r.getId();
+            }
+        }
+        return null;
+    }
+
+    /** İstemci odadan ayrıldı/düşürüldü: o odadaki akışını unut; diğer odalarınınkiler sürer. */
+    public void forget(String ip, int port, String roomId) {
+        if (roomId == null) return;
+        ClientStream[] removed = new ClientStream[1];
+        streams.computeIfPresent(key(ip, port), (k, rooms) -> {
+            removed[0] = rooms.remove(roomId);
+            return rooms.isEmpty() ? null : rooms;
+        });
+        ClientStream s = removed[0];
+        if (s == null) return;
+        synchronized (s) {
+            s.unacked.values().forEach(Pending::cancel);
+            s.unacked.clear();
+        }
+    }
+
+    private ClientStream stream(Endpoint target, String roomId, String appKey, String roomName) {
+        String k = key(target.getIp(), target.getPort());
+        Map<String, ClientStream> rooms = streams.get(k);
+        ClientStream s = rooms == null ? null : rooms.get(roomId);
+        if (s != null) return s;
+        ClientStream[] created = new ClientStream[1];
+        streams.compute(k, (key, m) -> {
+            if (m == null) m = new ConcurrentHashMap<>(4);
+            created[0] = m.computeIfAbsent(roomId, id -> new ClientStream(target, appKey, roomName, window));
+            return m;
+        });
+        return created[0];
+    }
+
+    private ClientStream streamByName(String endpointKey, String roomName) {
+        Map<String, ClientStream> rooms = streams.get(endpointKey);
+        if (rooms == null) return null;
+        if (roomName == null) return rooms.size() == 1 ? rooms.values().iterator().next() : null;
+        for (ClientStream s : rooms.values()) {
+            if (s.roomName.equals(roomName)) return s;
+        }
+        return null;
+    }
+
+    /**
+     * (from, lastSeq] aralığındaki olaylar snapshot'tan sonra yeniden teslim edilmek üzere bekletilir (held):
+     * ilk yeniden gönderimden önce gelen ACK'ler snapshot'ı görmemiş istemciden gelir ve sayılmaz.
+     * Geçmiş aralığı kapsamıyorsa false.
+     */
+    private boolean requeue(ClientStream s, long from) {
+        if (s.lastSeq - from > s.recent.length) return false;
+        for (long seq = from + 1; seq <= s.lastSeq; seq++) {
+            Pending old = s.unacked.remove(seq);
+            if (old != null) old.cancel();
+            Pending p = new Pending(seq, s.recent(seq));
+            p.held = true;
+            s.unacked.put(seq, p);
+            arm(s, p);
+        }
+        return true;
+    }
+
+    private void arm(ClientStream s, Pending p) {
+        p.timeout = wheel.newTimeout(t -> onTimeout(s, p), retransmitMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void onTimeout(ClientStream s, Pending p) {
+        boolean resync = false;
+        synchronized (s) {
+            if (s.unacked.get(p.seq) != p) return; // bu arada onaylandı
+            if (p.held) {
+                p.held = false; // snapshot'tan sonraki ilk teslim; hak harcanmaz
+            } else if (++p.attempts > maxRetransmits) {
+                log.debug("events: seq={} to {} in {} not acked after {} retransmits → resync",
+                        p.seq, s.target, s.roomName, maxRetransmits);
+                resync = true;
+            }
+            if (!resync) arm(s, p);
+        }
+        if (resync) {
+            scheduleResync(s);
+        } else {
+            messenger.send(s.target.getIp(), s.target.getPort(), p.text);
+        }
+    }
+
+    private void scheduleResync(ClientStream s) {
+        synchronized (s) {
+            if (s.resyncPending) return;
+            s.resyncPending = true;
+            s.unacked.values().forEach(Pending::cancel);
+            s.unacked.clear();
+        }
+        sendResync(s);
+    }
+
+    /** RESYNC|<roomName>|seq=N|clients=[ip:port,...] */
+    private void sendResync(ClientStream s) {
+        String appKey;
+        long from;
+        synchronized (s) {
+            appKey = s.appKey;
+            from = s.lastSeq; // okumadan önce: bundan sonraki olaylar snapshot'ın ardından yeniden teslim edilir
+        }
+        rooms.listRoomPeers(appKey, s.roomName)
+                .publishOn(Schedulers.fromExecutor(resyncExecutor))
+                .subscribe(members -> finishResync(s, from, members), e -> {
+                    log.debug("events: resync failed for {} (room={}): {}", s.target, s.roomName, e.getMessage());
+                    synchronized (s) { s.resyncPending = false; }
+                });
+    }
+
+    private void finishResync(ClientStream s, long from, List<Endpoint> members) {
+        List<String> peers = new ArrayList<>(members.size());
+        for (Endpoint ep : members) peers.add(ep.toString());
+
+        boolean again;
+        synchronized (s) {
+            s.resyncPending = false;
+            again = !requeue(s, from);
+        }
+        if (again) {
+            scheduleResync(s); // okuma sırasında pencereden fazla olay birikti: snapshot'ı tazele
+            return;
+        }
+        messenger.send(s.target.getIp(), s.target.getPort(),
+                "RESYNC|" + s.roomName + "|seq=" + from + "|clients=[" + String.join(",", peers) + "]");
+    }
+
+    /** mark() sonucu: akış → o anki son seq; işaretten sonra açılan akışlar 0 sayılır. */
+    public static final class Mark {
+        static final Mark NONE = new Mark(Map.of());
+
+        private final Map<ClientStream, Long> seqs;
+
+        private Mark(Map<ClientStream, Long> seqs) { this.seqs = seqs; }
+
+        long seq(ClientStream s) {
+            Long seq = seqs.get(s);
+            return seq == null ? 0 : seq;
+        }
+    }
+
+    private static final class ClientStream {
+        final Endpoint target;
+        final String roomName;
+        final TreeMap<Long, Pending> unacked = new TreeMap<>();
+        final String[] recent; // son olayların metni; seq % recent.length
+        String appKey;
+        long lastSeq;
+        boolean resyncPending;
+
+        ClientStream(Endpoint target, String appKey, String roomName, int history) {
+            this.target = target;
+            this.appKey = appKey;
+            this.roomName = roomName;
+            this.recent = new String[Math.max(1, history)];
+        }
+
+        void remember(long seq, String text) { recent[(int) (seq % recent.length)] = text; }
+
+        String recent(long seq) { return recent[(int) (seq % recent.length)]; }
+    }
+
+    private static final class Pending {
+        final long seq;
+        final String text;
+        int attempts;
+        boolean held; // snapshot'tan sonra yeniden teslim bekliyor; o zamana dek ACK'ler sayılmaz
+        Timeout timeout;
+
+        Pending(long seq, String text) {
+            this.seq = seq;
+            this.text = text;
+        }
+
+        void cancel() { if (timeout != null) timeout.cancel(); }
+    }
+}
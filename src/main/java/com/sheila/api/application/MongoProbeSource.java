@@ -0,0 +1,41 @@
+package com.sheila.api.application;
+
+import com.sheila.api.core.model.ApplicationDoc;
+import com.sheila.api.core.model.RoomDoc;
+import com.sheila.api.infrastructure.config.SecondaryReads;
+import com.sheila.api.infrastructure.repository.MemberLayout;
+import com.sheila.api.infrastructure.repository.MemberLayout.Member;
+import org.bson.Document;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/** Probe taraması salt okunurdur: tüm okumalar SecondaryReads üzerinden (açıksa secondary'den) yapılır. */
+@Component
+public class MongoProbeSource implements ProbeSource {
+
+    private final SecondaryReads reads;
+    private final MemberLayout members;
+
+    public MongoProbeSource(SecondaryReads reads, MemberLayout members) {
+        this.reads = reads;
+        this.members = members;
+    }
+
+    @Override
+    public List<Member> members() {
+        return reads.template().find(members.all(), Document.class, members.collection()).stream()
+                .map(members::toMember)
+                .toList();
+    }
+
+    @Override
+    public RoomDoc room(String roomId) {
+        return reads.template().findById(roomId, RoomDoc.class);
+    }
+
+    @Override
+    public ApplicationDoc application(String applicationId) {
+        return reads.template().findById(applicationId, ApplicationDoc.class);
+    }
+}
@@ -0,0 +1,210 @@
+package com.sheila.api.application;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sheila.api.core.dto.Endpoint;
+import com.sheila.api.core.model.ApplicationDoc;
+import com.sheila.api.core.model.RoomDoc;
+import com.sheila.api.infrastructure.repository.MemberLayout;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Uygulama/oda doluluğunun NDJSON (satır başına bir JSON) akışı.
+ * - Kaynak RoomDirectory'dir: oda haritası kopyalanmadan id sırasıyla gezilir, üye sayısı kilitsiz okunur;
+ *   JOIN/LEAVE sıcak yolundaki hiçbir kilit alınmaz, Mongo'ya gidilmez (uygulamalar da ApplicationCatalog'dan;
+ *   katalog ilk tazelemeden önce boş olduğundan o sırada applications koleksiyonundan okunur).
+ * - Dizin henüz yüklenmediyse rooms koleksiyonu _id sırasıyla cursor ile okunur, sayımlar chunk başına tek aggregate.
+ * - RTT ölçümü açıksa bellek içi oda satırları ölçülmüş üyelerin ortalamasını taşır (rttMs, jitterMs, loss, measured);
+ *   LinkStats kilidi oda başına değil sayfa başına bir kez alınır.
+ * - Sayfalama: after=<son roomId>; son satır {"type":"page","next":...} bir sonraki cursor'ı taşır.
+ */
+@Component
+public class OccupancySnapshot {
+
+    private static final byte NEWLINE = '\n';
+    private static final int FALLBACK_CHUNK = 200;
+
+    private final RoomDirectory directory;
+    private final ApplicationCatalog catalog;
+    private final MongoTemplate mongo;
+    private final MemberLayout members;
+    private final ObjectMapper mapper;
+    private final ServerProber prober;
+
+    @Value("${app.rooms.defaultCapacity:100}") private int defaultRoomCapacity;
+    @Value("${app.occupancy.defaultLimit:1000}") private int defaultLimit;
+    @Value("${app.occupancy.maxLimit:10000}") private int maxLimit;
+
+    public OccupancySnapshot(RoomDirectory directory, ApplicationCatalog catalog,
+                             MongoTemplate mongo, MemberLayout members, ObjectMapper mapper, ServerProber prober) {
+        this.directory = directory;
+        this.catalog = catalog;
+        this.mongo = mongo;
+        this.members = members;
+        this.mapper = mapper;
+        this.prober = prober;
+    }
+
+    public int normalizeLimit(Integer limit) {
+        if (limit == null || limit < 1) return defaultLimit;
+        return Math.min(limit, maxLimit);
+    }
+
+    /**
+     * appKeys boşsa tüm uygulamalar; id veya name verilebilir. İlk sayfada (after == null) önce uygulama satırları yazılır.
+     */
+    public void write(OutputStream out, Collection<String> appKeys, String after, int limit) throws IOException {
+        Map<String, ApplicationDoc> apps = new HashMap<>();
+        for (ApplicationDoc a : catalog.isLoaded() ? catalog.all() : findApplications(appKeys)) {
+            if (appKeys.isEmpty() || appKeys.contains(a.getId()) || appKeys.contains(a.getName())) {
+                apps.put(a.getId(), a);
+            }
+        }
+
+        if (after == null) {
+            for (ApplicationDoc a : apps.values()) {
+                Map<String, Object> line = new LinkedHashMap<>();
+                line.put("type", "app");
+                line.put("appId", a.getId());
+                line.put("app", a.getName());
+                line.put("capacity", a.getCapacity());
+                writeLine(out, line);
+            }
+        }
+
+        String last = null;
+        int count = 0;
+        boolean fromMemory = directory.isLoaded();
+        LinkStats links = prober.links();
+        if (fromMemory) {
+            List<RoomDirectory.RoomEntry> page = new ArrayList<>();
+            Iterator<RoomDirectory.RoomEntry> it = directory.roomsAfter(after).iterator();
+            while (page.size() < limit && it.hasNext()) {
+                RoomDirectory.RoomEntry r = it.next();
+                if (apps.containsKey(r.getApplicationId())) page.add(r);
+            }
+            List<LinkStats.Summary> summaries = links != null ? linkSummaries(links, page) : null;
+            for (int i = 0; i < page.size(); i++) {
+                RoomDirectory.RoomEntry r = page.get(i);
+                Map<String, Object> line = roomLine(apps.get(r.getApplicationId()), r.getId(), r.getName(),
+                        r.memberCount(), r.getCapacity());
+                if (summaries != null) putLink(line, summaries.get(i));
+                writeLine(out, line);
+                last = r.getId();
+                count++;
+            }
+        } else {
+            try (Stream<RoomDoc> rooms = streamRooms(apps.keySet(), after, limit)) {
+                Iterator<RoomDoc> it = rooms.iterator();
+                List<RoomDoc> chunk = new ArrayList<>(FALLBACK_CHUNK);
+                while (it.hasNext()) {
+                    chunk.add(it.next());
+                    if (chunk.size() == FALLBACK_CHUNK || !it.hasNext()) {
+                        last = writeChunk(out, apps, chunk);
+                        count += chunk.size();
+                        chunk.clear();
+                    }
+                }
+            }
+        }
+
+        Map<String, Object> page = new LinkedHashMap<>();
+        page.put("type", "page");
+        page.put("count", count);
+        page.put("next", count == limit ? last : null);
+        page.put("source", fromMemory ? "memory" : "mongo");
+        writeLine(out, page);
+        out.flush();
+    }
+
+    /** Katalog yüklenmeden önce: istenen uygulamalar (boşsa hepsi) doğrudan Mongo'dan. */
+    private List<ApplicationDoc> findApplications(Collection<String> appKeys) {
+        if (appKeys.isEmpty()) return mongo.findAll(ApplicationDoc.class);
+        return mongo.find(new Query(new Criteria().orOperator(
+                Criteria.where("id").in(appKeys), Criteria.where("name").in(appKeys))), ApplicationDoc.class);
+    }
+
+    private Stream<RoomDoc> streamRooms(Set<String> appIds, String after, int limit) {
+        Criteria c = Criteria.where("applicationId").in(appIds);
+        if (after != null) c = c.and("id").gt(after);
+        Query q = new Query(c).with(Sort.by("id")).limit(limit).cursorBatchSize(FALLBACK_CHUNK);
+        q.fields().include("applicationId", "name", "capacity");
+        return mongo.stream(q, RoomDoc.class);
+    }
+
+    /** Chunk'ın üye sayıları tek aggregate ile; son roomId'yi döner. */
+    private String writeChunk(OutputStream out, Map<String, ApplicationDoc> apps, List<RoomDoc> chunk)
+            throws IOException {
+        List<String> ids = chunk.stream().map(RoomDoc::getId).collect(Collectors.toList());
+        Aggregation agg = Aggregation.newAggregation(
+                Aggregation.match(members.inRooms(ids)),
+                Aggregation.group(members.roomIdField()).count().as("n"));
+        Map<String, Integer> counts = new HashMap<>();
+        for (Document d : mongo.aggregate(agg, members.collection(), Document.class)) {
+            counts.put(String.valueOf(d.get("_id")), ((Number) d.get("n")).intValue());
+        }
+        for (RoomDoc r : chunk) {
+            int cap = r.getCapacity() == null ? defaultRoomCapacity : r.getCapacity();
+            writeLine(out, roomLine(apps.get(r.getApplicationId()), r.getId(), r.getName(),
+                    counts.getOrDefault(r.getId(), 0), cap));
+        }
+        return chunk.get(chunk.size() - 1).getId();
+    }
+
+    private static Map<String, Object> roomLine(ApplicationDoc app, String roomId, String name, int members, int capacity) {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("type", "room");
+        line.put("appId", app.getId());
+        line.put("app", app.getName());
+        line.put("roomId", roomId);
+        line.put("room", name);
+        line.put("members", members);
+        line.put("capacity", capacity);
+        return line;
+    }
+
+    /** Sayfadaki odaların ölçüm özetleri, tek LinkStats çağrısıyla. */
+    private static List<LinkStats.Summary> linkSummaries(LinkStats links, List<RoomDirectory.RoomEntry> page) {
+        List<LinkStats.Summary> summaries = new ArrayList<>(page.size());
+        List<List<Endpoint>> memberSets = new ArrayList<>(page.size());
+        for (RoomDirectory.RoomEntry r : page) {
+            summaries.add(new LinkStats.Summary());
+            memberSets.add(r.members());
+        }
+        links.accumulate(summaries, memberSets);
+        return summaries;
+    }
+
+    /** Oda üyelerinin ölçülmüş RTT/jitter/kayıp ortalaması; hiçbiri ölçülmediyse yalnızca measured=0. */
+    private static void putLink(Map<String, Object> line, LinkStats.Summary s) {
+        line.put("measured", s.getCount());
+        if (s.getCount() == 0) return;
+        line.put("rttMs", Math.round(s.getRttMillis() * 10) / 10.0);
+        line.put("jitterMs", Math.round(s.getJitterMillis() * 10) / 10.0);
+        line.put("loss", Math.round(s.getLoss() * 1000) / 1000.0);
+    }
+
+    private void writeLine(OutputStream out, Map<String, Object> line) throws IOException {
+        out.write(mapper.writeValueAsBytes(line));
+        out.write(NEWLINE);
+    }
+}
@@ -0,0 +1,23 @@
+package com.sheila.api.application;
+
+import com.sheila.api.core.model.ApplicationDoc;
+import com.sheila.api.core.model.RoomDoc;
+import com.sheila.api.infrastructure.repository.MemberLayout.Member;
+
+import java.util.List;
+
+/**
+ * ServerProber turunun okuduğu kayıtlar: tüm üyelikler ve SRV_PING'e yazılan oda/uygulama adları.
+ * Üretimde Mongo'dan (MongoProbeSource); ağ simülatörü bellek içi kaynak verir.
+ */
+public interface ProbeSource {
+
+    /** Tur başında taranacak üyelikler (oda + endpoint). */
+    List<Member> members();
+
+    /** Yoksa null. */
+    RoomDoc room(String roomId);
+
+    /** Yoksa null. */
+    ApplicationDoc application(String applicationId);
+}
@@ -1,15 +1,87 @@
 package com.sheila.api.application;
 
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Endpoint başına canlılık durumu: yanıtsız probe sayısı, son probe ve son duyulma zamanı, probe aralığı.
+ * - Zamanlar System.nanoTime; datagram'ın işlendiği değil alındığı an esas alınır.
+ * - Üyeden gelen her datagram (PONG, PING, LIST, ACK...) canlılık kanıtıdır; son bir aralıkta duyulan endpoint'e probe gitmez.
+ * - Aralık uyarlanabilir: yanıt veren istemcinin aralığı maxInterval'e kadar uzar, probe kaçıranınki minInterval'e iner.
+ *   minInterval == maxInterval ise aralık sabittir.
+ */
 public class ProbeTracker {
-    private final Map<String, Integer> missed = new ConcurrentHashMap<>();
+    private final Map<String, State> states = new ConcurrentHashMap<>();
+    private final long baseNanos;
+    private final long minNanos;
+    private final long maxNanos;
+
+    public ProbeTracker(long baseNanos, long minNanos, long maxNanos) {
+        this.baseNanos = baseNanos;
+        this.minNanos = Math.min(minNanos, baseNanos);
+        this.maxNanos = Math.max(maxNanos, baseNanos);
+    }
+
     public static String key(String ip, int port) { return ip + ":" + port; }
-    public void onProbeSent(String endpointKey) { missed.merge(endpointKey, 1, Integer::sum); }
-    public void onPong(String endpointKey) { missed.remove(endpointKey); }
+
+    /** Son probe'dan ve son duyulmadan bu yana endpoint'in aralığı kadar sessizlik geçtiyse true. */
+    public boolean isDue(String endpointKey, long nowNanos) {
+        State s = states.get(endpointKey);
+        if (s == null) return true;
+        long last = s.lastHeardNanos - s.lastProbeNanos > 0 ? s.lastHeardNanos : s.lastProbeNanos;
+        return nowNanos - last >= s.intervalNanos;
+    }
+
+    public void onProbeSent(String endpointKey, long sentNanos) {
+        states.compute(endpointKey, (k, s) -> {
+            if (s == null) {
+                s = new State(baseNanos, sentNanos);
+            } else if (s.missed > 0) {
+                s.intervalNanos = minNanos; // önceki probe da yanıtsız: daha sık yokla
+            }
+            s.missed++;
+            s.lastProbeNanos = sentNanos;
+            return s;
+        });
+    }
+
+    /** receivedNanos'tan önce gönderilen probe'lar yanıtlanmış sayılır; sonrakiler açık kalır. */
+    public void onHeard(String endpointKey, long receivedNanos) {
+        states.compute(endpointKey, (k, s) -> {
+            if (s == null) return new State(baseNanos, receivedNanos);
+            if (receivedNanos - s.lastHeardNanos > 0) s.lastHeardNanos = receivedNanos;
+            if (s.missed == 0) return s;
+            if (receivedNanos - s.lastProbeNanos >= 0) {
+                s.missed = 0;
+                s.intervalNanos = Math.min(maxNanos, s.intervalNanos + s.intervalNanos / 2); // kararlı: seyrekleştir
+            } else {
+                s.missed = 1; // son probe datagram alındıktan sonra gitmiş
+            }
+            return s;
+        });
+    }
+
     public boolean shouldDrop(String endpointKey, int maxMissed) {
-        return missed.getOrDefault(endpointKey, 0) >= maxMissed;
+        State s = states.get(endpointKey);
+        return s != null && s.missed >= maxMissed;
+    }
+
+    public void clear(String endpointKey) { states.remove(endpointKey); }
+
+    /** Artık kayıtlı olmayan endpoint'lerin durumunu bırakır (tur sonunda). */
+    public void retainAll(Set<String> endpointKeys) { states.keySet().retainAll(endpointKeys); }
+
+    private static final class State {
+        int missed;
+        long lastProbeNanos;
+        long lastHeardNanos;
+        long intervalNanos;
+
+        State(long intervalNanos, long nowNanos) {
+            this.intervalNanos = intervalNanos;
+            this.lastProbeNanos = nowNanos;
+            this.lastHeardNanos = nowNanos;
+        }
     }
-    public void clear(String endpointKey) { missed.remove(endpointKey); }
 }
@@ -0,0 +1,298 @@
+package com.sheila.api.application;
+
+import com.sheila.api.core.dto.Endpoint;
+import com.sheila.api.core.model.RoomDoc;
+import com.sheila.api.infrastructure.repository.MemberLayout;
+import com.sheila.api.infrastructure.repository.RoomRepository;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static com.sheila.api.application.ProbeTracker.key;
+
+/**
+ * Oda üyeliğinin bellek içi aynası (tek sunucu varsayımı).
+ * - Kalıcı kaynak Mongo'dur; açılışta oradan yüklenir, AsyncRoomService işlemleri commit sonrası burayı günceller.
+ * - Sıcak yoldaki (relay vb.) üyelik kontrolleri Mongo'ya gitmeden buradan yapılır.
+ * - Uygulama başına odalar boş kapasiteye göre sıralı tutulur (JOIN_ANY); koltuk rezervasyonu
+ *   uygulama kilidi altında yapıldığından eşzamanlı JOIN'ler odayı kapasitesinin üstüne taşıyamaz.
+ */
+@Component
+public class RoomDirectory {
+
+    private static final Logger log = LoggerFactory.getLogger(RoomDirectory.class);
+
+    private final RoomRepository roomRepository;
+    private final MongoTemplate mongo;
+    private final MemberLayout memberLayout; // enjeksiyon, kompakt layout'un taşımasının yüklemeden önce bitmesini de sağlar
+
+    private final ConcurrentSkipListMap<String, RoomEntry> rooms = new ConcurrentSkipListMap<>(); // roomId → oda
+    private final Map<String, Set<String>> roomsByEndpoint = new ConcurrentHashMap<>();          // ip:port → roomId'ler
+    private final Map<String, AppIndex> apps = new ConcurrentHashMap<>();                         // appId → kapasite indeksi
+
+    @Value("${app.rooms.defaultCapacity:100}")
+    private int defaultRoomCapacity;
+
+    private volatile boolean loaded;
+
+    /** JOIN için koltuk durumu. */
+    public enum Seat { MEMBER, RESERVED, FULL }
+
+    public RoomDirectory(RoomRepository roomRepository, MongoTemplate mongo, MemberLayout memberLayout) {
+        this.roomRepository = roomRepository;
+        this.mongo = mongo;
+        this.memberLayout = memberLayout;
+    }
+
+    @PostConstruct
+    public void warmUp() {
+        load(roomRepository.findAll(), mongo.find(memberLayout.all(), Document.class, memberLayout.collection()).stream()
+                .map(memberLayout::toMember)
+                .toList());
+    }
+
+    /** Dizini verilen oda ve üyeliklerle doldurur (açılış; ağ simülatörü boş başlatır). */
+    public void load(Iterable<RoomDoc> roomDocs, Iterable<MemberLayout.Member> memberships) {
+        for (RoomDoc r : roomDocs) {
+            putRoom(r.getId(), r.getApplicationId(), r.getName(), r.getCapacity());
+        }
+        int members = 0;
+        for (MemberLayout.Member m : memberships) {
+            addMember(m.getRoomId(), m.toEndpoint());
+            members++;
+        }
+        loaded = true;
+        log.info("RoomDirectory loaded: rooms={}, members={}", rooms.size(), members);
+    }
+
+    /** Açılış yüklemesi tamamlandı mı (değilse okuyucular Mongo'ya düşer). */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public RoomEntry putRoom(String roomId, String applicationId, String name, Integer capacity) {
+        return rooms.computeIfAbsent(roomId, id -> {
+            RoomEntry r = new RoomEntry(id, applicationId, name, capacity == null ? defaultRoomCapacity : capacity);
+            AppIndex idx = index(applicationId);
+            synchronized (idx) {
+                idx.add(r);
+            }
+            return r;
+        });
+    }
+
+    public void addMember(String roomId, Endpoint ep) {
+        RoomEntry room = rooms.get(roomId);
+        if (room == null) return;
+        String k = key(ep.getIp(), ep.getPort());
+        mutate(room, () -> room.members.put(k, ep));
+        roomsByEndpoint.computeIfAbsent(k, x -> ConcurrentHashMap.newKeySet()).add(roomId);
+    }
+
+    public void removeMember(String roomId, Endpoint ep) {
+        String k = key(ep.getIp(), ep.getPort());
+        RoomEntry room = rooms.get(roomId);
+        if (room != null) mutate(room, () -> room.members.remove(k));
+        roomsByEndpoint.computeIfPresent(k, (x, ids) -> {
+            ids.remove(roomId);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    /**
+     * Endpoint için odada koltuk ayırır. Zaten üyeyse MEMBER, yer yoksa FULL döner.
+     * RESERVED dönerse çağıran ya commitReservation ya da releaseReservation çağırmalıdır.
+     */
+    public Seat reserve(RoomEntry room, String endpointKey) {
+        AppIndex idx = index(room.applicationId);
+        synchronized (idx) {
+            if (room.retired) {
+                // Reaper bellekten çıkardı ama JOIN odayı Mongo'da yeniden canlandırdı (emptySince kaldırıldı)
+                RoomEntry current = rooms.putIfAbsent(room.id, room);
+                if (current != null && current != room) return reserve(current, endpointKey);
+                room.retired = false;
+                idx.add(room);
+            }
+            if (room.members.containsKey(endpointKey)) return Seat.MEMBER;
+            if (room.free() <= 0) return Seat.FULL;
+            idx.byFree.remove(room);
+            room.reserved++;
+            idx.byFree.add(room);
+            return Seat.RESERVED;
+        }
+    }
+
+    /** Rezervasyon kalıcı hale geldi (commit): koltuk üyeye dönüşür. */
+    public void commitReservation(String roomId, Endpoint ep) {
+        RoomEntry room = rooms.get(roomId);
+        if (room == null) return;
+        String k = key(ep.getIp(), ep.getPort());
+        mutate(room, () -> {
+            room.reserved--;
+            room.members.put(k, ep);
+        });
+        roomsByEndpoint.computeIfAbsent(k, x -> ConcurrentHashMap.newKeySet()).add(roomId);
+    }
+
+    public void releaseReservation(String roomId) {
+        RoomEntry room = rooms.get(roomId);
+        if (room != null) mutate(room, () -> room.reserved--);
+    }
+
+    /**
+     * Boş ve rezervasyonsuz odayı bellekten çıkarır (RoomReaper). Üye/rezervasyon varsa false.
+     * Aynı uygulama kilidi altında yapıldığından eşzamanlı reserve ile yarışmaz.
+     */
+    public boolean tryRetire(String roomId) {
+        RoomEntry room = rooms.get(roomId);
+        if (room == null) return true;
+        AppIndex idx = index(room.applicationId);
+        synchronized (idx) {
+            if (!room.members.isEmpty() || room.reserved > 0) return false;
+            idx.remove(room);
+            rooms.remove(roomId, room);
+            room.retired = true;
+            return true;
+        }
+    }
+
+    /** Bellekteki tüm odalar (id sırasıyla). */
+    public Collection<RoomEntry> rooms() {
+        return rooms.values();
+    }
+
+    /** afterId'den sonraki odalar (id sırasıyla); kopya değil, zayıf tutarlı görünüm. */
+    public Collection<RoomEntry> roomsAfter(String afterId) {
+        return afterId == null ? rooms.values() : rooms.tailMap(afterId, false).values();
+    }
+
+    /**
+     * JOIN_ANY için en çok boş koltuğu olan oda (O(log n)); prefix verilirse adı prefix ile başlayanlar arasından
+     * en çok boş koltuğu olan (ada göre sıralı indeksten O(log n + k), k: prefix'e uyan oda sayısı).
+     * Endpoint bu uygulamada uygun bir odanın zaten üyesiyse o oda döner (tekrarlanan istek idempotent).
+     * Seçim koltuk ayırmaz; ayırma JOIN sırasında reserve ile yapılır.
+     */
+    public RoomEntry pickAny(String applicationId, String prefix, String endpointKey) {
+        for (RoomEntry r : roomsOf(endpointKey)) {
+            if (r.applicationId.equals(applicationId) && matches(r, prefix)) return r;
+        }
+        AppIndex idx = index(applicationId);
+        synchronized (idx) {
+            if (prefix == null || prefix.isEmpty()) {
+                RoomEntry best = idx.byFree.isEmpty() ? null : idx.byFree.first();
+                return best != null && best.free() > 0 ? best : null;
+            }
+            RoomEntry best = null;
+            for (RoomEntry r : idx.byName.subMap(prefix, prefix + Character.MAX_VALUE).values()) {
+                if (best == null || idx.byFree.comparator().compare(r, best) < 0) best = r;
+            }
+            return best != null && best.free() > 0 ? best : null;
+        }
+    }
+
+    private static boolean matches(RoomEntry r, String prefix) {
+        return prefix == null || prefix.isEmpty() || r.name.startsWith(prefix);
+    }
+
+    /** Oda sayaçlarını değiştirir; sıralı kümedeki yeri korunacak şekilde çıkar-değiştir-ekle. */
+    private void mutate(RoomEntry room, Runnable change) {
+        AppIndex idx = index(room.applicationId);
+        synchronized (idx) {
+            idx.byFree.remove(room);
+            change.run();
+            idx.byFree.add(room);
+        }
+    }
+
+    private AppIndex index(String applicationId) {
+        return apps.computeIfAbsent(applicationId, id -> new AppIndex());
+    }
+
+    public RoomEntry room(String roomId) {
+        return rooms.get(roomId);
+    }
+
+    /** Endpoint'in üye olduğu odalar. */
+    public List<RoomEntry> roomsOf(String endpointKey) {
+        Set<String> ids = roomsByEndpoint.get(endpointKey);
+        if (ids == null) return Collections.emptyList();
+        List<RoomEntry> result = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            RoomEntry r = rooms.get(id);
+            if (r != null) result.add(r);
+        }
+        return result;
+    }
+
+    public boolean isMember(String endpointKey) {
+        return roomsByEndpoint.containsKey(endpointKey);
+    }
+
+    /** İki endpoint'in ortak olduğu ilk oda; yoksa null. */
+    public RoomEntry sharedRoom(String endpointKeyA, String endpointKeyB) {
+        for (RoomEntry r : roomsOf(endpointKeyA)) {
+            if (r.members.containsKey(endpointKeyB)) return r;
+        }
+        return null;
+    }
+
+    /** Uygulamanın odaları; boş koltuğa göre azalan ve ada göre sıralı. Erişim kendi kilidi altında. */
+    private static final class AppIndex {
+        final TreeSet<RoomEntry> byFree = new TreeSet<>(
+                Comparator.comparingInt(RoomEntry::free).reversed().thenComparing(RoomEntry::getId));
+        final TreeMap<String, RoomEntry> byName = new TreeMap<>(); // JOIN_ANY prefix aralığı için
+
+        void add(RoomEntry r) {
+            byFree.add(r);
+            byName.put(r.name, r);
+        }
+
+        void remove(RoomEntry r) {
+            byFree.remove(r);
+            byName.remove(r.name, r);
+        }
+    }
+
+    /** Bir odanın bellek içi görünümü. */
+    public static final class RoomEntry {
+        private final String id;
+        private final String applicationId;
+        private final String name;
+        private final int capacity;
+        private final Map<String, Endpoint> members = new ConcurrentHashMap<>();
+        private int reserved;    // commit bekleyen JOIN'ler (AppIndex kilidi altında)
+        private boolean retired; // reaper tarafından bellekten çıkarıldı (AppIndex kilidi altında)
+
+        RoomEntry(String id, String applicationId, String name, int capacity) {
+            this.id = id;
+            this.applicationId = applicationId;
+            this.name = name;
+            this.capacity = capacity;
+        }
+
+        public String getId() { return id; }
+        public String getApplicationId() { return applicationId; }
+        public String getName() { return name; }
+        public int getCapacity() { return capacity; }
+        public int memberCount() { return members.size(); }
+        public int free() { return capacity - members.size() - reserved; }
+        public boolean hasMember(String endpointKey) { return members.containsKey(endpointKey); }
+        public List<Endpoint> members() { return new ArrayList<>(members.values()); }
+    }
+}
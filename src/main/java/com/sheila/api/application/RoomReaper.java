@@ -0,0 +1,121 @@
+package com.sheila.api.application;
+
+import com.sheila.api.core.model.RoomDoc;
+import com.sheila.api.infrastructure.repository.MemberLayout;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Terk edilmiş odaları siler: emptySince + graceMs geçmiş ve hâlâ üyesi olmayan odalar.
+ * - _id cursor'ı ile küçük batch'ler halinde ilerler; silmeler token bucket ile sınırlanır (yalnızca başarılı silme harcar).
+ * - Oda silinince uygulama kapasite bütçesindeki payı da serbest kalır (sumAppRoomsCapacity).
+ * - JOIN odayı upsert ederken emptySince'i kaldırır; silme bu alana koşullu olduğundan JOIN'le yarışmaz.
+ */
+@Component
+public class RoomReaper {
+
+    private static final Logger log = LoggerFactory.getLogger(RoomReaper.class);
+
+    private final MongoTemplate mongo;
+    private final MemberLayout members;
+    private final RoomDirectory directory;
+
+    @Value("${app.reaper.enabled:true}") private boolean enabled;
+    @Value("${app.reaper.graceMs:300000}") private long graceMs;
+    @Value("${app.reaper.batchSize:50}") private int batchSize;
+    @Value("${app.reaper.maxDeletesPerSec:20}") private double maxDeletesPerSec;
+
+    private TokenBucket deleteBudget;
+    private String cursor; // son işlenen oda id'si; null → baştan
+
+    public RoomReaper(MongoTemplate mongo, MemberLayout members, RoomDirectory directory) {
+        this.mongo = mongo;
+        this.members = members;
+        this.directory = directory;
+    }
+
+    @PostConstruct
+    public void init() {
+        deleteBudget = new TokenBucket(maxDeletesPerSec, Math.max(1, maxDeletesPerSec));
+    }
+
+    /** Damgasız eski boş odalar (bu özellikten önce boşalanlar) şimdi damgalanır; grace süresi buradan başlar. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void stampVacantRooms() {
+        if (!enabled) return;
+        List<String> vacant = directory.rooms().stream()
+                .filter(r -> r.memberCount() == 0)
+                .map(RoomDirectory.RoomEntry::getId)
+                .toList();
+        if (vacant.isEmpty()) return;
+        Query q = new Query(Criteria.where("id").in(vacant).and("emptySince").exists(false));
+        long stamped = mongo.updateMulti(q, new Update().set("emptySince", new Date()), RoomDoc.class).getModifiedCount();
+        log.info("[Reaper] {} vacant room(s) stamped with emptySince", stamped);
+    }
+
+    @Scheduled(fixedDelayString = "${app.reaper.intervalMs:30000}")
+    public void sweep() {
+        if (!enabled) return;
+        Date cutoff = new Date(System.currentTimeMillis() - graceMs);
+
+        Query q = new Query(Criteria.where("emptySince").lte(cutoff));
+        if (cursor != null) q.addCriteria(Criteria.where("id").gt(cursor));
+        q.with(Sort.by(Sort.Direction.ASC, "id")).limit(batchSize);
+        q.fields().include("id").include("applicationId").include("name");
+        List<RoomDoc> batch = mongo.find(q, RoomDoc.class);
+
+        int deleted = 0;
+        boolean completed = true;
+        String last = cursor;
+        for (RoomDoc r : batch) {
+            if (deleteBudget.available() < 1) { // bütçe bitti: kalanlar sonraki turda, aynı yerden
+                completed = false;
+                break;
+            }
+            // Bütçeden yalnızca gerçekleşen silme düşer; damga temizleme / yarışı kaybeden oda token yakmaz
+            if (reap(r, cutoff)) {
+                deleteBudget.tryAcquire(1);
+                deleted++;
+            }
+            last = r.getId();
+        }
+        // Batch tamamen işlendi ve eksik geldiyse koleksiyon sonuna gelindi: baştan başla
+        cursor = (completed && batch.size() < batchSize) ? null : last;
+
+        if (deleted > 0) log.info("[Reaper] deleted {} abandoned room(s)", deleted);
+    }
+
+    private boolean reap(RoomDoc r, Date cutoff) {
+        // Damga yanlış kalmış (markEmptyIfVacant ile JOIN yarışı): oda dolu → damgayı kaldır
+        RoomDirectory.RoomEntry entry = directory.room(r.getId());
+        if ((entry != null && entry.memberCount() > 0) || mongo.exists(members.room(r.getId()), members.collection())) {
+            mongo.updateFirst(new Query(Criteria.where("id").is(r.getId())),
+                    new Update().unset("emptySince"), RoomDoc.class);
+            return false;
+        }
+
+        // Bellekte rezervasyon (devam eden JOIN) varsa dokunma
+        if (!directory.tryRetire(r.getId())) return false;
+
+        Query del = new Query(Criteria.where("id").is(r.getId()).and("emptySince").lte(cutoff));
+        boolean removed = mongo.remove(del, RoomDoc.class).getDeletedCount() > 0;
+        if (!removed) {
+            log.debug("[Reaper] room {} revived by a concurrent JOIN", r.getName());
+        }
+        return removed;
+    }
+}
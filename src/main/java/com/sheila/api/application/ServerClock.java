@@ -0,0 +1,19 @@
+package com.sheila.api.application;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sıcak yoldaki zaman okumalarının kaynağı (alınma anı, probe zamanları, dedup ve oturum süreleri).
+ * Üretimde System.nanoTime'dır; ağ simülatörü (tools.sim) aynı bileşenleri sanal saatle çalıştırır.
+ * Değerler yalnızca birbirleriyle karşılaştırılır; duvar saati değildir.
+ */
+public interface ServerClock {
+
+    ServerClock SYSTEM = System::nanoTime;
+
+    long nanoTime();
+
+    default long millis() {
+        return TimeUnit.NANOSECONDS.toMillis(nanoTime());
+    }
+}
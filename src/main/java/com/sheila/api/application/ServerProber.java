@@ -1,76 +1,262 @@
 package com.sheila.api.application;
 
+import com.sheila.api.core.dto.Endpoint;
 import com.sheila.api.core.model.ApplicationDoc;
-import com.sheila.api.core.model.ClientDoc;
 import com.sheila.api.core.model.RoomDoc;
-import com.sheila.api.infrastructure.repository.ApplicationRepository;
-import com.sheila.api.infrastructure.repository.ClientRepository;
-import com.sheila.api.infrastructure.repository.RoomRepository;
+import com.sheila.api.infrastructure.repository.MemberLayout.Member;
+import com.sheila.api.infrastructure.trace.ProbeSweepEvent;
+import com.sheila.api.transport.udp.OutboundMessage;
+import com.sheila.api.transport.udp.SendPriority;
 import com.sheila.api.transport.udp.UdpMessenger;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import static com.sheila.api.application.ProbeTracker.key;
 
+/**
+ * Server-probe: sessiz kalan üyelere SRV_PING, maxMissed kez yanıtsız kalanı düşürür.
+ * Üyeliği doğrulanmış her komut (geçerli sid, üyesi olunan oda) canlılık sayılır (onHeard); son bir aralıkta
+ * duyulan endpoint'e probe gitmez.
+ * Aralık istemcinin geçmişine göre uyarlanabilir (app.probe.adaptive.*); tur app.probe.tickMs'te bir çalışır
+ * (varsayılan intervalMs, uyarlamalı aralıkta minIntervalMs; daha seyrek tur uyarlamalı aralıkta başlatımı durdurur).
+ * Tarama ProbeSource'tan (üretimde SecondaryReads üzerinden Mongo) okunur; secondary'nin geride kalmış satırları
+ * (ayrılmış istemciler) bellek içi dizinle elenir.
+ * Probe'lar seq ve gönderim zamanı taşır; PONG yankılarından RTT/jitter/kayıp ölçülür (LinkStats, app.probe.rtt.*).
+ * app.probe.rtt.sampleActive açıksa canlılık için yoklanmayan aktif istemcilere de sampleMs'te bir ölçüm probe'u gider
+ * (varsayılan kapalı: her aktif istemciye ek SRV_PING demektir; ölçüm yalnızca canlılık probe'larından alınır). Ölçüm
+ * probe'ları ProbeTracker'da kaçırılmış sayılmaz (düşürmeye yol açmaz) ve maxUnechoed kez yankısız kalan (eski)
+ * istemciye gönderilmez.
+ */
 @Component
 public class ServerProber {
 
-    private final ClientRepository clientRepo;
-    private final RoomRepository roomRepo;
-    private final ApplicationRepository appRepo;
+    private static final Logger log = LoggerFactory.getLogger(ServerProber.class);
+    private static final String TICK_MS = "${app.probe.tickMs:#{${app.probe.adaptive.enabled:false}"
+            + " ? ${app.probe.adaptive.minIntervalMs:5000} : ${app.probe.intervalMs:10000}}}";
+
+    private final ProbeSource source;
     private final UdpMessenger messenger;
-    private final ProbeTracker tracker = new ProbeTracker();
+    private final MembershipEventLog events;
+    private final AsyncRoomService rooms;
+    private final RoomDirectory directory;
+    private final ServerClock clock;
+    private final Counter sent;
+    private final Counter skipped;
+    private final Counter dropped;
+    private final Timer rtt;
+    private final MeterRegistry registry;
+    private final Map<String, double[]> appLinks = new ConcurrentHashMap<>(); // app adı → {rtt, jitter, loss}
+    private final LinkStats links = new LinkStats();
+    private ProbeTracker tracker;
 
     @Value("${app.probe.enabled:true}") private boolean enabled;
     @Value("${app.probe.intervalMs:10000}") private long intervalMs;
     @Value("${app.probe.maxMissed:3}") private int maxMissed;
+    @Value(TICK_MS) private long tickMs;
+    @Value("${app.probe.adaptive.enabled:false}") private boolean adaptive;
+    @Value("${app.probe.adaptive.minIntervalMs:5000}") private long minIntervalMs;
+    @Value("${app.probe.adaptive.maxIntervalMs:30000}") private long maxIntervalMs;
+    @Value("${app.probe.rtt.enabled:true}") private boolean rttEnabled;
+    @Value("${app.probe.rtt.sampleActive:false}") private boolean sampleActive;
+    @Value("${app.probe.rtt.sampleMs:30000}") private long sampleMs;
+    @Value("${app.probe.rtt.maxUnechoed:3}") private int maxUnechoed;
 
-    public ServerProber(ClientRepository clientRepo,
-                        RoomRepository roomRepo,
-                        ApplicationRepository appRepo,
-                        UdpMessenger messenger) {
-        this.clientRepo = clientRepo;
-        this.roomRepo = roomRepo;
-        this.appRepo = appRepo;
+    public ServerProber(ProbeSource source,
+                        UdpMessenger messenger,
+                        MembershipEventLog events,
+                        AsyncRoomService rooms,
+                        RoomDirectory directory,
+                        ServerClock clock,
+                        MeterRegistry registry) {
+        this.source = source;
         this.messenger = messenger;
+        this.events = events;
+        this.rooms = rooms;
+        this.directory = directory;
+        this.clock = clock;
+        this.sent = Counter.builder("sheila.probe.sent")
+                .description("SRV_PING probes sent")
+                .register(registry);
+        this.skipped = Counter.builder("sheila.probe.skipped")
+                .description("Probes not sent because the client was heard from within its interval")
+                .register(registry);
+        this.dropped = Counter.builder("sheila.probe.dropped")
+                .description("Clients dropped after maxMissed unanswered probes")
+                .register(registry);
+        this.rtt = Timer.builder("sheila.probe.rtt")
+                .description("Round-trip time of SRV_PING probes echoed with seq/ts")
+                .register(registry);
+        this.registry = registry;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (adaptive && tickMs > minIntervalMs) { // seyrek tur, sık yoklanması gereken istemciyi geciktirirdi
+            throw new IllegalStateException("app.probe.tickMs (" + tickMs + ") must not exceed app.probe.adaptive.minIntervalMs ("
+                    + minIntervalMs + ") when adaptive probing is enabled");
+        }
+        long base = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+        tracker = adaptive
+                ? new ProbeTracker(base, TimeUnit.MILLISECONDS.toNanos(minIntervalMs), TimeUnit.MILLISECONDS.toNanos(maxIntervalMs))
+                : new ProbeTracker(base, base, base);
     }
 
-    @Scheduled(fixedDelayString = "${app.probe.intervalMs:10000}")
+    /** Tarama aralığı (ms); simülatör turları da buna göre planlar. */
+    public long tickMs() {
+        return tickMs;
+    }
+
+    @Scheduled(fixedDelayString = TICK_MS)
     public void probeAll() {
         if (!enabled || !messenger.isReady()) return;
 
-        List<ClientDoc> clients = clientRepo.findAll();
-        for (ClientDoc c : clients) {
-            RoomDoc room = roomRepo.findById(c.getRoomId()).orElse(null);
+        ProbeSweepEvent sweep = new ProbeSweepEvent();
+        sweep.begin();
+        int droppedNow = 0;
+        int skippedNow = 0;
+
+        List<Member> clients = source.members();
+        long sentNanos = clock.nanoTime(); // probe'lar tek batch'te yazılır
+        Set<String> registered = new HashSet<>(clients.size() * 2);
+        Map<String, RoomDoc> roomCache = new HashMap<>();       // tur boyunca oda/uygulama bir kez okunur
+        Map<String, ApplicationDoc> appCache = new HashMap<>();
+        List<OutboundMessage> probes = new ArrayList<>();
+        boolean checkDirectory = directory.isLoaded();
+        long sampleNanos = TimeUnit.MILLISECONDS.toNanos(sampleMs);
+        for (Member c : clients) {
+            String k = key(c.getIp(), c.getPort());
+            if (checkDirectory && !directory.isMember(k)) continue; // secondary geride: zaten ayrılmış
+            registered.add(k);
+            // Aralığı içinde duyulmuş (ya da henüz yoklanma zamanı gelmemiş) istemci: oda/uygulama okunmadan geç
+            // sampleActive açıksa uzun süredir örneklenmemiş aktif istemci de ölçüm için yoklanır
+            boolean due = tracker.isDue(k, sentNanos);
+            if (!due && !(sampleActive && rttEnabled && links.needsSample(k, sentNanos, sampleNanos, maxUnechoed))) {
+                skippedNow++;
+                continue;
+            }
+
+            RoomDoc room = roomCache.computeIfAbsent(c.getRoomId(), source::room);
             if (room == null) continue;
 
-            ApplicationDoc app = appRepo.findById(room.getApplicationId()).orElse(null);
+            ApplicationDoc app = appCache.computeIfAbsent(room.getApplicationId(), source::application);
             if (app == null) continue;
 
-            String msg = "SRV_PING|" + app.getName() + "|" + room.getName();
-            messenger.send(c.getIp(), c.getPort(), msg);
-
-            String k = key(c.getIp(), c.getPort());
-            tracker.onProbeSent(k);
-
-            // Yeterince yanıt gelmediyse: düşür + odadakilere CLIENT_LEFT yayınla
-            if (tracker.shouldDrop(k, maxMissed)) {
-                clientRepo.deleteById(c.getId());
-                List<ClientDoc> remain = clientRepo.findByRoomId(c.getRoomId());
-                String leftMsg = "CLIENT_LEFT|" + c.getIp() + ":" + c.getPort();
-                for (ClientDoc r : remain) {
-                    messenger.send(r.getIp(), r.getPort(), leftMsg);
-                }
+            // Son maxMissed probe'un her biri tam bir aralık boyunca yanıtsız kaldı: düşür + odadakilere CLIENT_LEFT
+            // (yeni probe'u gönderdiği anda saymak, son probe'a yanıt şansı tanımadan düşürürdü)
+            if (due && tracker.shouldDrop(k, maxMissed)) {
+                evict(c, app.getName(), room.getName());
                 tracker.clear(k);
+                links.clear(k);
+                droppedNow++;
+                continue;
             }
+
+            String msg = "SRV_PING|" + app.getName() + "|" + room.getName();
+            if (rttEnabled) msg += "|seq=" + links.onProbeSent(k, sentNanos) + "|ts=" + sentNanos / 1000;
+            probes.add(new OutboundMessage(c.toEndpoint(), msg));
+            if (due) tracker.onProbeSent(k, sentNanos); // yalnızca ölçüm probe'u canlılık sayacına girmez
         }
+        tracker.retainAll(registered);
+        links.retainAll(registered);
+        if (rttEnabled && checkDirectory) publishLinkMetrics(appCache);
+
+        // Tüm probe'lar tek event loop görevinde yazılır; kanal doluysa ilk atılan trafik bunlardır
+        messenger.sendBatch(probes, SendPriority.PROBE);
+        sent.increment(probes.size());
+        skipped.increment(skippedNow);
+        dropped.increment(droppedNow);
+        sweep.record(clients.size(), probes.size(), skippedNow, droppedNow);
+    }
+
+    /**
+     * Uygulama başına ölçülmüş üyelerin RTT/jitter/kayıp ortalamaları (sheila.link.*{app}); bellek içi dizinden.
+     * Oda başına değerler metrik etiketine değil OccupancySnapshot satırlarına yazılır (oda sayısı sınırsız).
+     */
+    private void publishLinkMetrics(Map<String, ApplicationDoc> appCache) {
+        Map<String, LinkStats.Summary> byApp = new HashMap<>();
+        List<LinkStats.Summary> into = new ArrayList<>();
+        List<List<Endpoint>> memberSets = new ArrayList<>();
+        for (RoomDirectory.RoomEntry r : directory.rooms()) {
+            into.add(byApp.computeIfAbsent(r.getApplicationId(), id -> new LinkStats.Summary()));
+            memberSets.add(r.members());
+        }
+        links.accumulate(into, memberSets); // oda başına değil, tur başına tek kilit
+        byApp.forEach((appId, s) -> {
+            if (s.getCount() == 0) return;
+            ApplicationDoc app = appCache.computeIfAbsent(appId, source::application);
+            if (app == null) return;
+            double[] v = appLinks.computeIfAbsent(app.getName(), this::registerAppLink);
+            v[0] = s.getRttMillis();
+            v[1] = s.getJitterMillis();
+            v[2] = s.getLoss();
+        });
+    }
+
+    private double[] registerAppLink(String appName) {
+        double[] v = {Double.NaN, Double.NaN, Double.NaN};
+        Gauge.builder("sheila.link.rtt", v, x -> x[0]).tag("app", appName).baseUnit("milliseconds")
+                .description("Mean smoothed RTT of measured members").register(registry);
+        Gauge.builder("sheila.link.jitter", v, x -> x[1]).tag("app", appName).baseUnit("milliseconds")
+                .description("Mean RTT variation of measured members").register(registry);
+        Gauge.builder("sheila.link.loss", v, x -> x[2]).tag("app", appName)
+                .description("Mean probe loss ratio of measured members").register(registry);
+        return v;
+    }
+
+    /** Silme tamamlanınca (prober thread'ini bekletmeden) kalanlara bellek içi üye listesiyle CLIENT_LEFT yayınlanır. */
+    private void evict(Member c, String appName, String roomName) {
+        Endpoint ep = c.toEndpoint();
+        rooms.evictClient(c.getRoomId(), c.getIp(), c.getPort()).subscribe(null,
+                e -> log.warn("probe: evict failed for {} (room={}): {}", ep, roomName, e.toString()),
+                () -> {
+                    events.forget(c.getIp(), c.getPort(), c.getRoomId());
+                    RoomDirectory.RoomEntry entry = directory.room(c.getRoomId());
+                    List<Endpoint> remain = entry == null ? List.of() : entry.members();
+                    events.broadcast(appName, c.getRoomId(), roomName, remain, "CLIENT_LEFT", ep, null);
+                });
+    }
+
+    /**
+     * Handler her datagram'da (storage'ı beklemeden) çağırır; receivedNanos datagram'ın alındığı an.
+     * Yalnızca bir odanın üyesi olan endpoint'ler sayılır; rastgele trafik durum tablosunu büyütmez.
+     */
+    public void onHeard(String ip, int port, long receivedNanos) {
+        if (tracker == null) return;
+        String k = key(ip, port);
+        if (directory.isMember(k)) tracker.onHeard(k, receivedNanos);
+    }
+
+    /**
+     * PONG'daki seq/ts yankısı (handler, datagram'ın alındığı anla). Eşleşen yankı RTT örneğidir;
+     * eşleşmeyen (geç, tekrar, sahte) sessizce yok sayılır — canlılık onHeard ile zaten sayıldı.
+     */
+    public void onEcho(String ip, int port, int seq, long tsMicros, long receivedNanos) {
+        if (!rttEnabled) return;
+        String k = key(ip, port);
+        if (!directory.isMember(k)) return;
+        long rttNanos = links.onEcho(k, seq, tsMicros, receivedNanos);
+        if (rttNanos >= 0) rtt.record(rttNanos, TimeUnit.NANOSECONDS);
     }
 
-    /** Handler PONG gördüğünde burayı çağıracak. */
-    public void onPong(String ip, int port) {
-        tracker.onPong(key(ip, port));
+    /** Ölçüm tablosu (ROOM yanıtlarındaki rtt= alanı ve doluluk raporu için); ölçüm kapalıysa null. */
+    public LinkStats links() {
+        return rttEnabled ? links : null;
     }
 }
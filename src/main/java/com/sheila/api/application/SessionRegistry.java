@@ -0,0 +1,127 @@
+package com.sheila.api.application;
+
+import com.sheila.api.core.dto.Endpoint;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JOIN sonrası oturumlar: 64-bit rastgele token → (uygulama, oda, üye endpoint'i).
+ * - JOIN yanıtı sid=<hex> taşır; LIST/LEAVE/PING/PONG appKey|roomName yerine sid=<hex> ile gelebilir.
+ * - Token gönderen endpoint'e bağlıdır; başka endpoint'ten, süresi dolmuş ya da üyelik bitmişse geçersizdir.
+ * - Aynı üye aynı odaya tekrar JOIN olursa aynı token döner (tekrar gönderimler idempotent kalır).
+ * - Üyelik RoomDirectory'den doğrulanır; LEAVE/probe/reaper yolları ayrıca haber vermek zorunda değildir.
+ */
+@Component
+public class SessionRegistry {
+
+    private final RoomDirectory directory;
+    private final ServerClock clock;
+    private final SecureRandom random = new SecureRandom();
+
+    private final Map<Long, Session> byToken = new ConcurrentHashMap<>();
+    private final Map<String, Session> byMember = new ConcurrentHashMap<>(); // ip:port@roomId → oturum
+
+    @Value("${app.sessions.enabled:true}") private boolean enabled;
+    @Value("${app.sessions.idleTimeoutMs:120000}") private long idleTimeoutMs;
+
+    public SessionRegistry(RoomDirectory directory, ServerClock clock, MeterRegistry registry) {
+        this.directory = directory;
+        this.clock = clock;
+        Gauge.builder("sheila.sessions.active", byToken, Map::size)
+                .description("Session tokens issued by JOIN and not yet expired")
+                .register(registry);
+    }
+
+    /** Üye için oturum açar (varsa mevcut olanı tazeler); token'ın hex hali döner, kapalıysa null. */
+    public String issue(String appKey, String roomId, String roomName, String endpointKey) {
+        if (!enabled || roomId == null) return null;
+        long now = clock.millis();
+        Session s = byMember.compute(endpointKey + "@" + roomId, (k, old) -> {
+            if (old != null && byToken.get(old.token) == old) {
+                old.lastUsed = now;
+                return old;
+            }
+            long token;
+            do {
+                token = random.nextLong();
+            } while (token == 0 || byToken.containsKey(token));
+            Session fresh = new Session(token, appKey, roomId, roomName, endpointKey, now);
+            byToken.put(token, fresh);
+            return fresh;
+        });
+        return Long.toHexString(s.token);
+    }
+
+    /** sid=<hex> çözümü: bilinmeyen, süresi dolmuş, başka endpoint'e ait ya da üyeliği bitmiş → null. */
+    public Session resolve(String sid, String endpointKey) {
+        long token;
+        try {
+            token = Long.parseUnsignedLong(sid, 16);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        Session s = byToken.get(token);
+        if (s == null || !s.endpointKey.equals(endpointKey)) return null;
+        long now = clock.millis();
+        RoomDirectory.RoomEntry room = directory.room(s.roomId);
+        if (now - s.lastUsed > idleTimeoutMs || room == null || !room.hasMember(endpointKey)) {
+            revoke(s);
+            return null;
+        }
+        s.lastUsed = now;
+        return s;
+    }
+
+    /** Oturumun odasındaki güncel üyeler (bellek içi dizinden). */
+    public List<Endpoint> members(Session s) {
+        RoomDirectory.RoomEntry room = directory.room(s.roomId);
+        return room == null ? List.of() : room.members();
+    }
+
+    public void revoke(Session s) {
+        byToken.remove(s.token, s);
+        byMember.remove(s.endpointKey + "@" + s.roomId, s);
+    }
+
+    /** Süresi dolan ve üyeliği biten oturumları temizler. */
+    @Scheduled(fixedDelayString = "${app.sessions.sweepMs:30000}")
+    public void sweep() {
+        if (!enabled) return;
+        long cutoff = clock.millis() - idleTimeoutMs;
+        for (Session s : byToken.values()) {
+            RoomDirectory.RoomEntry room = directory.room(s.roomId);
+            if (s.lastUsed < cutoff || room == null || !room.hasMember(s.endpointKey)) revoke(s);
+        }
+    }
+
+    /** Bir üyenin bir odadaki oturumu. */
+    public static final class Session {
+        private final long token;
+        private final String appKey;
+        private final String roomId;
+        private final String roomName;
+        private final String endpointKey;
+        private volatile long lastUsed;
+
+        Session(long token, String appKey, String roomId, String roomName, String endpointKey, long lastUsed) {
+            this.token = token;
+            this.appKey = appKey;
+            this.roomId = roomId;
+            this.roomName = roomName;
+            this.endpointKey = endpointKey;
+            this.lastUsed = lastUsed;
+        }
+
+        public String getAppKey() { return appKey; }
+        public String getRoomId() { return roomId; }
+        public String getRoomName() { return roomName; }
+    }
+}
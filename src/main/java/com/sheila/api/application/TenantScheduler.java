@@ -0,0 +1,240 @@
+package com.sheila.api.application;
+
+import com.sheila.api.core.exception.TenantOverloadedException;
+import com.sheila.api.core.model.ApplicationDoc;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Storage işlerinin uygulamalar arasında ağırlıklı adil paylaştırılması.
+ * - Her uygulamanın kendi kuyruğu vardır; toplam eşzamanlı iş app.scheduler.maxInFlight ile sınırlıdır.
+ * - Boşalan slot, stride zamanlamasıyla seçilen uygulamaya verilir: her işte pass += 1/weight,
+ *   en küçük pass'li (ve kendi maxConcurrency sınırının altındaki) uygulama önce çalışır.
+ * - Kuyruğu dolan uygulamanın yeni işleri TenantOverloadedException ile reddedilir; diğerleri etkilenmez.
+ * - weight/maxConcurrency ApplicationDoc'tan okunur, yoksa config varsayılanları geçerlidir.
+ * - İki şerit vardır: CONTROL (PING/PONG/LEAVE) kendi slotlarında (app.scheduler.controlInFlight) ve her zaman
+ *   önce çalışır; HEAVY (JOIN/LIST) slotları dolu olsa bile canlılık trafiği JOIN fırtınasının arkasında beklemez.
+ *   CONTROL şeridi de aynı stride kuralıyla ama ayrı bir pass ile paylaştırılır ve uygulama başına
+ *   app.scheduler.controlMaxConcurrency ile sınırlıdır: tek uygulamanın PING seli diğerlerinin slotlarını tüketemez.
+ */
+@Component
+public class TenantScheduler {
+
+    /** İşin hangi kuyruğa ve slot havuzuna gireceği. */
+    public enum Lane { CONTROL, HEAVY }
+
+    private static final String UNKNOWN = "_unknown"; // katalogda olmayan appKey'ler (APP_NOT_FOUND'a gidecek)
+
+    private final ApplicationCatalog catalog;
+    private final MeterRegistry registry;
+
+    // Aşağıdakiler this kilidi altında
+    private final Map<String, Tenant> tenants = new HashMap<>();
+    private int inFlight;        // HEAVY
+    private int controlInFlight; // CONTROL
+    private double virtualTime; // son seçilen işin pass değeri; yeni aktifleşen uygulama buradan başlar
+    private double controlVirtualTime; // CONTROL şeridi için aynısı
+
+    @Value("${app.scheduler.enabled:true}") private boolean enabled;
+    @Value("${app.scheduler.maxInFlight:128}") private int maxInFlight;
+    @Value("${app.scheduler.controlInFlight:32}") private int maxControlInFlight;
+    @Value("${app.scheduler.controlMaxConcurrency:8}") private int controlMaxConcurrency;
+    @Value("${app.scheduler.maxQueue:1000}") private int maxQueue;
+    @Value("${app.scheduler.defaultWeight:1}") private int defaultWeight;
+    @Value("${app.scheduler.defaultMaxConcurrency:32}") private int defaultMaxConcurrency;
+
+    public TenantScheduler(ApplicationCatalog catalog, MeterRegistry registry) {
+        this.catalog = catalog;
+        this.registry = registry;
+    }
+
+    /** İşi uygulamanın ilgili şerit kuyruğuna koyar; sırası gelince work çağrılır, sonucu döner. */
+    public <T> Mono<T> submit(String appKey, Lane lane, Supplier<Mono<T>> work) {
+        if (!enabled) return Mono.defer(work);
+        return Mono.create(sink -> {
+            long enqueued = System.nanoTime();
+            Task task = new Task();
+            Tenant tenant;
+            boolean rejected = false;
+            synchronized (this) {
+                tenant = tenant(catalog.find(appKey));
+                ArrayDeque<Task> queue = tenant.queue(lane);
+                if (queue.size() >= maxQueue) {
+                    rejected = true;
+                } else {
+                    Timer wait = lane == Lane.CONTROL ? tenant.controlWait : tenant.wait;
+                    task.start = () -> {
+                        wait.record(System.nanoTime() - enqueued, TimeUnit.NANOSECONDS);
+                        Mono.defer(work)
+                                .doFinally(s -> {
+                                    tenant.latency.record(System.nanoTime() - enqueued, TimeUnit.NANOSECONDS);
+                                    release(tenant, lane);
+                                })
+                                .contextWrite(sink.contextView()) // çağıranın context'i (istek izi) işe taşınır
+                                .subscribe(v -> sink.success(v), sink::error, () -> sink.success());
+                    };
+                    if (tenant.idle()) {
+                        tenant.pass = Math.max(tenant.pass, virtualTime); // boşta biriken hak yok
+                        tenant.controlPass = Math.max(tenant.controlPass, controlVirtualTime);
+                    }
+                    queue.add(task);
+                    tenant.queued = tenant.queue.size() + tenant.control.size();
+                }
+            }
+            if (rejected) {
+                tenant.rejected.increment();
+                sink.error(new TenantOverloadedException(tenant.name));
+                return;
+            }
+            sink.onCancel(() -> task.cancelled = true);
+            dispatch();
+        });
+    }
+
+    private void release(Tenant tenant, Lane lane) {
+        synchronized (this) {
+            if (lane == Lane.CONTROL) {
+                tenant.controlInFlight--;
+                controlInFlight--;
+            } else {
+                tenant.inFlight--;
+                inFlight--;
+            }
+        }
+        dispatch();
+    }
+
+    /**
+     * Boş slotları en küçük pass'li uygun uygulamalara dağıtır; işler kilit dışında başlatılır.
+     * Önce CONTROL kuyrukları boşaltılır (kendi pass'i ve uygulama başına controlMaxConcurrency sınırıyla).
+     */
+    private void dispatch() {
+        List<Task> ready = null;
+        synchronized (this) {
+            while (controlInFlight < maxControlInFlight) {
+                Tenant next = null;
+                for (Tenant t : tenants.values()) {
+                    if (t.control.isEmpty() || t.controlInFlight >= controlMaxConcurrency) continue;
+                    if (next == null || t.controlPass < next.controlPass) next = t;
+                }
+                if (next == null) break;
+
+                Task task = next.control.poll();
+                next.queued = next.queue.size() + next.control.size();
+                if (task.cancelled) continue;
+                next.controlInFlight++;
+                controlInFlight++;
+                controlVirtualTime = next.controlPass;
+                next.controlPass += 1.0 / next.weight;
+                if (ready == null) ready = new ArrayList<>();
+                ready.add(task);
+            }
+            while (inFlight < maxInFlight) {
+                Tenant next = null;
+                for (Tenant t : tenants.values()) {
+                    if (t.queue.isEmpty() || t.inFlight >= t.maxConcurrency) continue;
+                    if (next == null || t.pass < next.pass) next = t;
+                }
+                if (next == null) break;
+
+                Task task = next.queue.poll();
+                next.queued = next.queue.size() + next.control.size();
+                if (task.cancelled) continue;
+                next.inFlight++;
+                inFlight++;
+                virtualTime = next.pass;
+                next.pass += 1.0 / next.weight;
+                if (ready == null) ready = new ArrayList<>();
+                ready.add(task);
+            }
+        }
+        if (ready != null) {
+            for (Task t : ready) t.start.run();
+        }
+    }
+
+    /** this kilidi altında çağrılır; ayarları her istekte katalogdan tazeler. */
+    private Tenant tenant(ApplicationDoc app) {
+        String name = app == null ? UNKNOWN : app.getName();
+        Tenant t = tenants.computeIfAbsent(name, this::newTenant);
+        t.weight = positiveOr(app == null ? null : app.getWeight(), defaultWeight);
+        t.maxConcurrency = positiveOr(app == null ? null : app.getMaxConcurrency(), defaultMaxConcurrency);
+        return t;
+    }
+
+    private Tenant newTenant(String name) {
+        Tenant t = new Tenant(name);
+        Gauge.builder("sheila.tenant.queue.depth", t, x -> x.queued)
+                .description("Storage requests waiting in the application's queue")
+                .tag("app", name)
+                .register(registry);
+        Gauge.builder("sheila.tenant.inflight", t, x -> x.inFlight + x.controlInFlight)
+                .description("Storage requests of the application currently running")
+                .tag("app", name)
+                .register(registry);
+        t.wait = Timer.builder("sheila.tenant.wait")
+                .description("Time from enqueue until the scheduler started the request")
+                .tag("app", name)
+                .tag("lane", "heavy")
+                .register(registry);
+        t.controlWait = Timer.builder("sheila.tenant.wait")
+                .description("Time from enqueue until the scheduler started the request")
+                .tag("app", name)
+                .tag("lane", "control")
+                .register(registry);
+        t.latency = Timer.builder("sheila.tenant.latency")
+                .description("Time from enqueue until the storage request completed")
+                .tag("app", name)
+                .register(registry);
+        t.rejected = Counter.builder("sheila.tenant.rejected")
+                .description("Requests rejected because the application's queue was full")
+                .tag("app", name)
+                .register(registry);
+        return t;
+    }
+
+    private static int positiveOr(Integer v, int fallback) {
+        return v != null && v > 0 ? v : Math.max(1, fallback);
+    }
+
+    private static final class Tenant {
+        final String name;
+        final ArrayDeque<Task> queue = new ArrayDeque<>();   // HEAVY
+        final ArrayDeque<Task> control = new ArrayDeque<>(); // CONTROL
+        volatile int queued;   // gauge için iki kuyruğun toplam boyu
+        volatile int inFlight;
+        volatile int controlInFlight;
+        int weight = 1;
+        int maxConcurrency = 1;
+        double pass;
+        double controlPass;
+        Timer wait;
+        Timer controlWait;
+        Timer latency;
+        Counter rejected;
+
+        Tenant(String name) { this.name = name; }
+
+        ArrayDeque<Task> queue(Lane lane) { return lane == Lane.CONTROL ? control : queue; }
+
+        boolean idle() { return queue.isEmpty() && control.isEmpty() && inFlight == 0 && controlInFlight == 0; }
+    }
+
+    private static final class Task {
+        Runnable start;
+        volatile boolean cancelled;
+    }
+}
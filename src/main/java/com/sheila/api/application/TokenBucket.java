@@ -0,0 +1,36 @@
+package com.sheila.api.application;
+
+/** Basit token bucket: saniyede ratePerSecond token dolar, en fazla burst kadar birikir. */
+public final class TokenBucket {
+
+    private final double ratePerNano;
+    private final double burst;
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(double ratePerSecond, double burst) {
+        this.ratePerNano = ratePerSecond / 1_000_000_000d;
+        this.burst = burst;
+        this.tokens = burst;
+        this.lastRefill = System.nanoTime();
+    }
+
+    public synchronized boolean tryAcquire(double n) {
+        refill();
+        if (tokens < n) return false;
+        tokens -= n;
+        return true;
+    }
+
+    /** Şu an kullanılabilir token sayısı (harcamadan); birden çok kovayı birlikte denetlemek için. */
+    public synchronized double available() {
+        refill();
+        return tokens;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefill) * ratePerNano);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,485 @@
+package com.sheila.api.application.impl;
+
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.reactivestreams.client.ClientSession;
+import com.sheila.api.application.AsyncRoomService;
+import com.sheila.api.application.ProbeTracker;
+import com.sheila.api.application.RoomDirectory;
+import com.sheila.api.core.dto.Endpoint;
+import com.sheila.api.core.dto.GroupJoinResult;
+import com.sheila.api.core.dto.RoomJoinResult;
+import com.sheila.api.core.exception.AppNotFoundException;
+import com.sheila.api.core.exception.ApplicationCapacityExceededException;
+import com.sheila.api.core.exception.RoomFullException;
+import com.sheila.api.core.model.ApplicationDoc;
+import com.sheila.api.core.model.RoomDoc;
+import com.sheila.api.infrastructure.config.SecondaryReads;
+import com.sheila.api.infrastructure.repository.MemberLayout;
+import com.sheila.api.infrastructure.trace.RequestTrace;
+import com.sheila.api.infrastructure.trace.RequestTrace.Stage;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * JOIN/LEAVE/LIST akışlarının iş kuralları, reaktif driver üzerinde.
+ * - Yeni oda oluştururken application kapasitesi, katılırken oda doluluğu kontrol edilir.
+ * - Client upsert + lastSeen güncellenir (idempotent).
+ * - Transaction yalnızca JOIN/JOIN_MULTI'de (kapasite kontrolü + oda upsert + client upsert) kullanılır;
+ *   LEAVE/TOUCH/EVICT tek belgelik işlemlerdir, transaction'a gerek yoktur.
+ * - RoomDirectory koltuk rezervasyonu transaction sonucuna göre commit/release edilir (iptal dahil).
+ * - LIST yolları SecondaryReads üzerinden secondary'den okur; secondary'de henüz görünmeyen uygulama/oda birincilden
+ *   okunur. Yazının ardından okuyan yollar (LEAVE sonrası kalanlar, JOIN) birincilde kalır.
+ * - İstek izi Reactor Context'te gelir; aşamalar (RESOLVE_APP, ROOM_UPSERT, COUNT, CLIENT_UPSERT, FIND_PEERS, COMMIT)
+ *   request trace'ine yazılır.
+ */
+@Service
+public class ReactiveRoomServiceImpl implements AsyncRoomService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveRoomServiceImpl.class);
+    private static final int JOIN_ANY_ATTEMPTS = 4;
+
+    private final ReactiveMongoTemplate mongo;
+    private final TransactionalOperator tx;
+    private final RoomDirectory directory;
+    private final SecondaryReads reads;
+    private final MemberLayout members;
+    private final SecureRandom random = new SecureRandom();
+
+    @Value("${app.rooms.defaultCapacity:100}")
+    private int defaultRoomCapacity;
+    @Value("${app.rooms.multi.maxRooms:8}")
+    private int maxMultiRooms;
+    @Value("${app.rooms.multi.maxEndpoints:8}")
+    private int maxMultiEndpoints;
+
+    public ReactiveRoomServiceImpl(ReactiveMongoTemplate mongo, TransactionalOperator reactiveTransactionalOperator,
+                                   RoomDirectory directory, SecondaryReads reads, MemberLayout members) {
+        this.mongo = mongo;
+        this.tx = reactiveTransactionalOperator;
+        this.directory = directory;
+        this.reads = reads;
+        this.members = members;
+    }
+
+    @Override
+    public Mono<RoomJoinResult> joinRoom(String appKey, String roomName, String ip, int port, Integer roomCapacity) {
+        return resolveApplicationId(appKey)
+                .flatMap(appId -> joinResolved(appKey, appId, roomName, ip, port, roomCapacity));
+    }
+
+    private Mono<RoomJoinResult> joinResolved(String appKey, String appId, String roomName,
+                                              String ip, int port, Integer roomCapacity) {
+        Endpoint me = new Endpoint(ip, port);
+        JoinAttempt attempt = new JoinAttempt();
+
+        Mono<RoomJoinResult> body = RequestTrace.stage(Stage.ROOM_UPSERT,
+                        checkAppCapacity(appKey, appId, roomName, roomCapacity).then(upsertRoom(appId, roomName, roomCapacity)))
+                .flatMap(room -> {
+                    // Koltuk bellek içi indekste atomik olarak ayrılır: eşzamanlı JOIN'ler odayı taşıramaz
+                    RoomDirectory.RoomEntry entry =
+                            directory.putRoom(room.getId(), room.getApplicationId(), room.getName(), room.getCapacity());
+                    attempt.roomId = room.getId();
+                    attempt.seat = directory.reserve(entry, ProbeTracker.key(ip, port));
+                    if (attempt.seat == RoomDirectory.Seat.FULL) {
+                        return Mono.error(new RoomFullException(roomName));
+                    }
+                    Mono<Void> backstop = attempt.seat == RoomDirectory.Seat.RESERVED
+                            ? RequestTrace.stage(Stage.COUNT, checkRoomCount(room, roomName))
+                            : Mono.empty();
+                    return backstop
+                            .then(RequestTrace.stage(Stage.CLIENT_UPSERT, upsertClient(room.getId(), ip, port)))
+                            .then(findPeers(mongo, room.getId()));
+                })
+                .map(peers -> new RoomJoinResult(attempt.roomId, roomName, peers, me));
+
+        // Koltuk commit'te üyeye dönüşür; hata, rollback veya iptalde serbest kalır
+        return RequestTrace.commit(tx::transactional, body)
+                .doOnSuccess(r -> attempt.committed = true)
+                .doFinally(signal -> {
+                    if (attempt.seat != RoomDirectory.Seat.RESERVED) return;
+                    if (attempt.committed) directory.commitReservation(attempt.roomId, me);
+                    else directory.releaseReservation(attempt.roomId);
+                });
+    }
+
+    /** Application kapasite kuralı sadece YENİ oda için. */
+    private Mono<Void> checkAppCapacity(String appKey, String appId, String roomName, Integer roomCapacity) {
+        return mongo.exists(roomQuery(appId, roomName), RoomDoc.class).flatMap(exists -> {
+            if (exists) {
+                if (roomCapacity != null) {
+                    log.debug("joinRoom: existing room, incoming capacity={} ignored (room={})", roomCapacity, roomName);
+                }
+                return Mono.<Void>empty();
+            }
+            int newRoomCap = normalizeCapacity(roomCapacity);
+            return mongo.findById(appId, ApplicationDoc.class)
+                    .switchIfEmpty(Mono.error(new AppNotFoundException(appId)))
+                    .flatMap(app -> {
+                        Integer appCap = app.getCapacity();
+                        if (appCap == null) return Mono.<Void>empty();
+                        return sumAppRoomsCapacity(appId).flatMap(currentTotal -> {
+                            if (currentTotal + newRoomCap > appCap) {
+                                log.debug("joinRoom: app capacity exceeded (appKey={}, currentTotal={}, newRoomCap={}, appCap={})",
+                                        appKey, currentTotal, newRoomCap, appCap);
+                                return Mono.<Void>error(new ApplicationCapacityExceededException(appKey));
+                            }
+                            return Mono.<Void>empty();
+                        });
+                    });
+        });
+    }
+
+    /** Odayı upsert et (capacity yalnızca ilk oluşturma anında set edilir). */
+    private Mono<RoomDoc> upsertRoom(String appId, String roomName, Integer roomCapacity) {
+        Update roomU = new Update()
+                .setOnInsert("applicationId", appId)
+                .setOnInsert("name", roomName)
+                .setOnInsert("capacity", normalizeCapacity(roomCapacity))
+                .unset("emptySince"); // reaper'ın koşullu silmesi bu JOIN'le yarışamaz
+        return mongo.findAndModify(roomQuery(appId, roomName), roomU,
+                FindAndModifyOptions.options().upsert(true).returnNew(true), RoomDoc.class);
+    }
+
+    /** Yeni koltuk için Mongo'daki üye sayısı son bir kez kontrol edilir. */
+    private Mono<Void> checkRoomCount(RoomDoc room, String roomName) {
+        Integer cap = room.getCapacity();
+        if (cap == null) return Mono.empty();
+        return mongo.count(members.room(room.getId()), members.collection())
+                .flatMap(memberCount -> memberCount >= cap
+                        ? Mono.<Void>error(new RoomFullException(roomName))
+                        : Mono.<Void>empty());
+    }
+
+    /** Client upsert + lastSeen (idempotent). */
+    private Mono<Void> upsertClient(String roomId, String ip, int port) {
+        return mongo.upsert(members.member(roomId, ip, port),
+                members.upsert(roomId, ip, port, new Date()), members.collection()).then();
+    }
+
+    @Override
+    public Mono<List<GroupJoinResult>> joinRooms(String appKey, List<String> roomNames, List<Endpoint> group,
+                                                 Integer roomCapacity) {
+        if (roomNames.isEmpty() || group.isEmpty()) {
+            return Mono.error(new IllegalArgumentException("JOIN_MULTI needs at least one room and endpoint"));
+        }
+        if (roomNames.size() > maxMultiRooms) {
+            return Mono.error(new IllegalArgumentException("too many rooms (max " + maxMultiRooms + ")"));
+        }
+        if (group.size() > maxMultiEndpoints) {
+            return Mono.error(new IllegalArgumentException("too many endpoints (max " + maxMultiEndpoints + ")"));
+        }
+        return resolveApplicationId(appKey)
+                .flatMap(appId -> joinGroupResolved(appKey, appId, roomNames, group, roomCapacity));
+    }
+
+    /**
+     * Tek transaction: yeni odalar için tek kapasite kontrolü, oda upsert'leri, tüm koltuklar, tek aggregate ile
+     * üye sayısı kontrolü, tek bulk üye upsert'ü ve tek sorguyla tüm odaların üyeleri.
+     */
+    private Mono<List<GroupJoinResult>> joinGroupResolved(String appKey, String appId, List<String> roomNames,
+                                                          List<Endpoint> group, Integer roomCapacity) {
+        GroupAttempt attempt = new GroupAttempt();
+
+        Mono<List<GroupJoinResult>> body = RequestTrace.stage(Stage.ROOM_UPSERT,
+                        checkAppCapacity(appKey, appId, roomNames, roomCapacity)
+                                .thenMany(Flux.fromIterable(roomNames).concatMap(name -> upsertRoom(appId, name, roomCapacity)
+                                        // Eksik oda grubu kalan odalara sessizce sokmasın: hepsi ya da hiçbiri
+                                        .switchIfEmpty(Mono.error(() -> new IllegalStateException("room upsert returned nothing: " + name)))))
+                                .collectList())
+                .flatMap(roomDocs -> {
+                    Map<String, Integer> fresh = new HashMap<>(); // roomId → bu istekle ayrılan koltuk
+                    for (RoomDoc room : roomDocs) {
+                        RoomDirectory.RoomEntry entry =
+                                directory.putRoom(room.getId(), room.getApplicationId(), room.getName(), room.getCapacity());
+                        for (Endpoint ep : group) {
+                            RoomDirectory.Seat seat = directory.reserve(entry, ProbeTracker.key(ep.getIp(), ep.getPort()));
+                            if (seat == RoomDirectory.Seat.FULL) return Mono.error(new RoomFullException(room.getName()));
+                            if (seat == RoomDirectory.Seat.RESERVED) {
+                                attempt.reserved.add(new Reservation(room.getId(), ep));
+                                fresh.merge(room.getId(), 1, Integer::sum);
+                            }
+                        }
+                    }
+                    List<String> ids = roomDocs.stream().map(RoomDoc::getId).toList();
+                    return RequestTrace.stage(Stage.COUNT, checkRoomCounts(roomDocs, fresh))
+                            .then(RequestTrace.stage(Stage.CLIENT_UPSERT, upsertGroup(ids, group)))
+                            .then(findPeersByRoom(ids))
+                            .map(peers -> roomDocs.stream()
+                                    .map(r -> new GroupJoinResult(r.getId(), r.getName(),
+                                            peers.getOrDefault(r.getId(), List.of()), group))
+                                    .toList());
+                });
+
+        // Tüm koltuklar birlikte commit'te üyeye dönüşür, hata/rollback/iptalde birlikte serbest kalır
+        return RequestTrace.commit(tx::transactional, body)
+                .doOnSuccess(r -> attempt.committed = true)
+                .doFinally(signal -> {
+                    for (Reservation r : attempt.reserved) {
+                        if (attempt.committed) directory.commitReservation(r.roomId, r.endpoint);
+                        else directory.releaseReservation(r.roomId);
+                    }
+                });
+    }
+
+    /** Application kapasite kuralı: istekteki yeni odaların toplamı birlikte kontrol edilir. */
+    private Mono<Void> checkAppCapacity(String appKey, String appId, List<String> roomNames, Integer roomCapacity) {
+        Query existing = new Query(Criteria.where("applicationId").is(appId).and("name").in(roomNames));
+        existing.fields().include("name");
+        return mongo.find(existing, RoomDoc.class).map(RoomDoc::getName).collect(Collectors.toSet()).flatMap(found -> {
+            long newRooms = roomNames.stream().filter(n -> !found.contains(n)).count();
+            if (newRooms == 0) return Mono.<Void>empty();
+            int newCap = normalizeCapacity(roomCapacity);
+            return mongo.findById(appId, ApplicationDoc.class)
+                    .switchIfEmpty(Mono.error(new AppNotFoundException(appId)))
+                    .flatMap(app -> {
+                        Integer appCap = app.getCapacity();
+                        if (appCap == null) return Mono.<Void>empty();
+                        return sumAppRoomsCapacity(appId).flatMap(currentTotal -> {
+                            if (currentTotal + newRooms * newCap > appCap) {
+                                log.debug("joinRooms: app capacity exceeded (appKey={}, currentTotal={}, newRooms={}, appCap={})",
+                                        appKey, currentTotal, newRooms, appCap);
+                                return Mono.<Void>error(new ApplicationCapacityExceededException(appKey));
+                            }
+                            return Mono.<Void>empty();
+                        });
+                    });
+        });
+    }
+
+    /** Yeni koltuk ayrılan odaların Mongo'daki üye sayıları tek aggregate ile son bir kez kontrol edilir. */
+    private Mono<Void> checkRoomCounts(List<RoomDoc> roomDocs, Map<String, Integer> fresh) {
+        if (fresh.isEmpty()) return Mono.empty();
+        Aggregation agg = Aggregation.newAggregation(
+                Aggregation.match(members.inRooms(fresh.keySet())),
+                Aggregation.group(members.roomIdField()).count().as("n"));
+        return mongo.aggregate(agg, members.collection(), Document.class)
+                .collectMap(d -> String.valueOf(d.get("_id")), d -> ((Number) d.get("n")).intValue())
+                .flatMap(counts -> {
+                    for (RoomDoc room : roomDocs) {
+                        Integer cap = room.getCapacity();
+                        int adding = fresh.getOrDefault(room.getId(), 0);
+                        if (cap != null && adding > 0 && counts.getOrDefault(room.getId(), 0) + adding > cap) {
+                            return Mono.<Void>error(new RoomFullException(room.getName()));
+                        }
+                    }
+                    return Mono.<Void>empty();
+                });
+    }
+
+    /** Grubun tüm odalardaki üyelikleri tek bulk yazımla (idempotent upsert). */
+    private Mono<Void> upsertGroup(List<String> roomIds, List<Endpoint> group) {
+        Date now = new Date();
+        ReactiveBulkOperations bulk = mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, members.collection());
+        for (String roomId : roomIds) {
+            for (Endpoint ep : group) {
+                bulk.upsert(members.member(roomId, ep.getIp(), ep.getPort()),
+                        members.upsert(roomId, ep.getIp(), ep.getPort(), now));
+            }
+        }
+        return bulk.execute().then();
+    }
+
+    /** Verilen odaların üyeleri tek sorguyla, oda id'sine göre gruplanmış. */
+    private Mono<Map<String, List<Endpoint>>> findPeersByRoom(List<String> roomIds) {
+        Query q = members.all();
+        q.addCriteria(members.inRooms(roomIds));
+        return RequestTrace.stage(Stage.FIND_PEERS, mongo.find(q, Document.class, members.collection())
+                .map(members::toMember)
+                .collectMultimap(MemberLayout.Member::getRoomId, MemberLayout.Member::toEndpoint)
+                .map(byRoom -> byRoom.entrySet().stream()
+                        .collect(Collectors.toMap(Map.Entry::getKey, e -> List.copyOf(e.getValue())))));
+    }
+
+    @Override
+    public Mono<RoomJoinResult> joinAnyRoom(String appKey, String prefix, String ip, int port) {
+        return resolveApplicationId(appKey).flatMap(appId -> joinAny(appKey, appId, prefix, ip, port, 0));
+    }
+
+    /** Seçim yarışı kaybedilirse (koltuk başka JOIN'e gitti) bir sonraki en boş odayla tekrar dene. */
+    private Mono<RoomJoinResult> joinAny(String appKey, String appId, String prefix, String ip, int port, int attempt) {
+        if (attempt >= JOIN_ANY_ATTEMPTS) {
+            return Mono.error(new RoomFullException(prefix == null ? "*" : prefix + "*"));
+        }
+        return Mono.defer(() -> {
+            RoomDirectory.RoomEntry best = directory.pickAny(appId, prefix, ProbeTracker.key(ip, port));
+            String roomName = best != null ? best.getName() : newRoomName(prefix);
+            return joinResolved(appKey, appId, roomName, ip, port, null)
+                    .onErrorResume(RoomFullException.class, e -> {
+                        log.debug("joinAnyRoom: lost race for room={} (attempt={})", roomName, attempt + 1);
+                        return joinAny(appKey, appId, prefix, ip, port, attempt + 1);
+                    });
+        });
+    }
+
+    private String newRoomName(String prefix) {
+        String base = (prefix == null || prefix.isBlank()) ? "room" : prefix;
+        return base + "-" + Long.toString(random.nextLong() & Long.MAX_VALUE, 36);
+    }
+
+    @Override
+    public Mono<List<String>> listRoomNames(String appKey) {
+        ReactiveMongoTemplate src = reads.reactive();
+        return resolveApplicationId(src, appKey).flatMap(appId ->
+                src.find(new Query(Criteria.where("applicationId").is(appId)), RoomDoc.class)
+                        .map(RoomDoc::getName)
+                        .collectSortedList(Comparator.naturalOrder()));
+    }
+
+    @Override
+    public Mono<Void> touchClient(String appKey, String roomName, String ip, int port) {
+        return resolveApplicationId(appKey)
+                .flatMap(appId -> mongo.findOne(roomQuery(appId, roomName), RoomDoc.class))
+                .flatMap(room -> mongo.updateFirst(members.member(room.getId(), ip, port),
+                        members.touch(new Date()), members.collection()))
+                .then();
+    }
+
+    @Override
+    public Mono<List<Endpoint>> touchAndListPeers(String appKey, String roomName, String ip, int port) {
+        if (!reads.isEnabled()) {
+            return touchClient(appKey, roomName, ip, port).then(listRoomPeers(appKey, roomName));
+        }
+        // Causal session: lastSeen yazısından sonraki secondary okuması en az o ana kadarki yazıları (önceki JOIN'ler dahil) görür
+        return reads.reactive()
+                .withSession(ClientSessionOptions.builder().causallyConsistent(true).build())
+                .execute(ops -> resolveApplicationId(ops, appKey)
+                        .flatMap(appId -> ops.findOne(roomQuery(appId, roomName), RoomDoc.class)
+                                .switchIfEmpty(Mono.defer(() -> mongo.findOne(roomQuery(appId, roomName), RoomDoc.class))))
+                        .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("Room not found: " + roomName)))
+                        .flatMap(room -> ops.updateFirst(members.member(room.getId(), ip, port),
+                                        members.touch(new Date()), members.collection())
+                                .then(findPeers(ops, room.getId()))), ClientSession::close)
+                .next();
+    }
+
+    @Override
+    public Mono<List<Endpoint>> listRoomPeers(String appKey, String roomName) {
+        return resolveApplicationId(appKey)
+                .flatMap(appId -> mongo.findOne(roomQuery(appId, roomName), RoomDoc.class))
+                .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("Room not found: " + roomName)))
+                .flatMap(room -> findPeers(mongo, room.getId()));
+    }
+
+    private Mono<List<Endpoint>> findPeers(ReactiveMongoOperations src, String roomId) {
+        return RequestTrace.stage(Stage.FIND_PEERS, src.find(members.roomEndpoints(roomId), Document.class, members.collection())
+                .map(d -> members.toMember(d).toEndpoint())
+                .collectList());
+    }
+
+    @Override
+    public Mono<Void> leaveRoom(String appKey, String roomName, String ip, int port) {
+        return resolveApplicationId(appKey)
+                .flatMap(appId -> mongo.findOne(roomQuery(appId, roomName), RoomDoc.class))
+                .flatMap(room -> removeMember(room.getId(), ip, port)); // oda yoksa yapılacak iş yok
+    }
+
+    @Override
+    public Mono<Boolean> touchMember(String roomId, String ip, int port) {
+        return mongo.updateFirst(members.member(roomId, ip, port), members.touch(new Date()), members.collection())
+                .map(r -> r.getMatchedCount() > 0);
+    }
+
+    @Override
+    public Mono<Void> evictClient(String roomId, String ip, int port) {
+        return removeMember(roomId, ip, port);
+    }
+
+    private Mono<Void> removeMember(String roomId, String ip, int port) {
+        return mongo.remove(members.member(roomId, ip, port), members.collection())
+                .doOnSuccess(r -> directory.removeMember(roomId, new Endpoint(ip, port)))
+                .then(markEmptyIfVacant(roomId));
+    }
+
+    /** Oda boşaldıysa emptySince damgası vurulur; RoomReaper silmeden önce üyeliği yeniden doğrular. */
+    private Mono<Void> markEmptyIfVacant(String roomId) {
+        return mongo.exists(members.room(roomId), members.collection())
+                .filter(occupied -> !occupied)
+                .flatMap(vacant -> mongo.updateFirst(
+                        new Query(Criteria.where("id").is(roomId).and("emptySince").exists(false)),
+                        new Update().set("emptySince", new Date()), RoomDoc.class))
+                .then();
+    }
+
+    private int normalizeCapacity(Integer cap) {
+        if (cap == null || cap < 1) return defaultRoomCapacity;
+        return cap;
+    }
+
+    /** Application altındaki odaların kapasite toplamı. */
+    private Mono<Integer> sumAppRoomsCapacity(String appId) {
+        return mongo.find(new Query(Criteria.where("applicationId").is(appId)), RoomDoc.class)
+                .map(r -> r.getCapacity() == null ? defaultRoomCapacity : r.getCapacity())
+                .reduce(0, Integer::sum);
+    }
+
+    /** appKey hem ID hem name olabilir. */
+    private Mono<String> resolveApplicationId(String appKey) {
+        return RequestTrace.stage(Stage.RESOLVE_APP, findApplicationId(mongo, appKey))
+                .switchIfEmpty(Mono.error(() -> new AppNotFoundException(appKey)));
+    }
+
+    /** Önce src'de (secondary olabilir), bulunamazsa birincilde. */
+    private Mono<String> resolveApplicationId(ReactiveMongoOperations src, String appKey) {
+        if (src == mongo) return resolveApplicationId(appKey);
+        return RequestTrace.stage(Stage.RESOLVE_APP, findApplicationId(src, appKey))
+                .switchIfEmpty(Mono.defer(() -> resolveApplicationId(appKey)));
+    }
+
+    private static Mono<String> findApplicationId(ReactiveMongoOperations src, String appKey) {
+        return src.findById(appKey, ApplicationDoc.class)
+                .switchIfEmpty(Mono.defer(() ->
+                        src.findOne(new Query(Criteria.where("name").is(appKey)), ApplicationDoc.class)))
+                .map(ApplicationDoc::getId);
+    }
+
+    private static Query roomQuery(String appId, String roomName) {
+        return new Query(Criteria.where("applicationId").is(appId).and("name").is(roomName));
+    }
+
+    /** Tek JOIN denemesinin koltuk durumu (transaction sonrası commit/release için). */
+    private static final class JoinAttempt {
+        volatile String roomId;
+        volatile RoomDirectory.Seat seat;
+        volatile boolean committed;
+    }
+
+    /** JOIN_MULTI denemesinin ayırdığı koltuklar; hepsi birlikte commit/release edilir. */
+    private static final class GroupAttempt {
+        final List<Reservation> reserved = new ArrayList<>();
+        volatile boolean committed;
+    }
+
+    private static final class Reservation {
+        final String roomId;
+        final Endpoint endpoint;
+
+        Reservation(String roomId, Endpoint endpoint) {
+            this.roomId = roomId;
+            this.endpoint = endpoint;
+        }
+    }
+}
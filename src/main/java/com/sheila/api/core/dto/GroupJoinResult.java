@@ -0,0 +1,22 @@
+package com.sheila.api.core.dto;
+
+import java.util.List;
+
+/** JOIN_MULTI'de tek odanın sonucu: oda id'si ve adı, mevcut katılımcılar (grup dahil) ve gruptaki endpoint'ler. */
+public class GroupJoinResult {
+    private final String roomId;
+    private final String roomName;
+    private final List<Endpoint> participants;
+    private final List<Endpoint> joined; // bu istekle odaya giren grup
+
+    public GroupJoinResult(String roomId, String roomName, List<Endpoint> participants, List<Endpoint> joined) {
+        this.roomId = roomId;
+        this.roomName = roomName;
+        this.participants = participants;
+        this.joined = joined;
+    }
+    public String getRoomId() { return roomId; }
+    public String getRoomName() { return roomName; }
+    public List<Endpoint> getParticipants() { return participants; }
+    public List<Endpoint> getJoined() { return joined; }
+}
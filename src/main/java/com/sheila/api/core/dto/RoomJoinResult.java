@@ -2,17 +2,20 @@ package com.sheila.api.core.dto;
 
 import java.util.List;
 
-/** JOIN işleminin sonucu: oda adı, mevcut katılımcılar ve yeni katılan. */
+/** JOIN işleminin sonucu: oda id'si ve adı, mevcut katılımcılar ve yeni katılan. */
 public class RoomJoinResult {
+    private final String roomId;
     private final String roomName;
     private final List<Endpoint> participants;
     private final Endpoint joined; // yeni katılan
 
-    public RoomJoinResult(String roomName, List<Endpoint> participants, Endpoint joined) {
+    public RoomJoinResult(String roomId, String roomName, List<Endpoint> participants, Endpoint joined) {
+        this.roomId = roomId;
         this.roomName = roomName;
         this.participants = participants;
         this.joined = joined;
     }
+    public String getRoomId() { return roomId; }
     public String getRoomName() { return roomName; }
     public List<Endpoint> getParticipants() { return participants; }
     public Endpoint getJoined() { return joined; }
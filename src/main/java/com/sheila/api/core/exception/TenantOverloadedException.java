@@ -0,0 +1,7 @@
+package com.sheila.api.core.exception;
+
+public class TenantOverloadedException extends RuntimeException {
+    public TenantOverloadedException(String app) {
+        super("Application queue is full: " + app);
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.data.mongodb.core.mapping.Document;
 /**
  * Uygulama (application) meta bilgisi.
  * name alanı benzersizdir.
+ * weight/maxConcurrency: uygulamalar arası adil zamanlama (TenantScheduler); null ise config varsayılanı.
  */
 @Document("applications")
 public class ApplicationDoc {
@@ -21,6 +22,10 @@ public class ApplicationDoc {
 
     private Integer currentUserCount;
 
+    private Integer weight;
+
+    private Integer maxConcurrency;
+
     public ApplicationDoc() { }
 
     public ApplicationDoc(String name, Integer capacity) {
@@ -41,4 +46,10 @@ public class ApplicationDoc {
 
     public Integer getCurrentUserCount() { return currentUserCount; }
     public void setCurrentUserCount(Integer currentUserCount) { this.currentUserCount = currentUserCount; }
+
+    public Integer getWeight() { return weight; }
+    public void setWeight(Integer weight) { this.weight = weight; }
+
+    public Integer getMaxConcurrency() { return maxConcurrency; }
+    public void setMaxConcurrency(Integer maxConcurrency) { this.maxConcurrency = maxConcurrency; }
 }
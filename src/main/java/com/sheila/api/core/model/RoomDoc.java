@@ -5,8 +5,11 @@ import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.util.Date;
+
 /**
  * Oda bilgisi: applicationId + name ikilisi benzersizdir.
+ * emptySince: oda boşaldığı an; JOIN'de kaldırılır. RoomReaper bu alana göre terk edilmiş odaları siler.
  */
 @Document("rooms")
 @CompoundIndex(name = "app_room_unique", def = "{'applicationId': 1, 'name': 1}", unique = true)
@@ -22,6 +25,9 @@ public class RoomDoc {
 
     private Integer capacity;
 
+    @Indexed(name = "empty_since", sparse = true)
+    private Date emptySince;
+
     public RoomDoc() { }
 
     public RoomDoc(String applicationId, String name, Integer capacity) {
@@ -42,4 +48,7 @@ public class RoomDoc {
 
     public Integer getCapacity() { return capacity; }
     public void setCapacity(Integer capacity) { this.capacity = capacity; }
+
+    public Date getEmptySince() { return emptySince; }
+    public void setEmptySince(Date emptySince) { this.emptySince = emptySince; }
 }
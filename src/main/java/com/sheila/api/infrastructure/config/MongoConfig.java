@@ -1,17 +1,34 @@
 package com.sheila.api.infrastructure.config;
 
+import com.sheila.api.infrastructure.trace.MongoCommandTracer;
+import com.sheila.api.infrastructure.trace.TraceContextProvider;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.data.mongodb.MongoDatabaseFactory;
-import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.ReactiveMongoTransactionManager;
 import org.springframework.data.mongodb.config.EnableMongoAuditing;
+import org.springframework.transaction.reactive.TransactionalOperator;
 
 @Configuration
 @EnableMongoAuditing
 public class MongoConfig {
 
+    /** Reaktif servislerin transaction'ları (TransactionalOperator ile). */
     @Bean
-    public MongoTransactionManager transactionManager(MongoDatabaseFactory dbFactory) {
-        return new MongoTransactionManager(dbFactory);
+    public ReactiveMongoTransactionManager reactiveTransactionManager(ReactiveMongoDatabaseFactory dbFactory) {
+        return new ReactiveMongoTransactionManager(dbFactory);
+    }
+
+    @Bean
+    public TransactionalOperator reactiveTransactionalOperator(ReactiveMongoTransactionManager reactiveTransactionManager) {
+        return TransactionalOperator.create(reactiveTransactionManager);
+    }
+
+    /** Komut süreleri UDP istek izlerine (senkron ve reaktif client) ve JFR'a (MongoCommandEvent) yazılır. */
+    @Bean
+    public MongoClientSettingsBuilderCustomizer commandTracing() {
+        return settings -> settings.addCommandListener(new MongoCommandTracer())
+                .contextProvider(new TraceContextProvider());
     }
 }
@@ -1,8 +1,17 @@
 package com.sheila.api.infrastructure.config;
 
+import com.sheila.api.application.ServerClock;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 @Configuration
 @EnableScheduling
-public class SchedulerConfig { }
\ No newline at end of file
+public class SchedulerConfig {
+
+    /** Handler, prober ve oturumların zaman kaynağı; simülatör kendi sanal saatini verir. */
+    @Bean
+    public ServerClock serverClock() {
+        return ServerClock.SYSTEM;
+    }
+}
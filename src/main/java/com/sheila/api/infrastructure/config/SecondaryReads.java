@@ -0,0 +1,94 @@
+package com.sheila.api.infrastructure.config;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.ReadPreference;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.sheila.api.infrastructure.trace.MongoCommandTracer;
+import com.sheila.api.infrastructure.trace.TraceContextProvider;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
+import org.springframework.data.mongodb.core.SimpleReactiveMongoDatabaseFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Salt okunur trafik (LIST, probe taraması) için secondaryPreferred template'ler.
+ * - Ayrı MongoClient'lar: kendi bağlantı havuzu (app.mongo.reads.maxPoolSize), JOIN transaction'larıyla yarışmaz.
+ * - Gecikme sınırı: maxStalenessSeconds (Mongo en az 90 sn kabul eder).
+ * - Converter'lar birincil template'lerden alınır; eşleme kuralları aynıdır.
+ * - Kapalıyken (varsayılan) birincil template'ler döner; çağıranlar farkı bilmek zorunda değildir.
+ * Template'ler bean olarak yayınlanmaz: MongoTemplate tipinde ikinci bir bean Boot'un varsayılan template'ini kapatırdı.
+ */
+@Component
+public class SecondaryReads {
+
+    private static final Logger log = LoggerFactory.getLogger(SecondaryReads.class);
+
+    private final MongoTemplate primary;
+    private final ReactiveMongoTemplate primaryReactive;
+
+    @Value("${app.mongo.reads.enabled:false}") private boolean enabled;
+    @Value("${app.mongo.reads.uri:}") private String uri;
+    @Value("${spring.data.mongodb.uri:mongodb://localhost:27017/sheila}") private String primaryUri;
+    @Value("${app.mongo.reads.maxStalenessSeconds:90}") private long maxStalenessSeconds;
+    @Value("${app.mongo.reads.maxPoolSize:20}") private int maxPoolSize;
+
+    private MongoClient client;
+    private com.mongodb.reactivestreams.client.MongoClient reactiveClient;
+    private MongoTemplate template;
+    private ReactiveMongoTemplate reactive;
+
+    public SecondaryReads(MongoTemplate primary, ReactiveMongoTemplate primaryReactive) {
+        this.primary = primary;
+        this.primaryReactive = primaryReactive;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            template = primary;
+            reactive = primaryReactive;
+            return;
+        }
+        ConnectionString cs = new ConnectionString(uri == null || uri.isBlank() ? primaryUri : uri);
+        MongoClientSettings settings = MongoClientSettings.builder()
+                .applyConnectionString(cs)
+                .readPreference(ReadPreference.secondaryPreferred(Math.max(90, maxStalenessSeconds), TimeUnit.SECONDS))
+                .applyToConnectionPoolSettings(p -> p.maxSize(maxPoolSize))
+                .addCommandListener(new MongoCommandTracer())
+                .contextProvider(new TraceContextProvider())
+                .build();
+        String db = cs.getDatabase() != null ? cs.getDatabase() : primary.getDb().getName();
+
+        client = MongoClients.create(settings);
+        reactiveClient = com.mongodb.reactivestreams.client.MongoClients.create(settings);
+        template = new MongoTemplate(new SimpleMongoClientDatabaseFactory(client, db), primary.getConverter());
+        reactive = new ReactiveMongoTemplate(new SimpleReactiveMongoDatabaseFactory(reactiveClient, db),
+                primaryReactive.getConverter());
+        log.info("[Mongo] secondary reads enabled (db={}, maxStaleness={}s, pool={})",
+                db, Math.max(90, maxStalenessSeconds), maxPoolSize);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (client != null) client.close();
+        if (reactiveClient != null) reactiveClient.close();
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    /** Bloklayan salt okunur sorgular (probe taraması, oda adları). */
+    public MongoTemplate template() { return template; }
+
+    /** Reaktif salt okunur sorgular (UDP LIST). */
+    public ReactiveMongoTemplate reactive() { return reactive; }
+}
@@ -0,0 +1,203 @@
+package com.sheila.api.infrastructure.repository;
+
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.bson.types.MaxKey;
+import org.bson.types.MinKey;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Date;
+import java.util.stream.Stream;
+
+/**
+ * Kompakt şema (clients_v2): { _id: { r: ObjectId(oda), e: BinData(ip baytları + 2 bayt port) }, s: lastSeen }.
+ * - Tek index _id'dir: üye araması eşitlikle, oda taraması _id üzerinde {r, MinKey}..{r, MaxKey} aralığıyla yapılır;
+ *   roomId ve room_ip_port_unique index'lerine gerek kalmaz. Ek olarak yalnızca s üzerinde TTL index vardır.
+ * - IPv4 üye _id'si ObjectId (12 bayt) + 6 bayt; string roomId/ip/port ve Date'e göre belge ve index boyutu birkaç kat küçülür.
+ * - Açılışta (app.members.migrate, varsayılan kapalı) clients koleksiyonu batch'ler halinde buraya bir kez kopyalanır;
+ *   bitince migrations koleksiyonuna işaret belgesi yazılır ve sonraki açılışlar kopyalamaz (aksi halde clients'ta
+ *   kalan, v2'de çoktan ayrılmış/düşürülmüş üyeler her açılışta geri gelirdi). Eski koleksiyon geri dönüş için silinmez;
+ *   yeniden taşımak için işaret belgesi silinir.
+ */
+@Component
+@ConditionalOnProperty(name = "app.members.layout", havingValue = "compact")
+public class CompactMemberLayout implements MemberLayout {
+
+    private static final Logger log = LoggerFactory.getLogger(CompactMemberLayout.class);
+
+    private static final String COLLECTION = "clients_v2";
+    private static final String LEGACY_COLLECTION = "clients";
+    private static final String MIGRATIONS = "migrations";
+    private static final String MIGRATION_ID = "clients_to_clients_v2";
+
+    private final MongoTemplate mongo;
+
+    @Value("${app.members.migrate:false}") private boolean migrate;
+    @Value("${app.members.migrateBatch:1000}") private int migrateBatch;
+
+    public CompactMemberLayout(MongoTemplate mongo) {
+        this.mongo = mongo;
+    }
+
+    /** RoomDirectory açılış yüklemesinden önce çalışır (layout ona enjekte edilir). */
+    @PostConstruct
+    public void prepare() {
+        mongo.indexOps(COLLECTION).createIndex(new Index().on("s", Sort.Direction.ASC)
+                .named("s_ttl").expire(Duration.ofHours(24)));
+        if (!migrate || !mongo.collectionExists(LEGACY_COLLECTION)) return;
+        if (mongo.exists(Query.query(Criteria.where("_id").is(MIGRATION_ID)), MIGRATIONS)) {
+            log.info("[Members] {} already migrated to {}; skipping", LEGACY_COLLECTION, COLLECTION);
+            return;
+        }
+        long copied = migrateLegacy();
+        mongo.upsert(Query.query(Criteria.where("_id").is(MIGRATION_ID)),
+                new Update().set("copied", copied).set("completedAt", new Date()), MIGRATIONS);
+    }
+
+    /**
+     * clients → clients_v2; s alanı $max ile yazıldığından yarıda kalıp tekrar çalışması (işaret yazılmadan önce
+     * çöken açılış, aynı anda açılan iki düğüm) yeni kayıtları geri almaz. Kopyalanan belge sayısını döner.
+     */
+    private long migrateLegacy() {
+        Query q = new Query().with(Sort.by("_id"));
+        q.fields().include("roomId", "ip", "port", "lastSeen");
+        long copied = 0;
+        BulkOperations bulk = null;
+        int pending = 0;
+        try (Stream<Document> legacy = mongo.stream(q, Document.class, LEGACY_COLLECTION)) {
+            for (Document d : (Iterable<Document>) legacy::iterator) {
+                Object port = d.get("port");
+                if (d.getString("roomId") == null || d.getString("ip") == null || !(port instanceof Number)) continue;
+                Date seen = d.getDate("lastSeen") != null ? d.getDate("lastSeen") : new Date();
+                if (bulk == null) bulk = mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, COLLECTION);
+                bulk.upsert(member(d.getString("roomId"), d.getString("ip"), ((Number) port).intValue()),
+                        new Update().max("s", seen));
+                if (++pending == migrateBatch) {
+                    bulk.execute();
+                    copied += pending;
+                    bulk = null;
+                    pending = 0;
+                }
+            }
+        }
+        if (bulk != null) {
+            bulk.execute();
+            copied += pending;
+        }
+        log.info("[Members] migrated {} member(s) from {} to {}", copied, LEGACY_COLLECTION, COLLECTION);
+        return copied;
+    }
+
+    @Override
+    public String collection() { return COLLECTION; }
+
+    @Override
+    public Query member(String roomId, String ip, int port) {
+        return new Query(Criteria.where("_id").is(id(roomRef(roomId), packEndpoint(ip, port))));
+    }
+
+    @Override
+    public Query room(String roomId) {
+        return new Query(roomRange(roomId));
+    }
+
+    @Override
+    public Query roomEndpoints(String roomId) {
+        Query q = room(roomId);
+        q.fields().include("_id");
+        return q;
+    }
+
+    @Override
+    public Query all() {
+        Query q = new Query();
+        q.fields().include("_id");
+        return q;
+    }
+
+    @Override
+    public Update upsert(String roomId, String ip, int port, Date now) {
+        return new Update().set("s", now); // _id sorgudan gelir
+    }
+
+    @Override
+    public Update touch(Date now) {
+        return new Update().set("s", now);
+    }
+
+    @Override
+    public Member toMember(Document d) {
+        Document id = (Document) d.get("_id");
+        Object r = id.get("r");
+        byte[] e = ((Binary) id.get("e")).getData();
+        String roomId = r instanceof ObjectId oid ? oid.toHexString() : String.valueOf(r);
+        return unpackEndpoint(roomId, e);
+    }
+
+    /** Odalar başına _id aralıkları; r üzerinde ayrı index olmadan index'i kullanır. */
+    @Override
+    public Criteria inRooms(Collection<String> roomIds) {
+        return new Criteria().orOperator(roomIds.stream().map(CompactMemberLayout::roomRange).toArray(Criteria[]::new));
+    }
+
+    @Override
+    public String roomIdField() { return "_id.r"; }
+
+    private static Criteria roomRange(String roomId) {
+        Object r = roomRef(roomId);
+        return Criteria.where("_id").gte(id(r, new MinKey())).lte(id(r, new MaxKey()));
+    }
+
+    /** Alan sırası önemlidir: gömülü belge karşılaştırması r, sonra e. */
+    private static Document id(Object room, Object endpoint) {
+        return new Document("r", room).append("e", endpoint);
+    }
+
+    /** RoomDoc id'leri ObjectId'dir; dışarıdan verilmiş string id'ler olduğu gibi saklanır. */
+    private static Object roomRef(String roomId) {
+        return ObjectId.isValid(roomId) ? new ObjectId(roomId) : roomId;
+    }
+
+    private static Binary packEndpoint(String ip, int port) {
+        byte[] addr;
+        try {
+            int scope = ip.indexOf('%');
+            addr = InetAddress.getByName(scope < 0 ? ip : ip.substring(0, scope)).getAddress(); // literal; DNS'e gitmez
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("invalid ip: " + ip);
+        }
+        byte[] packed = new byte[addr.length + 2];
+        System.arraycopy(addr, 0, packed, 0, addr.length);
+        packed[addr.length] = (byte) (port >>> 8);
+        packed[addr.length + 1] = (byte) port;
+        return new Binary(packed);
+    }
+
+    private static Member unpackEndpoint(String roomId, byte[] e) {
+        byte[] addr = new byte[e.length - 2];
+        System.arraycopy(e, 0, addr, 0, addr.length);
+        int port = ((e[addr.length] & 0xff) << 8) | (e[addr.length + 1] & 0xff);
+        try {
+            return new Member(roomId, InetAddress.getByAddress(addr).getHostAddress(), port);
+        } catch (UnknownHostException ex) {
+            throw new IllegalStateException("corrupt endpoint in " + COLLECTION, ex);
+        }
+    }
+}
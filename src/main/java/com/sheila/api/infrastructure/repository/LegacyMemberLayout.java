@@ -0,0 +1,73 @@
+package com.sheila.api.infrastructure.repository;
+
+import org.bson.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Date;
+
+/** Mevcut şema (ClientDoc): string roomId/ip, port, lastSeen; roomId, room_ip_port_unique ve TTL index'leri. */
+@Component
+@ConditionalOnProperty(name = "app.members.layout", havingValue = "legacy", matchIfMissing = true)
+public class LegacyMemberLayout implements MemberLayout {
+
+    private static final String COLLECTION = "clients"; // ClientDoc'un @Document adı
+
+    @Override
+    public String collection() { return COLLECTION; }
+
+    @Override
+    public Query member(String roomId, String ip, int port) {
+        return new Query(Criteria.where("roomId").is(roomId).and("ip").is(ip).and("port").is(port));
+    }
+
+    @Override
+    public Query room(String roomId) {
+        return new Query(Criteria.where("roomId").is(roomId));
+    }
+
+    @Override
+    public Query roomEndpoints(String roomId) {
+        Query q = room(roomId);
+        q.fields().include("ip", "port").exclude("_id");
+        return q;
+    }
+
+    @Override
+    public Query all() {
+        Query q = new Query();
+        q.fields().include("roomId", "ip", "port").exclude("_id");
+        return q;
+    }
+
+    @Override
+    public Update upsert(String roomId, String ip, int port, Date now) {
+        return new Update()
+                .set("roomId", roomId)
+                .set("ip", ip)
+                .set("port", port)
+                .set("lastSeen", now);
+    }
+
+    @Override
+    public Update touch(Date now) {
+        return new Update().set("lastSeen", now);
+    }
+
+    @Override
+    public Member toMember(Document d) {
+        return new Member(d.getString("roomId"), d.getString("ip"), ((Number) d.get("port")).intValue());
+    }
+
+    @Override
+    public Criteria inRooms(Collection<String> roomIds) {
+        return Criteria.where("roomId").in(roomIds);
+    }
+
+    @Override
+    public String roomIdField() { return "roomId"; }
+}
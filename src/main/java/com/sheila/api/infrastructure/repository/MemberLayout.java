@@ -0,0 +1,64 @@
+package com.sheila.api.infrastructure.repository;
+
+import com.sheila.api.core.dto.Endpoint;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * Oda üyeliklerinin saklama şeması (app.members.layout): legacy (clients, ClientDoc) veya compact (clients_v2).
+ * Layout yalnızca koleksiyon adını, sorgu/güncellemeleri ve belge → Member eşlemesini üretir; sorguyu çalıştıran
+ * template çağırandadır (birincil, secondary, transaction ya da causal session). Okuma sorguları yalnızca
+ * gereken alanları projekte eder.
+ */
+public interface MemberLayout {
+
+    String collection();
+
+    /** Tek üye (oda + endpoint); upsert/touch/remove için. */
+    Query member(String roomId, String ip, int port);
+
+    /** Odadaki tüm üyeler (count/remove); projeksiyonsuz. */
+    Query room(String roomId);
+
+    /** Odadaki üyelerin yalnızca endpoint alanları. */
+    Query roomEndpoints(String roomId);
+
+    /** Tüm üyeler, yalnızca oda + endpoint alanları (açılış yüklemesi, probe taraması). */
+    Query all();
+
+    /** JOIN upsert'ü: üye yoksa oluşturur, lastSeen'i tazeler. */
+    Update upsert(String roomId, String ip, int port, Date now);
+
+    Update touch(Date now);
+
+    /** roomEndpoints/all sonuçlarını çözer. */
+    Member toMember(Document d);
+
+    /** Aggregate için: verilen odaların üyeleri ve gruplama alanı. */
+    Criteria inRooms(Collection<String> roomIds);
+
+    String roomIdField();
+
+    /** Bir oda üyeliği: oda id'si + endpoint. */
+    final class Member {
+        private final String roomId;
+        private final String ip;
+        private final int port;
+
+        public Member(String roomId, String ip, int port) {
+            this.roomId = roomId;
+            this.ip = ip;
+            this.port = port;
+        }
+
+        public String getRoomId() { return roomId; }
+        public String getIp() { return ip; }
+        public int getPort() { return port; }
+        public Endpoint toEndpoint() { return new Endpoint(ip, port); }
+    }
+}
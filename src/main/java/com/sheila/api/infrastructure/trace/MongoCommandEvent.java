@@ -0,0 +1,20 @@
+package com.sheila.api.infrastructure.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** JFR: tek Mongo komutu (find/getMore batch'i, update, delete, commitTransaction...). */
+@Name("sheila.MongoCommand")
+@Label("Mongo Command")
+@Category({"Sheila", "Mongo"})
+@Description("One MongoDB command round trip as seen by the driver")
+final class MongoCommandEvent extends jdk.jfr.Event {
+
+    @Label("Command") String command;
+    @Label("Database") String database;
+    @Label("Collection") String collection;
+    @Label("Documents") int documents;
+    @Label("Succeeded") boolean succeeded;
+}
@@ -0,0 +1,75 @@
+package com.sheila.api.infrastructure.trace;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Driver komut dinleyicisi.
+ * - Her komut (cursor'ların her getMore batch'i dahil) için JFR MongoCommandEvent; yalnızca JFR kaydı açıkken.
+ * - Komut süresi komutun ait olduğu RequestTrace'e eklenir: TraceContextProvider istek izini komutun
+ *   RequestContext'ine koyar (senkron driver'da çağıran thread'den, reaktif driver'da Reactor Context'ten).
+ */
+public class MongoCommandTracer implements CommandListener {
+
+    private final Map<Integer, MongoCommandEvent> inflight = new ConcurrentHashMap<>();
+
+    @Override
+    public void commandStarted(CommandStartedEvent e) {
+        MongoCommandEvent event = new MongoCommandEvent();
+        if (!event.isEnabled()) return;
+        event.command = e.getCommandName();
+        event.database = e.getDatabaseName();
+        event.collection = collectionOf(e.getCommandName(), e.getCommand());
+        event.begin();
+        inflight.put(e.getRequestId(), event);
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent e) {
+        RequestTrace.mongo(TraceContextProvider.traceOf(e.getRequestContext()), e.getElapsedTime(TimeUnit.NANOSECONDS));
+        MongoCommandEvent event = inflight.remove(e.getRequestId());
+        if (event == null) return;
+        event.end();
+        if (event.shouldCommit()) {
+            event.documents = documentsOf(e.getResponse());
+            event.succeeded = true;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent e) {
+        RequestTrace.mongo(TraceContextProvider.traceOf(e.getRequestContext()), e.getElapsedTime(TimeUnit.NANOSECONDS));
+        MongoCommandEvent event = inflight.remove(e.getRequestId());
+        if (event == null) return;
+        event.end();
+        if (event.shouldCommit()) event.commit();
+    }
+
+    /** find/update/delete... komutun ilk alanında, getMore "collection" alanında taşır. */
+    private static String collectionOf(String commandName, BsonDocument command) {
+        BsonValue v = "getMore".equals(commandName) ? command.get("collection") : command.get(commandName);
+        return v != null && v.isString() ? v.asString().getValue() : null;
+    }
+
+    /** Cursor yanıtında batch boyutu, yazma komutlarında etkilenen belge sayısı (n). */
+    private static int documentsOf(BsonDocument response) {
+        if (response == null) return 0;
+        BsonValue cursor = response.get("cursor");
+        if (cursor != null && cursor.isDocument()) {
+            BsonDocument c = cursor.asDocument();
+            BsonValue batch = c.containsKey("firstBatch") ? c.get("firstBatch") : c.get("nextBatch");
+            return batch != null && batch.isArray() ? batch.asArray().size() : 0;
+        }
+        BsonValue n = response.get("n");
+        return n != null && n.isNumber() ? n.asNumber().intValue() : 0;
+    }
+}
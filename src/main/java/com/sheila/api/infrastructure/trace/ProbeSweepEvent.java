@@ -0,0 +1,29 @@
+package com.sheila.api.infrastructure.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** JFR: ServerProber'ın bir tur taraması. Tur başında begin(), sonunda record() çağrılır. */
+@Name("sheila.ProbeSweep")
+@Label("Probe Sweep")
+@Category({"Sheila", "Probe"})
+@Description("One ServerProber sweep over all registered clients")
+public final class ProbeSweepEvent extends jdk.jfr.Event {
+
+    @Label("Clients") int clients;
+    @Label("Probes Sent") int probes;
+    @Label("Skipped") @Description("Clients heard from within their interval; no probe sent") int skipped;
+    @Label("Dropped") int dropped;
+
+    public void record(int clients, int probes, int skipped, int dropped) {
+        end();
+        if (!shouldCommit()) return;
+        this.clients = clients;
+        this.probes = probes;
+        this.skipped = skipped;
+        this.dropped = dropped;
+        commit();
+    }
+}
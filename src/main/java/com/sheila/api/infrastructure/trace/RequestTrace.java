@@ -0,0 +1,148 @@
+package com.sheila.api.infrastructure.trace;
+
+import com.sheila.api.application.ServerClock;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Tek bir UDP isteğinin alımdan son flush'a kadar aşama aşama süreleri.
+ * - Handler isteği işlerken trace thread'e bağlıdır; servis katmanı static start()/stage() ile süre ekler.
+ * - Reaktif storage zincirinde trace thread yerine Reactor Context'te taşınır (context()); servis katmanı
+ *   stage(Stage, Mono)/commit() ile ölçer, Mongo komutları TraceContextProvider üzerinden isteğe yazılır.
+ * - Trace yoksa (kapalı veya handler dışı thread) start() 0 döner ve stage() hiçbir şey yapmaz.
+ * - Tüm zamanlar alınma anıyla aynı ServerClock'tan okunur (simülatörde sanal saat).
+ */
+public final class RequestTrace {
+
+    /** Ölçülen aşamalar; aynı aşama bir istekte birden çok kez geçerse süreler toplanır. */
+    public enum Stage {
+        PARSE, RESOLVE_APP, ROOM_UPSERT, COUNT, CLIENT_UPSERT, FIND_PEERS, COMMIT, STORAGE, FANOUT, FLUSH;
+
+        private final String tag = name().toLowerCase();
+
+        public String tag() { return tag; }
+    }
+
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+    private static final Stage[] STAGES = Stage.values();
+
+    final UdpRequestEvent event = new UdpRequestEvent();
+    final ServerClock clock;
+    final long receivedNanos;
+    final long receivedAtMillis;
+    final long[] stages = new long[STAGES.length];
+    String sender;
+    String command;
+    String app;
+    String outcome;
+    int mongoCommands;
+    long mongoNanos;
+    long totalNanos;
+
+    RequestTrace(long receivedNanos, ServerClock clock) {
+        this.clock = clock;
+        this.receivedNanos = receivedNanos;
+        this.receivedAtMillis = System.currentTimeMillis();
+        event.begin();
+    }
+
+    /** Trace bu thread'e bağlıysa şimdiki zamanı, değilse 0 döner. */
+    public static long start() {
+        RequestTrace t = CURRENT.get();
+        return t != null ? t.clock.nanoTime() : 0L;
+    }
+
+    /** start() ile alınan andan bu yana geçen süreyi aşamaya ekler. */
+    public static void stage(Stage stage, long startNanos) {
+        if (startNanos == 0L) return;
+        RequestTrace t = CURRENT.get();
+        if (t != null) t.stages[stage.ordinal()] += t.clock.nanoTime() - startNanos;
+    }
+
+    /** Reaktif zincire (handler'ın abone olduğu Mono'ya) trace'i taşıyan context. */
+    public static Context context(RequestTrace t) {
+        return Context.of(RequestTrace.class, t);
+    }
+
+    /** Reaktif aşama: abonelikten sonlanmaya kadar geçen süre, context'teki trace'in aşamasına eklenir. */
+    public static <T> Mono<T> stage(Stage stage, Mono<T> work) {
+        return Mono.deferContextual(ctx -> {
+            RequestTrace t = ctx.getOrDefault(RequestTrace.class, null);
+            if (t == null) return work;
+            long start = t.clock.nanoTime();
+            return work.doFinally(s -> t.stages[stage.ordinal()] += t.clock.nanoTime() - start);
+        });
+    }
+
+    /** Reaktif transaction: gövdenin bitişinden transaction'ın tamamlanmasına kadar geçen süre COMMIT aşamasına. */
+    public static <T> Mono<T> commit(Function<Mono<T>, Mono<T>> transactional, Mono<T> body) {
+        return Mono.deferContextual(ctx -> {
+            RequestTrace t = ctx.getOrDefault(RequestTrace.class, null);
+            if (t == null) return transactional.apply(body);
+            long[] bodyDone = new long[1];
+            return transactional.apply(body.doOnSuccess(v -> bodyDone[0] = t.clock.nanoTime()))
+                    .doFinally(s -> {
+                        if (bodyDone[0] != 0L) t.stages[Stage.COMMIT.ordinal()] += t.clock.nanoTime() - bodyDone[0];
+                    });
+        });
+    }
+
+    /** Bu thread'e bağlı trace (senkron driver komutları için); yoksa null. */
+    static RequestTrace current() { return CURRENT.get(); }
+
+    /** Mongo komut dinleyicisi: komutun ait olduğu isteğe (varsa) süresi yazılır. */
+    static void mongo(RequestTrace t, long elapsedNanos) {
+        if (t == null) return;
+        t.mongoCommands++;
+        t.mongoNanos += elapsedNanos;
+    }
+
+    static void attach(RequestTrace t) { CURRENT.set(t); }
+
+    static void detach() { CURRENT.remove(); }
+
+    public void sender(String sender) { this.sender = sender; }
+
+    public void command(String command, String app) {
+        this.command = command;
+        this.app = app;
+    }
+
+    /** İlk yanıtın türü (ROOM, OK, ERR|ROOM_FULL...) sonucu belirler. */
+    public void outcome(String outcome) {
+        if (this.outcome == null) this.outcome = outcome;
+    }
+
+    /** Handler içinde, trace'in kendisi elde iken. */
+    public void add(Stage stage, long startNanos) {
+        stages[stage.ordinal()] += clock.nanoTime() - startNanos;
+    }
+
+    public long stageNanos(Stage stage) { return stages[stage.ordinal()]; }
+
+    public long getTotalNanos() { return totalNanos; }
+
+    Map<String, Object> toMap() {
+        Map<String, Object> stagesMicros = new LinkedHashMap<>();
+        for (Stage s : STAGES) {
+            long n = stages[s.ordinal()];
+            if (n > 0) stagesMicros.put(s.tag(), n / 1_000);
+        }
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("receivedAt", Instant.ofEpochMilli(receivedAtMillis).toString());
+        m.put("command", command);
+        m.put("app", app);
+        m.put("sender", sender);
+        m.put("outcome", outcome);
+        m.put("totalMicros", totalNanos / 1_000);
+        m.put("stagesMicros", stagesMicros);
+        m.put("mongoCommands", mongoCommands);
+        m.put("mongoMicros", mongoNanos / 1_000);
+        return m;
+    }
+}
@@ -0,0 +1,108 @@
+package com.sheila.api.infrastructure.trace;
+
+import com.sheila.api.application.ServerClock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * UDP istek izlerinin yaşam döngüsü ve en yavaş N isteğin bellek içi kaydı.
+ * - begin(): trace'i handler thread'ine bağlar; kapalıysa null döner (istek başına yalnızca bir ThreadLocal okuması kalır).
+ * - complete(): flush bittikten sonra toplam süre hesaplanır, JFR event'i yazılır, yavaşsa kayda girer.
+ *   Alınma, aşama ve flush zamanlarının hepsi aynı ServerClock'tandır (handler'ınkiyle aynı bean).
+ * - Kayıt min-heap'tir; doluysa en hızlıdan hızlı istekler kilide girmeden elenir.
+ */
+@Component
+public class RequestTracer {
+
+    private final PriorityQueue<RequestTrace> slowest =
+            new PriorityQueue<>(Comparator.comparingLong(RequestTrace::getTotalNanos));
+    private final ServerClock clock;
+    private volatile long floorNanos;
+
+    @Value("${app.trace.enabled:true}") private boolean enabled;
+    @Value("${app.trace.slowest:50}") private int capacity;
+
+    public RequestTracer(ServerClock clock) {
+        this.clock = clock;
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    /** receivedNanos: datagram'ın alındığı an (ServerClock). */
+    public RequestTrace begin(long receivedNanos) {
+        if (!enabled) return null;
+        RequestTrace t = new RequestTrace(receivedNanos, clock);
+        RequestTrace.attach(t);
+        return t;
+    }
+
+    /** İstek işlendi; yanıtları henüz flush edilmedi. Trace thread'den ayrılır. */
+    public void suspend() {
+        RequestTrace.detach();
+    }
+
+    /** İsteğin yanıtlarını taşıyan flush [flushStart, flushEnd] aralığında yapıldı (ServerClock). */
+    public void complete(RequestTrace t, long flushStartNanos, long flushEndNanos) {
+        t.stages[RequestTrace.Stage.FLUSH.ordinal()] = flushEndNanos - flushStartNanos;
+        t.totalNanos = flushEndNanos - t.receivedNanos;
+        commitEvent(t);
+        offer(t);
+    }
+
+    private static void commitEvent(RequestTrace t) {
+        UdpRequestEvent e = t.event;
+        e.end();
+        if (!e.shouldCommit()) return;
+        e.command = t.command;
+        e.app = t.app;
+        e.sender = t.sender;
+        e.outcome = t.outcome;
+        e.parse = t.stageNanos(RequestTrace.Stage.PARSE);
+        e.resolveApp = t.stageNanos(RequestTrace.Stage.RESOLVE_APP);
+        e.roomUpsert = t.stageNanos(RequestTrace.Stage.ROOM_UPSERT);
+        e.count = t.stageNanos(RequestTrace.Stage.COUNT);
+        e.clientUpsert = t.stageNanos(RequestTrace.Stage.CLIENT_UPSERT);
+        e.findPeers = t.stageNanos(RequestTrace.Stage.FIND_PEERS);
+        e.commit = t.stageNanos(RequestTrace.Stage.COMMIT);
+        e.storage = t.stageNanos(RequestTrace.Stage.STORAGE);
+        e.fanout = t.stageNanos(RequestTrace.Stage.FANOUT);
+        e.flush = t.stageNanos(RequestTrace.Stage.FLUSH);
+        e.mongoCommands = t.mongoCommands;
+        e.mongo = t.mongoNanos;
+        e.commit();
+    }
+
+    private void offer(RequestTrace t) {
+        if (capacity <= 0 || t.totalNanos <= floorNanos) return;
+        synchronized (slowest) {
+            slowest.add(t);
+            if (slowest.size() > capacity) slowest.poll();
+            if (slowest.size() >= capacity) floorNanos = slowest.peek().totalNanos;
+        }
+    }
+
+    /** En yavaştan hızlıya. */
+    public List<Map<String, Object>> slowest() {
+        List<RequestTrace> copy;
+        synchronized (slowest) {
+            copy = new ArrayList<>(slowest);
+        }
+        copy.sort(Comparator.comparingLong(RequestTrace::getTotalNanos).reversed());
+        List<Map<String, Object>> out = new ArrayList<>(copy.size());
+        for (RequestTrace t : copy) out.add(t.toMap());
+        return out;
+    }
+
+    public void reset() {
+        synchronized (slowest) {
+            slowest.clear();
+            floorNanos = 0;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.sheila.api.infrastructure.trace;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * GET /actuator/slowrequests → en yavaş N UDP isteği ve aşama süreleri (mikrosaniye).
+ * DELETE /actuator/slowrequests → kaydı sıfırlar.
+ */
+@Component
+@Endpoint(id = "slowrequests")
+public class SlowRequestsEndpoint {
+
+    private final RequestTracer tracer;
+
+    public SlowRequestsEndpoint(RequestTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @ReadOperation
+    public Map<String, Object> slowest() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("enabled", tracer.isEnabled());
+        body.put("requests", tracer.slowest());
+        return body;
+    }
+
+    @DeleteOperation
+    public void reset() {
+        tracer.reset();
+    }
+}
@@ -0,0 +1,56 @@
+package com.sheila.api.infrastructure.trace;
+
+import com.mongodb.RequestContext;
+import com.mongodb.client.SynchronousContextProvider;
+import com.mongodb.reactivestreams.client.ReactiveContextProvider;
+import org.reactivestreams.Subscriber;
+import reactor.core.CoreSubscriber;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Driver komutlarına istek izini taşır; MongoCommandTracer süreyi bu izden isteğe yazar.
+ * - Senkron driver: komutu çalıştıran thread'e bağlı trace.
+ * - Reaktif driver: abone olan zincirin Reactor Context'indeki trace (dinleyici driver thread'inde çalışır).
+ * İki arayüzü birden uygular; aynı MongoClientSettings hem senkron hem reaktif client'a verilebilir.
+ * İz yoksa null döner (driver kendi boş context'ini kullanır).
+ */
+public class TraceContextProvider implements SynchronousContextProvider, ReactiveContextProvider {
+
+    @Override
+    public RequestContext getContext() {
+        RequestTrace t = RequestTrace.current();
+        return t == null ? null : new TraceContext(t);
+    }
+
+    @Override
+    public RequestContext getContext(Subscriber<?> subscriber) {
+        if (!(subscriber instanceof CoreSubscriber<?> s)) return null;
+        RequestTrace t = s.currentContext().getOrDefault(RequestTrace.class, null);
+        return t == null ? null : new TraceContext(t);
+    }
+
+    /** Komut olayının context'indeki trace; yoksa null. */
+    static RequestTrace traceOf(RequestContext ctx) {
+        return ctx != null && ctx.hasKey(RequestTrace.class) ? ctx.get(RequestTrace.class) : null;
+    }
+
+    private static final class TraceContext implements RequestContext {
+        private final Map<Object, Object> values = new HashMap<>(2);
+
+        TraceContext(RequestTrace t) { values.put(RequestTrace.class, t); }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T get(Object key) { return (T) values.get(key); }
+
+        @Override public boolean hasKey(Object key) { return values.containsKey(key); }
+        @Override public boolean isEmpty() { return values.isEmpty(); }
+        @Override public void put(Object key, Object value) { values.put(key, value); }
+        @Override public void delete(Object key) { values.remove(key); }
+        @Override public int size() { return values.size(); }
+        @Override public Stream<Map.Entry<Object, Object>> stream() { return values.entrySet().stream(); }
+    }
+}
@@ -0,0 +1,34 @@
+package com.sheila.api.infrastructure.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/** JFR: tek UDP isteği; süre alımdan isteğin yanıtlarını taşıyan flush'ın bitişine kadardır. */
+@Name("sheila.UdpRequest")
+@Label("UDP Request")
+@Category({"Sheila", "UDP"})
+@Description("One UDP request with per-stage timings, from receive to the flush that carried its replies")
+final class UdpRequestEvent extends jdk.jfr.Event {
+
+    @Label("Command") String command;
+    @Label("Application") String app;
+    @Label("Sender") String sender;
+    @Label("Outcome") String outcome;
+
+    @Label("Parse") @Timespan long parse;
+    @Label("Resolve Application") @Timespan long resolveApp;
+    @Label("Room Upsert") @Timespan long roomUpsert;
+    @Label("Member Count") @Timespan long count;
+    @Label("Client Upsert") @Timespan long clientUpsert;
+    @Label("Find Peers") @Timespan long findPeers;
+    @Label("Commit") @Timespan long commit;
+    @Label("Storage Total") @Timespan long storage;
+    @Label("Fan-out") @Timespan long fanout;
+    @Label("Flush") @Timespan long flush;
+
+    @Label("Mongo Commands") int mongoCommands;
+    @Label("Mongo Time") @Timespan long mongo;
+}
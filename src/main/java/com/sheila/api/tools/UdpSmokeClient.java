@@ -6,12 +6,15 @@ import java.net.*;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Basit UDP smoke test client:
  * - Açılışta JOIN|<appName>|<roomName>|[capacity] gönderir.
- * - Sunucudan gelen SRV_PING'e PONG|<appName>|<roomName> ile yanıt verir.
+ * - Sunucudan gelen SRV_PING'e PONG|<appName>|<roomName>|seq=..|ts=.. (yankı) ile yanıt verir.
+ * - NEW_CLIENT / CLIENT_LEFT olaylarını ACK|<kümülatif>|[seçici]|room=<oda> ile onaylar.
  * - Konsoldan LIST/LEAVE/QUIT komutlarını alır.
  *
  * Varsayılanlar:
@@ -82,6 +85,8 @@ public class UdpSmokeClient {
                                     String appName, String roomName, AtomicBoolean running) {
         byte[] buf = new byte[2048];
         DatagramPacket pkt = new DatagramPacket(buf, buf.length);
+        long cumulative = 0;                     // art arda alınmış son olay
+        TreeSet<Long> outOfOrder = new TreeSet<>(); // boşluktan sonra gelenler
 
         while (running.get()) {
             try {
@@ -91,22 +96,47 @@ public class UdpSmokeClient {
                 String s = new String(pkt.getData(), pkt.getOffset(), pkt.getLength(), StandardCharsets.UTF_8).trim();
                 System.out.println("[server] " + s);
 
-                // SRV_PING|<appName>|<roomName>
+                // SRV_PING|<appName>|<roomName>[|seq=<n>|ts=<µs>]: alanlar aynen yansıtılır (RTT ölçümü)
                 if (s.startsWith("SRV_PING|")) {
                     List<String> parts = Arrays.asList(s.split("\\|"));
                     if (parts.size() >= 3) {
-                        String aName = parts.get(1).trim();
-                        String rName = parts.get(2).trim();
-                        String pong = "PONG|" + aName + "|" + rName;
+                        String pong = "PONG|" + s.substring("SRV_PING|".length());
                         send(sock, server, pong);
                     }
                 }
+
+                // ROOM / RESYNC: snapshot → beklenen seq sıfırlanır
+                if (s.startsWith("ROOM|") || s.startsWith("RESYNC|")) {
+                    Long seq = seqOf(s);
+                    if (seq != null) {
+                        cumulative = seq;
+                        outOfOrder.clear();
+                    }
+                }
+
+                // NEW_CLIENT|ip:port|seq=N|room=<oda> / CLIENT_LEFT|ip:port|seq=N|room=<oda>
+                if (s.startsWith("NEW_CLIENT|") || s.startsWith("CLIENT_LEFT|")) {
+                    Long seq = seqOf(s);
+                    if (seq != null) {
+                        if (seq > cumulative) outOfOrder.add(seq);
+                        while (outOfOrder.remove(cumulative + 1)) cumulative++;
+                        String sack = outOfOrder.stream().map(String::valueOf).collect(Collectors.joining(","));
+                        send(sock, server, "ACK|" + cumulative + "|" + sack + "|room=" + roomName);
+                    }
+                }
             } catch (Exception e) {
                 if (running.get()) System.out.println("[client] rx error: " + e.getMessage());
             }
         }
     }
 
+    private static Long seqOf(String msg) {
+        for (String f : msg.split("\\|")) {
+            if (f.startsWith("seq=")) return tryParseLong(f.substring(4));
+        }
+        return null;
+    }
+
     private static void sendJoin(DatagramSocket sock, InetSocketAddress server,
                                  String app, String room, Integer cap) {
         String msg = "JOIN|" + app + "|" + room;
@@ -128,4 +158,8 @@ public class UdpSmokeClient {
     private static Integer tryParseInt(String s) {
         try { return Integer.parseInt(s); } catch (Exception ignored) { return null; }
     }
+
+    private static Long tryParseLong(String s) {
+        try { return Long.parseLong(s.trim()); } catch (Exception ignored) { return null; }
+    }
 }
@@ -0,0 +1,327 @@
+package com.sheila.api.tools.sim;
+
+import com.sheila.api.application.AsyncRoomService;
+import com.sheila.api.application.ProbeSource;
+import com.sheila.api.application.ProbeTracker;
+import com.sheila.api.application.RoomDirectory;
+import com.sheila.api.core.dto.Endpoint;
+import com.sheila.api.core.dto.GroupJoinResult;
+import com.sheila.api.core.dto.RoomJoinResult;
+import com.sheila.api.core.exception.AppNotFoundException;
+import com.sheila.api.core.exception.ApplicationCapacityExceededException;
+import com.sheila.api.core.exception.RoomFullException;
+import com.sheila.api.core.model.ApplicationDoc;
+import com.sheila.api.core.model.RoomDoc;
+import com.sheila.api.infrastructure.repository.MemberLayout.Member;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Mongo yerine geçen bellek içi kayıt: uygulamalar, odalar ve üyelikler.
+ * - Kurallar ReactiveRoomServiceImpl ile aynıdır (uygulama kapasitesi yalnızca yeni odada, koltuk RoomDirectory'de ayrılır);
+ *   transaction olmadığından rezervasyon hemen commit edilir.
+ * - Reaktif yüz (async()) aynı thread'de tamamlanan Mono'lar döner; simülasyon tek thread'de ve tekrarlanabilir kalır.
+ * - Yineleme sırası ekleme sırasıdır; oda id'leri artan sayaçtır.
+ */
+final class InMemoryRoomStore implements ProbeSource {
+
+    private static final int JOIN_ANY_ATTEMPTS = 4;
+
+    private final RoomDirectory directory;
+    private final int defaultRoomCapacity;
+    private final Map<String, ApplicationDoc> apps = new LinkedHashMap<>();      // id → kayıt
+    private final Map<String, ApplicationDoc> appsByName = new LinkedHashMap<>();
+    private final Map<String, RoomDoc> rooms = new LinkedHashMap<>();            // id → kayıt
+    private final Map<String, RoomDoc> roomsByName = new LinkedHashMap<>();      // appId/name → kayıt
+    private final Map<String, Map<String, Endpoint>> members = new LinkedHashMap<>(); // roomId → ip:port → endpoint
+    private final AsyncRoomService async = new Async();
+    private Consumer<String> evictionListener = k -> { };
+    private long ids;
+
+    InMemoryRoomStore(RoomDirectory directory, int defaultRoomCapacity) {
+        this.directory = directory;
+        this.defaultRoomCapacity = defaultRoomCapacity;
+    }
+
+    AsyncRoomService async() {
+        return async;
+    }
+
+    /** Prober'ın düşürdüğü üyeler (ip:port) bildirilir. */
+    void onEvict(Consumer<String> listener) {
+        this.evictionListener = listener;
+    }
+
+    ApplicationDoc addApplication(String name, Integer capacity) {
+        ApplicationDoc app = new ApplicationDoc(name, capacity);
+        app.setId(nextId());
+        apps.put(app.getId(), app);
+        appsByName.put(name, app);
+        return app;
+    }
+
+    /** appKey hem ID hem name olabilir; yoksa null. */
+    ApplicationDoc findApplication(String appKey) {
+        if (appKey == null) return null;
+        ApplicationDoc app = apps.get(appKey);
+        return app != null ? app : appsByName.get(appKey);
+    }
+
+    /** Oda üyeleri (ip:port), ekleme sırasıyla; oda yoksa boş. */
+    List<String> memberKeys(String roomId) {
+        Map<String, Endpoint> m = members.get(roomId);
+        return m == null ? List.of() : new ArrayList<>(m.keySet());
+    }
+
+    Iterable<RoomDoc> rooms() {
+        return rooms.values();
+    }
+
+    RoomJoinResult joinRoom(String appKey, String roomName, String ip, int port, Integer roomCapacity) {
+        ApplicationDoc app = requireApplication(appKey);
+        RoomDoc room = roomsByName.get(app.getId() + "/" + roomName);
+        if (room == null) {
+            int newRoomCap = normalizeCapacity(roomCapacity);
+            Integer appCap = app.getCapacity();
+            if (appCap != null && sumAppRoomsCapacity(app.getId()) + newRoomCap > appCap) {
+                throw new ApplicationCapacityExceededException(appKey);
+            }
+            room = createRoom(app.getId(), roomName, newRoomCap);
+        }
+
+        RoomDirectory.RoomEntry entry =
+                directory.putRoom(room.getId(), room.getApplicationId(), room.getName(), room.getCapacity());
+        String k = ProbeTracker.key(ip, port);
+        RoomDirectory.Seat seat = directory.reserve(entry, k);
+        if (seat == RoomDirectory.Seat.FULL) throw new RoomFullException(roomName);
+
+        Endpoint me = new Endpoint(ip, port);
+        members.computeIfAbsent(room.getId(), id -> new LinkedHashMap<>()).put(k, me);
+        if (seat == RoomDirectory.Seat.RESERVED) directory.commitReservation(room.getId(), me);
+        return new RoomJoinResult(room.getId(), roomName, peers(room.getId()), me);
+    }
+
+    /**
+     * JOIN_MULTI: ReactiveRoomServiceImpl.joinRooms ile aynı kurallar. Koltuklardan biri ayrılamazsa ayrılanlar
+     * bırakılır ve bu istekte oluşturulan odalar silinir (transaction rollback'i).
+     */
+    List<GroupJoinResult> joinRooms(String appKey, List<String> roomNames, List<Endpoint> group, Integer roomCapacity) {
+        ApplicationDoc app = requireApplication(appKey);
+        long newRooms = roomNames.stream().filter(n -> !roomsByName.containsKey(app.getId() + "/" + n)).count();
+        Integer appCap = app.getCapacity();
+        if (newRooms > 0 && appCap != null
+                && sumAppRoomsCapacity(app.getId()) + newRooms * normalizeCapacity(roomCapacity) > appCap) {
+            throw new ApplicationCapacityExceededException(appKey);
+        }
+
+        List<RoomDoc> targets = new ArrayList<>();
+        List<RoomDoc> created = new ArrayList<>();
+        List<Map.Entry<String, Endpoint>> reserved = new ArrayList<>();
+        try {
+            for (String name : roomNames) {
+                RoomDoc room = roomsByName.get(app.getId() + "/" + name);
+                if (room == null) {
+                    room = createRoom(app.getId(), name, normalizeCapacity(roomCapacity));
+                    created.add(room);
+                }
+                targets.add(room);
+                RoomDirectory.RoomEntry entry =
+                        directory.putRoom(room.getId(), room.getApplicationId(), room.getName(), room.getCapacity());
+                for (Endpoint ep : group) {
+                    RoomDirectory.Seat seat = directory.reserve(entry, ProbeTracker.key(ep.getIp(), ep.getPort()));
+                    if (seat == RoomDirectory.Seat.FULL) throw new RoomFullException(name);
+                    if (seat == RoomDirectory.Seat.RESERVED) reserved.add(Map.entry(room.getId(), ep));
+                }
+            }
+        } catch (RuntimeException e) {
+            for (Map.Entry<String, Endpoint> r : reserved) directory.releaseReservation(r.getKey());
+            for (RoomDoc r : created) {
+                rooms.remove(r.getId());
+                roomsByName.remove(r.getApplicationId() + "/" + r.getName());
+            }
+            throw e;
+        }
+
+        for (RoomDoc room : targets) {
+            Map<String, Endpoint> m = members.computeIfAbsent(room.getId(), id -> new LinkedHashMap<>());
+            for (Endpoint ep : group) m.put(ProbeTracker.key(ep.getIp(), ep.getPort()), ep);
+        }
+        for (Map.Entry<String, Endpoint> r : reserved) directory.commitReservation(r.getKey(), r.getValue());
+
+        List<GroupJoinResult> results = new ArrayList<>(targets.size());
+        for (RoomDoc room : targets) {
+            results.add(new GroupJoinResult(room.getId(), room.getName(), peers(room.getId()), group));
+        }
+        return results;
+    }
+
+    RoomJoinResult joinAnyRoom(String appKey, String prefix, String ip, int port) {
+        ApplicationDoc app = requireApplication(appKey);
+        for (int attempt = 0; attempt < JOIN_ANY_ATTEMPTS; attempt++) {
+            RoomDirectory.RoomEntry best = directory.pickAny(app.getId(), prefix, ProbeTracker.key(ip, port));
+            String roomName = best != null ? best.getName()
+                    : ((prefix == null || prefix.isBlank()) ? "room" : prefix) + "-" + Long.toString(++ids, 36);
+            try {
+                return joinRoom(app.getId(), roomName, ip, port, null);
+            } catch (RoomFullException e) {
+                // bir sonraki en boş oda
+            }
+        }
+        throw new RoomFullException(prefix == null ? "*" : prefix + "*");
+    }
+
+    List<Endpoint> listRoomPeers(String appKey, String roomName) {
+        RoomDoc room = roomsByName.get(requireApplication(appKey).getId() + "/" + roomName);
+        if (room == null) throw new IllegalArgumentException("Room not found: " + roomName);
+        return peers(room.getId());
+    }
+
+    void leaveRoom(String appKey, String roomName, String ip, int port) {
+        RoomDoc room = roomsByName.get(requireApplication(appKey).getId() + "/" + roomName);
+        if (room == null) return;
+        remove(room.getId(), ip, port);
+    }
+
+    List<String> listRoomNames(String appKey) {
+        String appId = requireApplication(appKey).getId();
+        return rooms.values().stream()
+                .filter(r -> r.getApplicationId().equals(appId))
+                .map(RoomDoc::getName)
+                .sorted()
+                .toList();
+    }
+
+    void touchClient(String appKey, String roomName, String ip, int port) {
+        requireApplication(appKey); // lastSeen modellenmez
+    }
+
+    void evictClient(String roomId, String ip, int port) {
+        if (remove(roomId, ip, port)) evictionListener.accept(ProbeTracker.key(ip, port));
+    }
+
+    @Override
+    public List<Member> members() {
+        List<Member> all = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Endpoint>> e : members.entrySet()) {
+            for (Endpoint ep : e.getValue().values()) all.add(new Member(e.getKey(), ep.getIp(), ep.getPort()));
+        }
+        return all;
+    }
+
+    @Override
+    public RoomDoc room(String roomId) {
+        return rooms.get(roomId);
+    }
+
+    @Override
+    public ApplicationDoc application(String applicationId) {
+        return apps.get(applicationId);
+    }
+
+    private RoomDoc createRoom(String appId, String roomName, int capacity) {
+        RoomDoc room = new RoomDoc(appId, roomName, capacity);
+        room.setId(nextId());
+        rooms.put(room.getId(), room);
+        roomsByName.put(appId + "/" + roomName, room);
+        return room;
+    }
+
+    private boolean remove(String roomId, String ip, int port) {
+        Map<String, Endpoint> m = members.get(roomId);
+        boolean removed = m != null && m.remove(ProbeTracker.key(ip, port)) != null;
+        directory.removeMember(roomId, new Endpoint(ip, port));
+        return removed;
+    }
+
+    private List<Endpoint> peers(String roomId) {
+        Map<String, Endpoint> m = members.get(roomId);
+        return m == null ? new ArrayList<>() : new ArrayList<>(m.values());
+    }
+
+    private ApplicationDoc requireApplication(String appKey) {
+        ApplicationDoc app = findApplication(appKey);
+        if (app == null) throw new AppNotFoundException(appKey);
+        return app;
+    }
+
+    private int sumAppRoomsCapacity(String appId) {
+        int total = 0;
+        for (RoomDoc r : rooms.values()) {
+            if (r.getApplicationId().equals(appId)) total += r.getCapacity() == null ? defaultRoomCapacity : r.getCapacity();
+        }
+        return total;
+    }
+
+    private int normalizeCapacity(Integer cap) {
+        if (cap == null || cap < 1) return defaultRoomCapacity;
+        return cap;
+    }
+
+    /** ObjectId biçiminde (24 hex) artan id: RoomDirectory'deki id sırası oluşturma sırasıdır. */
+    private String nextId() {
+        return String.format("%024x", ++ids);
+    }
+
+    /** Aynı kayıt üzerinde, çağıran thread'de tamamlanan reaktif yüz. */
+    private final class Async implements AsyncRoomService {
+
+        @Override
+        public Mono<RoomJoinResult> joinRoom(String appKey, String roomName, String ip, int port, Integer roomCapacity) {
+            return Mono.fromCallable(() -> InMemoryRoomStore.this.joinRoom(appKey, roomName, ip, port, roomCapacity));
+        }
+
+        @Override
+        public Mono<List<GroupJoinResult>> joinRooms(String appKey, List<String> roomNames, List<Endpoint> group,
+                                                     Integer roomCapacity) {
+            return Mono.fromCallable(() -> InMemoryRoomStore.this.joinRooms(appKey, roomNames, group, roomCapacity));
+        }
+
+        @Override
+        public Mono<RoomJoinResult> joinAnyRoom(String appKey, String prefix, String ip, int port) {
+            return Mono.fromCallable(() -> InMemoryRoomStore.this.joinAnyRoom(appKey, prefix, ip, port));
+        }
+
+        @Override
+        public Mono<List<Endpoint>> listRoomPeers(String appKey, String roomName) {
+            return Mono.fromCallable(() -> InMemoryRoomStore.this.listRoomPeers(appKey, roomName));
+        }
+
+        @Override
+        public Mono<List<Endpoint>> touchAndListPeers(String appKey, String roomName, String ip, int port) {
+            return Mono.fromCallable(() -> InMemoryRoomStore.this.listRoomPeers(appKey, roomName));
+        }
+
+        @Override
+        public Mono<Void> leaveRoom(String appKey, String roomName, String ip, int port) {
+            return Mono.fromRunnable(() -> InMemoryRoomStore.this.leaveRoom(appKey, roomName, ip, port));
+        }
+
+        @Override
+        public Mono<List<String>> listRoomNames(String appKey) {
+            return Mono.fromCallable(() -> InMemoryRoomStore.this.listRoomNames(appKey));
+        }
+
+        @Override
+        public Mono<Void> touchClient(String appKey, String roomName, String ip, int port) {
+            return Mono.fromRunnable(() -> InMemoryRoomStore.this.touchClient(appKey, roomName, ip, port));
+        }
+
+        @Override
+        public Mono<Boolean> touchMember(String roomId, String ip, int port) {
+            return Mono.fromCallable(() -> {
+                Map<String, Endpoint> m = members.get(roomId);
+                return m != null && m.containsKey(ProbeTracker.key(ip, port));
+            });
+        }
+
+        @Override
+        public Mono<Void> evictClient(String roomId, String ip, int port) {
+            return Mono.fromRunnable(() -> InMemoryRoomStore.this.evictClient(roomId, ip, port));
+        }
+    }
+}
@@ -0,0 +1,562 @@
+package com.sheila.api.tools.sim;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sheila.api.application.ApplicationCatalog;
+import com.sheila.api.application.AsyncRoomService;
+import com.sheila.api.application.MembershipEventLog;
+import com.sheila.api.application.RoomDirectory;
+import com.sheila.api.application.ServerProber;
+import com.sheila.api.application.SessionRegistry;
+import com.sheila.api.application.TenantScheduler;
+import com.sheila.api.core.model.ApplicationDoc;
+import com.sheila.api.core.model.RoomDoc;
+import com.sheila.api.infrastructure.trace.RequestTracer;
+import com.sheila.api.transport.relay.RelayRegistry;
+import com.sheila.api.transport.udp.UdpMessenger;
+import com.sheila.api.transport.udp.UdpMetrics;
+import com.sheila.api.transport.udp.UdpServer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.util.CharsetUtil;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Süreç içi, deterministik ağ simülatörü.
+ * - Gerçek UdpServerHandler, TenantScheduler, ServerProber, MembershipEventLog ve SessionRegistry çalışır;
+ *   soket yerine EmbeddedChannel, Mongo yerine bellek içi oda kaydı (InMemoryRoomStore), duvar saati yerine
+ *   sanal saat (VirtualClock) kullanılır. Her şey tek thread'de olay sırasıyla yürür.
+ * - Ağ: datagram kaybı, gecikme + jitter, yeniden sıralama (SimNetwork); tohum (seed) aynıysa rapor aynıdır
+ *   (yalnızca "wall" bölümü makineye bağlıdır).
+ * - Senaryo: istemciler joinWindow içinde JOIN olur; churnAt'tan sonra churnWindow içinde bir kısmı LEAVE eder,
+ *   bir kısmı sessizce çöker; süre sonuna kadar probe ve olay akışı devam eder.
+ * - Rapor: sunucu datagram hızı, join/churn sonrası yakınsama süresi, yanlış düşürmeler (çökmemiş üyenin probe ile
+ *   atılması) ve çöküş tespit gecikmesi; JSON olarak da yazılabilir (report=<dosya>).
+ *
+ * Kullanım: NetworkSimulator [anahtar=değer ...]; app.* anahtarları sunucu ayarlarıdır (application.yaml ile aynı).
+ * Örnek: clients=100000 rooms=1000 loss=0.05 app.probe.adaptive.enabled=true report=target/sim.json
+ */
+public final class NetworkSimulator {
+
+    private static final InetSocketAddress SERVER = new InetSocketAddress(InetAddress.getLoopbackAddress(), 9876);
+    private static final String APP_PREFIX = "sim-app-";
+
+    // Senaryo
+    private final long seed;
+    private final int clients;
+    private final int apps;
+    private final int rooms;
+    private final int roomCapacity;
+    private final long durationNanos;
+    private final long joinWindowNanos;
+    private final long joinRetryNanos;
+    private final long churnAtNanos;
+    private final long churnWindowNanos;
+    private final double leaveFraction;
+    private final double crashFraction;
+    private final long watchdogNanos;
+    private final long checkNanos;
+    private final String reportPath;
+    private final Map<String, Object> scenario = new LinkedHashMap<>();
+    private final Map<String, Object> serverProps = new TreeMap<>();
+
+    private final VirtualClock clock = new VirtualClock();
+    private final Random random;
+    private final SimNetwork network;
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private AnnotationConfigApplicationContext context;
+    private InMemoryRoomStore store;
+    private RoomDirectory directory;
+    private ServerProber prober;
+    private EmbeddedChannel channel;
+    private int recvBatch;
+
+    private final List<SimClient> population = new ArrayList<>();
+    private final Map<String, SimClient> byKey = new HashMap<>();
+    private final Queue<DatagramPacket> inbox = new ArrayDeque<>();
+    private boolean drainScheduled;
+
+    // Ölçümler
+    private long inbound;
+    private long outbound;
+    private final Map<String, Long> inboundByType = new TreeMap<>();
+    private final Map<String, Long> outboundByType = new TreeMap<>();
+    private final Map<String, Long> clientErrors = new TreeMap<>();
+    private long retries;
+    private long rejoins;
+    private long falseDrops;
+    private long leaveCleanups;
+    private final List<Long> detectionNanos = new ArrayList<>();
+    private long joinEndNanos;
+    private long churnStartNanos = Long.MAX_VALUE;
+    private long churnEndNanos = -1;
+    private long joinConvergedNanos = -1;
+    private long churnConvergedNanos = -1;
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> opts = new LinkedHashMap<>();
+        for (String a : args) {
+            int i = a.indexOf('=');
+            if (i <= 0) throw new IllegalArgumentException("expected key=value: " + a);
+            opts.put(a.substring(0, i).trim(), a.substring(i + 1).trim());
+        }
+        new NetworkSimulator(opts).run();
+    }
+
+    NetworkSimulator(Map<String, String> opts) {
+        Map<String, String> o = new LinkedHashMap<>(opts);
+        this.seed = longOpt(o, "seed", 1);
+        this.clients = (int) longOpt(o, "clients", 10_000);
+        this.apps = (int) longOpt(o, "apps", 1);
+        this.rooms = (int) longOpt(o, "rooms", 100);
+        this.roomCapacity = (int) longOpt(o, "roomCapacity", 2L * ((clients + rooms - 1) / rooms));
+        this.durationNanos = ms(longOpt(o, "durationMs", 180_000));
+        this.joinWindowNanos = ms(longOpt(o, "joinWindowMs", 10_000));
+        this.joinRetryNanos = ms(longOpt(o, "joinRetryMs", 1_000));
+        this.churnAtNanos = ms(longOpt(o, "churnAtMs", 60_000));
+        this.churnWindowNanos = ms(longOpt(o, "churnWindowMs", 5_000));
+        this.leaveFraction = doubleOpt(o, "leave", 0.05);
+        this.crashFraction = doubleOpt(o, "crash", 0.05);
+        double loss = doubleOpt(o, "loss", 0.05);
+        long latencyMs = longOpt(o, "latencyMs", 20);
+        long jitterMs = longOpt(o, "jitterMs", 10);
+        double reorder = doubleOpt(o, "reorder", 0.01);
+        long reorderDelayMs = longOpt(o, "reorderDelayMs", 50);
+        this.watchdogNanos = ms(longOpt(o, "watchdogMs", 45_000));
+        this.checkNanos = ms(longOpt(o, "checkMs", 100));
+        this.reportPath = o.remove("report");
+
+        for (Map.Entry<String, String> e : o.entrySet()) {
+            if (!e.getKey().startsWith("app.")) throw new IllegalArgumentException("unknown option: " + e.getKey());
+            serverProps.put(e.getKey(), e.getValue());
+        }
+        if (clients <= 0 || rooms <= 0 || apps <= 0 || apps > rooms) {
+            throw new IllegalArgumentException("need clients > 0 and 0 < apps <= rooms");
+        }
+
+        this.random = new Random(seed);
+        this.network = new SimNetwork(clock, new Random(seed * 31 + 7), loss, ms(latencyMs), ms(jitterMs),
+                reorder, ms(reorderDelayMs));
+        scenario.put("loss", loss);
+        scenario.put("latencyMs", latencyMs);
+        scenario.put("jitterMs", jitterMs);
+        scenario.put("reorder", reorder);
+        scenario.put("reorderDelayMs", reorderDelayMs);
+    }
+
+    void run() throws IOException {
+        Map<String, Object> report = simulate();
+
+        ObjectMapper json = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        System.out.println(json.writeValueAsString(report));
+        if (reportPath != null && !reportPath.isBlank()) json.writeValue(new File(reportPath), report);
+    }
+
+    /** Senaryoyu sanal saatte sonuna dek çalıştırır ve raporu döner (testler yazdırmadan kullanır). */
+    Map<String, Object> simulate() {
+        long wallStart = System.nanoTime();
+        start();
+        try {
+            populate();
+            every(ms(prober.tickMs()), prober::probeAll);
+            every(checkNanos, this::checkConvergence);
+            while (clock.runNext(durationNanos)) pumpServer();
+            return report(System.nanoTime() - wallStart);
+        } finally {
+            context.close();
+        }
+    }
+
+    // ---- SimClient'ın kullandıkları ----
+
+    VirtualClock clock() { return clock; }
+    long joinRetryNanos() { return joinRetryNanos; }
+    long watchdogNanos() { return watchdogNanos; }
+    void recordRetry() { retries++; }
+    void recordRejoin() { rejoins++; }
+    void recordClientError(String code) { clientErrors.merge(code, 1L, Long::sum); }
+
+    /** İstemci → sunucu; teslimde datagram gelen kutusuna girer ve ayrı bir olayla kanala okunur. */
+    void sendToServer(SimClient from, String text) {
+        network.send(() -> {
+            inbound++;
+            inboundByType.merge(type(text), 1L, Long::sum);
+            inbox.add(new DatagramPacket(Unpooled.copiedBuffer(text, CharsetUtil.UTF_8), SERVER, from.address()));
+            if (!drainScheduled) {
+                drainScheduled = true;
+                clock.schedule(0, this::drainInbox);
+            }
+        });
+    }
+
+    /** Sırasız küme özeti için 64-bit FNV-1a + karıştırma (XOR'da çakışmaları azaltır). */
+    static long fingerprint(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    // ---- Kurulum ----
+
+    /** Sunucu bileşenleri bileşen taraması olmadan kaydedilir: @Value ve @PostConstruct işlenir, Mongo'ya dokunulmaz. */
+    private void start() {
+        Map<String, Object> props = new HashMap<>();
+        props.put("app.trace.enabled", "false");
+        props.put("app.relay.enabled", "false");
+        props.putAll(serverProps);
+
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("simulation", props));
+        Environment env = context.getEnvironment();
+        recvBatch = env.getProperty("app.udp.recvBatch", Integer.class, 32);
+
+        context.registerBean(VirtualClock.class, () -> clock);
+        context.registerBean(MeterRegistry.class, () -> registry);
+        context.registerBean(RoomDirectory.class, SimRoomDirectory::new);
+        context.registerBean(InMemoryRoomStore.class, () -> new InMemoryRoomStore(
+                context.getBean(RoomDirectory.class), env.getProperty("app.rooms.defaultCapacity", Integer.class, 100)));
+        context.registerBean(AsyncRoomService.class, () -> context.getBean(InMemoryRoomStore.class).async());
+        context.registerBean(ApplicationCatalog.class, () -> new SimCatalog(context.getBean(InMemoryRoomStore.class)));
+        context.registerBean(MembershipEventLog.class, () -> new SimEventLog(
+                context.getBean(UdpMessenger.class), context.getBean(AsyncRoomService.class),
+                context.getBean(RoomDirectory.class), context.getBean(ApplicationCatalog.class), clock));
+        for (Class<?> c : List.of(UdpMetrics.class, UdpMessenger.class, TenantScheduler.class, SessionRegistry.class,
+                RequestTracer.class, RelayRegistry.class, ServerProber.class, UdpServer.class)) {
+            context.registerBean(c);
+        }
+        context.refresh();
+
+        store = context.getBean(InMemoryRoomStore.class);
+        store.onEvict(this::onEvicted);
+        directory = context.getBean(RoomDirectory.class);
+        prober = context.getBean(ServerProber.class);
+        channel = new EmbeddedChannel();
+        context.getBean(UdpServer.class).attach(channel);
+    }
+
+    /** Uygulamalar, istemciler ve JOIN/LEAVE/çöküş zamanları; hepsi tohumdan türetilir. */
+    private void populate() {
+        for (int a = 0; a < apps; a++) store.addApplication(APP_PREFIX + a, null);
+
+        for (int i = 0; i < clients; i++) {
+            int room = i % rooms;
+            SimClient c = new SimClient(this, i, APP_PREFIX + (room % apps), "room-" + room, roomCapacity);
+            population.add(c);
+            byKey.put(c.key(), c);
+            long at = (long) (random.nextDouble() * joinWindowNanos);
+            joinEndNanos = Math.max(joinEndNanos, at);
+            clock.scheduleAt(at, c::join);
+        }
+
+        for (SimClient c : population) {
+            double u = random.nextDouble();
+            if (u >= leaveFraction + crashFraction) continue;
+            long at = churnAtNanos + (long) (random.nextDouble() * churnWindowNanos);
+            churnStartNanos = Math.min(churnStartNanos, at);
+            churnEndNanos = Math.max(churnEndNanos, at);
+            clock.scheduleAt(at, u < leaveFraction ? c::leave : c::crash);
+        }
+    }
+
+    private void every(long periodNanos, Runnable action) {
+        clock.schedule(periodNanos, () -> {
+            action.run();
+            every(periodNanos, action);
+        });
+    }
+
+    // ---- Sunucu G/Ç ----
+
+    /** Bir okuma döngüsü: en çok recvBatch datagram, sonra readComplete (recvmmsg davranışı). */
+    private void drainInbox() {
+        List<Object> batch = new ArrayList<>(Math.min(inbox.size(), recvBatch));
+        while (batch.size() < recvBatch && !inbox.isEmpty()) batch.add(inbox.poll());
+        channel.writeInbound(batch.toArray());
+        if (inbox.isEmpty()) {
+            drainScheduled = false;
+        } else {
+            clock.schedule(0, this::drainInbox);
+        }
+    }
+
+    /** Her olaydan sonra: kanalın bekleyen işleri, sonra giden datagram'lar ağa verilir. */
+    private void pumpServer() {
+        channel.runPendingTasks();
+        Object o;
+        while ((o = channel.readOutbound()) != null) {
+            DatagramPacket p = (DatagramPacket) o;
+            String text = p.content().toString(CharsetUtil.UTF_8);
+            InetSocketAddress to = p.recipient();
+            p.release();
+            outbound++;
+            outboundByType.merge(type(text), 1L, Long::sum);
+            SimClient c = byKey.get(to.getAddress().getHostAddress() + ":" + to.getPort());
+            if (c != null) network.send(() -> c.onDatagram(text));
+        }
+        channel.checkException();
+    }
+
+    // ---- Ölçüm ----
+
+    /** Kayıttan üye silindi: çökmüş → tespit gecikmesi, ayrılmakta olan → LEAVE'in yerine geçen temizlik, diğeri yanlış. */
+    private void onEvicted(String memberKey) {
+        SimClient c = byKey.get(memberKey);
+        if (c == null) return;
+        switch (c.state()) {
+            case CRASHED -> detectionNanos.add(clock.nanoTime() - c.crashedAtNanos());
+            case LEAVING, LEFT -> leaveCleanups++;
+            default -> falseDrops++;
+        }
+    }
+
+    /** Join ve churn bittikten sonra sunucu kaydı ile istemci görünümleri ilk kez tam tutarlı olduğunda süre alınır. */
+    private void checkConvergence() {
+        long now = clock.nanoTime();
+        boolean joinPending = joinConvergedNanos < 0 && now >= joinEndNanos && now < churnStartNanos;
+        boolean churnPending = churnEndNanos >= 0 && churnConvergedNanos < 0 && now >= churnEndNanos;
+        if (!joinPending && !churnPending) return;
+        if (inconsistencies() > 0) return;
+        if (joinPending) joinConvergedNanos = now - joinEndNanos;
+        if (churnPending) churnConvergedNanos = now - churnEndNanos;
+    }
+
+    /**
+     * Tutarsızlık sayısı: üye kümesi JOINED istemcilerle örtüşmeyen odalar + görünümü sunucudaki üye kümesinden
+     * farklı JOINED istemciler. Kümeler sırasız özetle (XOR parmak izi + boyut) karşılaştırılır.
+     */
+    private int inconsistencies() {
+        Map<String, long[]> server = new HashMap<>();
+        for (RoomDoc r : store.rooms()) {
+            ApplicationDoc app = store.application(r.getApplicationId());
+            long[] s = new long[2];
+            for (String k : store.memberKeys(r.getId())) {
+                s[0] ^= fingerprint(k);
+                s[1]++;
+            }
+            server.put(app.getName() + "/" + r.getName(), s);
+        }
+        Map<String, long[]> expected = new HashMap<>();
+        for (SimClient c : population) {
+            if (c.state() != SimClient.State.JOINED) continue;
+            long[] e = expected.computeIfAbsent(c.appName() + "/" + c.roomName(), k -> new long[2]);
+            e[0] ^= fingerprint(c.key());
+            e[1]++;
+        }
+
+        long[] none = new long[2];
+        int bad = 0;
+        for (Map.Entry<String, long[]> e : server.entrySet()) {
+            long[] x = expected.getOrDefault(e.getKey(), none);
+            if (x[0] != e.getValue()[0] || x[1] != e.getValue()[1]) bad++;
+        }
+        for (String room : expected.keySet()) {
+            if (!server.containsKey(room)) bad++;
+        }
+        for (SimClient c : population) {
+            if (c.state() != SimClient.State.JOINED) continue;
+            long[] s = server.getOrDefault(c.appName() + "/" + c.roomName(), none);
+            if (c.viewPrint() != s[0] || c.viewSize() != s[1]) bad++;
+        }
+        return bad;
+    }
+
+    private Map<String, Object> report(long wallNanos) {
+        double seconds = durationNanos / 1e9;
+        Map<String, Long> states = new TreeMap<>();
+        int crashed = 0;
+        int undetected = 0;
+        for (SimClient c : population) {
+            states.merge(c.state().name(), 1L, Long::sum);
+            if (c.state() == SimClient.State.CRASHED) {
+                crashed++;
+                if (directory.isMember(c.key())) undetected++;
+            }
+        }
+
+        Map<String, Object> sc = new LinkedHashMap<>();
+        sc.put("seed", seed);
+        sc.put("clients", clients);
+        sc.put("apps", apps);
+        sc.put("rooms", rooms);
+        sc.put("roomCapacity", roomCapacity);
+        sc.put("durationMs", toMs(durationNanos));
+        sc.put("joinWindowMs", toMs(joinWindowNanos));
+        sc.put("joinRetryMs", toMs(joinRetryNanos));
+        sc.put("churnAtMs", toMs(churnAtNanos));
+        sc.put("churnWindowMs", toMs(churnWindowNanos));
+        sc.put("leave", leaveFraction);
+        sc.put("crash", crashFraction);
+        sc.put("watchdogMs", toMs(watchdogNanos));
+        sc.put("checkMs", toMs(checkNanos));
+        sc.putAll(scenario);
+        sc.put("server", serverProps);
+
+        Map<String, Object> net = new LinkedHashMap<>();
+        net.put("sent", network.sent());
+        net.put("lost", network.lost());
+        net.put("reordered", network.reordered());
+
+        Map<String, Object> throughput = new LinkedHashMap<>();
+        throughput.put("serverInbound", inbound);
+        throughput.put("serverOutbound", outbound);
+        throughput.put("inboundPerSec", round(inbound / seconds));
+        throughput.put("outboundPerSec", round(outbound / seconds));
+        throughput.put("inboundByType", inboundByType);
+        throughput.put("outboundByType", outboundByType);
+
+        Map<String, Object> membership = new LinkedHashMap<>();
+        membership.put("joinConvergenceMs", joinConvergedNanos < 0 ? null : toMs(joinConvergedNanos));
+        membership.put("churnConvergenceMs", churnConvergedNanos < 0 ? null : toMs(churnConvergedNanos));
+        membership.put("finalInconsistencies", inconsistencies());
+        membership.put("clientStates", states);
+        membership.put("clientErrors", clientErrors);
+        membership.put("retries", retries);
+        membership.put("rejoins", rejoins);
+
+        long live = clients - crashed;
+        Map<String, Object> probe = new LinkedHashMap<>();
+        probe.put("sent", counter("sheila.probe.sent"));
+        probe.put("skipped", counter("sheila.probe.skipped"));
+        probe.put("dropped", counter("sheila.probe.dropped"));
+        probe.put("falseDrops", falseDrops);
+        probe.put("falseDropRate", live == 0 ? 0.0 : round(falseDrops / (double) live));
+        probe.put("leaveCleanups", leaveCleanups);
+        probe.put("crashed", crashed);
+        probe.put("detected", detectionNanos.size());
+        probe.put("undetected", undetected);
+        probe.put("detectionMs", distribution(detectionNanos));
+
+        Map<String, Object> wall = new LinkedHashMap<>();
+        wall.put("wallMs", toMs(wallNanos));
+        wall.put("events", clock.executed());
+        wall.put("eventsPerSec", wallNanos == 0 ? 0.0 : round(clock.executed() / (wallNanos / 1e9)));
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("scenario", sc);
+        report.put("network", net);
+        report.put("throughput", throughput);
+        report.put("membership", membership);
+        report.put("probe", probe);
+        report.put("wall", wall);
+        return report;
+    }
+
+    private double counter(String name) {
+        Counter c = registry.find(name).counter();
+        return c == null ? 0 : c.count();
+    }
+
+    private static Map<String, Object> distribution(List<Long> nanos) {
+        Map<String, Object> d = new LinkedHashMap<>();
+        if (nanos.isEmpty()) return d;
+        List<Long> sorted = new ArrayList<>(nanos);
+        Collections.sort(sorted);
+        double sum = 0;
+        for (long n : sorted) sum += n;
+        d.put("mean", round(sum / sorted.size() / 1e6));
+        d.put("p50", toMs(sorted.get((int) Math.floor(0.50 * (sorted.size() - 1)))));
+        d.put("p99", toMs(sorted.get((int) Math.floor(0.99 * (sorted.size() - 1)))));
+        d.put("max", toMs(sorted.get(sorted.size() - 1)));
+        return d;
+    }
+
+    /** Sayaç anahtarı: ERR|<kod> için kod da dahil, diğerlerinde ilk alan. */
+    private static String type(String text) {
+        int bar = text.indexOf('|');
+        String head = bar < 0 ? text : text.substring(0, bar);
+        if (!"ERR".equals(head) || bar < 0) return head;
+        int next = text.indexOf('|', bar + 1);
+        return text.substring(0, next < 0 ? text.length() : next);
+    }
+
+    private static long longOpt(Map<String, String> o, String key, long def) {
+        String v = o.remove(key);
+        return v == null ? def : Long.parseLong(v);
+    }
+
+    private static double doubleOpt(Map<String, String> o, String key, double def) {
+        String v = o.remove(key);
+        return v == null ? def : Double.parseDouble(v);
+    }
+
+    private static long ms(long millis) { return TimeUnit.MILLISECONDS.toNanos(millis); }
+    private static double toMs(long nanos) { return round(nanos / 1e6); }
+    private static double round(double v) { return Math.round(v * 1000) / 1000.0; }
+
+    // ---- Mongo'suz sunucu bileşenleri ----
+
+    /** Açılış yüklemesi boş; odalar JOIN'lerle oluşur. */
+    private static final class SimRoomDirectory extends RoomDirectory {
+        SimRoomDirectory() {
+            super(null, null, null);
+        }
+
+        @Override
+        public void warmUp() {
+            load(List.of(), List.of());
+        }
+    }
+
+    /** Uygulama kayıtları bellek içi kayıttan okunur. */
+    private static final class SimCatalog extends ApplicationCatalog {
+        private final InMemoryRoomStore store;
+
+        SimCatalog(InMemoryRoomStore store) {
+            super(null);
+            this.store = store;
+        }
+
+        @Override
+        public ApplicationDoc find(String appKey) {
+            return appKey == null ? null : store.findApplication(appKey);
+        }
+
+        @Override
+        public void refresh() { }
+    }
+
+    /** Zamanlama çarkı sanal saat; RESYNC okumaları aynı thread'de çalışır. */
+    private static final class SimEventLog extends MembershipEventLog {
+        private final VirtualClock clock;
+
+        SimEventLog(UdpMessenger messenger, AsyncRoomService rooms, RoomDirectory directory,
+                    ApplicationCatalog catalog, VirtualClock clock) {
+            super(messenger, rooms, directory, catalog);
+            this.clock = clock;
+        }
+
+        @Override
+        public void start() {
+            start(clock, Runnable::run);
+        }
+    }
+}
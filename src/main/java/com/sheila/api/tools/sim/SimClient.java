@@ -0,0 +1,226 @@
+package com.sheila.api.tools.sim;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+
+/**
+ * Simüle edilen tek istemci; UdpSmokeClient'ın protokol davranışını izler.
+ * - JOIN yanıtı (ROOM) gelene kadar aynı JOIN'i joinRetry aralığıyla tekrarlar (sunucu dedup'ı tekrarları karşılar).
+ * - SRV_PING → PONG (seq=/ts= aynen yansıtılır); NEW_CLIENT / CLIENT_LEFT sırayla uygulanır ve ACK|<kümülatif>|[seçici]|room=<oda> ile onaylanır.
+ * - ROOM / RESYNC üye görünümünü baştan kurar; snapshot'tan eski olaylar atlanır.
+ * - watchdog boyunca sunucudan hiçbir şey duymayan üye tekrar JOIN gönderir (yanlışlıkla düşürülmüşse geri döner).
+ * Üye görünümü, karşılaştırma için sırasız bir özetle (XOR parmak izi + boyut) tutulur.
+ */
+final class SimClient {
+
+    enum State { IDLE, JOINING, JOINED, LEAVING, LEFT, CRASHED, FAILED }
+
+    private static final int MAX_LEAVE_ATTEMPTS = 10;
+
+    private final NetworkSimulator sim;
+    private final String ip;
+    private final int port;
+    private final String key;
+    private final InetSocketAddress address;
+    private final String appName;
+    private final String roomName;
+    private final String joinMessage;
+
+    private State state = State.IDLE;
+    private final Set<String> view = new HashSet<>();
+    private long viewPrint;
+    private long cumulative;                                   // art arda uygulanmış son olay
+    private final TreeMap<Long, String[]> early = new TreeMap<>(); // boşluktan sonra gelen olaylar
+    private long lastHeardNanos;
+    private long crashedAtNanos = -1;
+    private int leaveAttempts;
+
+    SimClient(NetworkSimulator sim, int index, String appName, String roomName, int capacity) {
+        this.sim = sim;
+        byte[] addr = {10, (byte) (index >>> 16), (byte) (index >>> 8), (byte) index};
+        try {
+            this.address = new InetSocketAddress(InetAddress.getByAddress(addr), 40000 + (index >>> 24));
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException(e);
+        }
+        this.ip = address.getAddress().getHostAddress();
+        this.port = address.getPort();
+        this.key = ip + ":" + port;
+        this.appName = appName;
+        this.roomName = roomName;
+        this.joinMessage = "JOIN|" + appName + "|" + roomName + (capacity > 0 ? "|" + capacity : "");
+    }
+
+    String key() { return key; }
+    InetSocketAddress address() { return address; }
+    String appName() { return appName; }
+    String roomName() { return roomName; }
+    State state() { return state; }
+    long crashedAtNanos() { return crashedAtNanos; }
+    int viewSize() { return view.size(); }
+    long viewPrint() { return viewPrint; }
+
+    /** Odaya giriş: ROOM gelene kadar tekrarlanır. */
+    void join() {
+        if (state != State.IDLE) return;
+        state = State.JOINING;
+        sendJoin();
+    }
+
+    /** LEAVE gönderir; OK|LEFT gelene kadar (en çok MAX_LEAVE_ATTEMPTS) tekrarlar. */
+    void leave() {
+        if (state != State.JOINED && state != State.JOINING) return;
+        state = State.LEAVING;
+        leaveAttempts = 0;
+        sendLeave();
+    }
+
+    /** Süreç ölür: bundan sonra gelen her şey yok sayılır, hiçbir şey gönderilmez. */
+    void crash() {
+        if (state == State.LEFT || state == State.FAILED) return;
+        state = State.CRASHED;
+        crashedAtNanos = sim.clock().nanoTime();
+    }
+
+    /** Sunucudan gelen datagram. */
+    void onDatagram(String msg) {
+        if (state == State.IDLE || state == State.CRASHED || state == State.LEFT || state == State.FAILED) return;
+        lastHeardNanos = sim.clock().nanoTime();
+        String[] p = msg.split("\\|");
+        switch (p[0]) {
+            case "ROOM" -> {
+                if (state == State.LEAVING) return;
+                if (state == State.JOINING) {
+                    state = State.JOINED;
+                    scheduleWatchdog();
+                }
+                snapshot(field(p, "clients="), field(p, "seq="));
+            }
+            case "RESYNC" -> {
+                if (state == State.JOINED) snapshot(field(p, "clients="), field(p, "seq="));
+            }
+            case "NEW_CLIENT", "CLIENT_LEFT" -> onEvent(p);
+            case "SRV_PING" -> {
+                if (p.length >= 3) send("PONG|" + msg.substring("SRV_PING|".length())); // seq=/ts= yankısı dahil
+            }
+            case "OK" -> {
+                if (p.length >= 2 && "LEFT".equals(p[1]) && state == State.LEAVING) leftRoom();
+            }
+            case "ERR" -> onError(p.length >= 2 ? p[1] : "?");
+            default -> { }
+        }
+    }
+
+    private void onEvent(String[] p) {
+        if (state != State.JOINED || p.length < 2) return;
+        String seqRaw = field(p, "seq=");
+        if (seqRaw == null) { // app.events.enabled=false: sırasız, onaysız
+            apply(p[0], p[1]);
+            return;
+        }
+        long seq = Long.parseLong(seqRaw);
+        if (seq > cumulative) early.put(seq, p);
+        Map.Entry<Long, String[]> next;
+        while ((next = early.firstEntry()) != null && next.getKey() == cumulative + 1) {
+            early.pollFirstEntry();
+            apply(next.getValue()[0], next.getValue()[1]);
+            cumulative++;
+        }
+        StringJoiner sack = new StringJoiner(",");
+        for (Long s : early.keySet()) sack.add(String.valueOf(s));
+        send("ACK|" + cumulative + "|" + sack + "|room=" + roomName);
+    }
+
+    private void onError(String code) {
+        sim.recordClientError(code);
+        if (state == State.JOINING && !"BUSY".equals(code) && !"INTERNAL".equals(code)) {
+            state = State.FAILED; // ROOM_FULL, APP_NOT_FOUND...: tekrar denemek sonucu değiştirmez
+        }
+    }
+
+    private void snapshot(String clients, String seqRaw) {
+        view.clear();
+        viewPrint = 0;
+        if (clients != null && clients.length() > 2) {
+            for (String c : clients.substring(1, clients.length() - 1).split(",")) apply("NEW_CLIENT", c);
+        }
+        if (seqRaw != null) {
+            cumulative = Long.parseLong(seqRaw);
+            early.headMap(cumulative, true).clear();
+            Map.Entry<Long, String[]> next;
+            while ((next = early.firstEntry()) != null && next.getKey() == cumulative + 1) {
+                early.pollFirstEntry();
+                apply(next.getValue()[0], next.getValue()[1]);
+                cumulative++;
+            }
+        }
+    }
+
+    private void apply(String type, String subject) {
+        boolean changed = "CLIENT_LEFT".equals(type) ? view.remove(subject) : view.add(subject);
+        if (changed) viewPrint ^= NetworkSimulator.fingerprint(subject);
+    }
+
+    private void sendJoin() {
+        if (state != State.JOINING) return;
+        send(joinMessage);
+        sim.clock().schedule(sim.joinRetryNanos(), () -> {
+            if (state == State.JOINING) {
+                sim.recordRetry();
+                sendJoin();
+            }
+        });
+    }
+
+    private void sendLeave() {
+        if (state != State.LEAVING) return;
+        if (++leaveAttempts > MAX_LEAVE_ATTEMPTS) {
+            leftRoom(); // vazgeçti; sunucu tarafını prober temizler
+            return;
+        }
+        send("LEAVE|" + appName + "|" + roomName);
+        sim.clock().schedule(sim.joinRetryNanos(), () -> {
+            if (state == State.LEAVING) {
+                sim.recordRetry();
+                sendLeave();
+            }
+        });
+    }
+
+    private void leftRoom() {
+        state = State.LEFT;
+        view.clear();
+        viewPrint = 0;
+        early.clear();
+    }
+
+    /** watchdog süresince sessizlik → JOIN (üyeyse sunucu aynı odayı ROOM snapshot'ıyla döner). */
+    private void scheduleWatchdog() {
+        sim.clock().scheduleAt(lastHeardNanos + sim.watchdogNanos(), () -> {
+            if (state != State.JOINED) return;
+            if (sim.clock().nanoTime() - lastHeardNanos >= sim.watchdogNanos()) {
+                sim.recordRejoin();
+                send(joinMessage);
+                lastHeardNanos = sim.clock().nanoTime();
+            }
+            scheduleWatchdog();
+        });
+    }
+
+    private void send(String text) {
+        sim.sendToServer(this, text);
+    }
+
+    private static String field(String[] p, String prefix) {
+        for (String f : p) {
+            if (f.startsWith(prefix)) return f.substring(prefix.length());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,54 @@
+package com.sheila.api.tools.sim;
+
+import java.util.Random;
+
+/**
+ * Sanal datagram taşıması: her datagram tohumlu rastgelelikle kaybolur ya da gecikmeyle teslim edilir.
+ * - Gecikme: latency + [0, jitter) eşit dağılımlı; jitter kendiliğinden sıra bozabilir.
+ * - reorder olasılığıyla datagram ek olarak [0, reorderDelay) bekletilir; arkasındaki datagram'lar onu geçer.
+ * - İki yön aynı modeli kullanır; kayıp yön başına bağımsızdır.
+ */
+final class SimNetwork {
+
+    private final VirtualClock clock;
+    private final Random random;
+    private final double loss;
+    private final long latencyNanos;
+    private final long jitterNanos;
+    private final double reorder;
+    private final long reorderDelayNanos;
+
+    private long sent;
+    private long lost;
+    private long reordered;
+
+    SimNetwork(VirtualClock clock, Random random, double loss, long latencyNanos, long jitterNanos,
+               double reorder, long reorderDelayNanos) {
+        this.clock = clock;
+        this.random = random;
+        this.loss = loss;
+        this.latencyNanos = latencyNanos;
+        this.jitterNanos = jitterNanos;
+        this.reorder = reorder;
+        this.reorderDelayNanos = reorderDelayNanos;
+    }
+
+    /** Datagram'ı yola çıkarır; kaybolmazsa teslim (delivery) gecikme sonunda çalışır. */
+    void send(Runnable delivery) {
+        sent++;
+        if (random.nextDouble() < loss) {
+            lost++;
+            return;
+        }
+        long delay = latencyNanos + (jitterNanos > 0 ? (long) (random.nextDouble() * jitterNanos) : 0);
+        if (reorder > 0 && random.nextDouble() < reorder) {
+            reordered++;
+            delay += (long) (random.nextDouble() * reorderDelayNanos);
+        }
+        clock.schedule(delay, delivery);
+    }
+
+    long sent() { return sent; }
+    long lost() { return lost; }
+    long reordered() { return reordered; }
+}
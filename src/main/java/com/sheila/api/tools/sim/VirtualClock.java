@@ -0,0 +1,119 @@
+package com.sheila.api.tools.sim;
+
+import com.sheila.api.application.ServerClock;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ayrık olay simülasyonunun saati: zaman yalnızca sıradaki olay çalıştırılırken ilerler.
+ * - Olaylar zamana, eşitlikte eklenme sırasına göre çalışır; aynı tohumla her koşu aynı sırayı izler.
+ * - Sunucu bileşenlerine ServerClock (alınma anı, probe zamanı, dedup/oturum süreleri) ve
+ *   MembershipEventLog'a Netty Timer (yeniden gönderimler) olarak verilir.
+ * Tek thread'lidir; thread-safe değildir.
+ */
+final class VirtualClock implements ServerClock, Timer {
+
+    private final PriorityQueue<Task> queue = new PriorityQueue<>(
+            Comparator.comparingLong((Task t) -> t.at).thenComparingLong(t -> t.order));
+    private long now;
+    private long order;
+    private long executed;
+
+    @Override
+    public long nanoTime() {
+        return now;
+    }
+
+    void schedule(long delayNanos, Runnable action) {
+        enqueue(now + Math.max(0, delayNanos), action);
+    }
+
+    void scheduleAt(long atNanos, Runnable action) {
+        enqueue(Math.max(now, atNanos), action);
+    }
+
+    /** Sıradaki olay untilNanos'a kadarsa çalıştırır; yoksa saati untilNanos'a getirip false döner. */
+    boolean runNext(long untilNanos) {
+        while (!queue.isEmpty()) {
+            Task t = queue.peek();
+            if (t.at > untilNanos) break;
+            queue.poll();
+            if (t.cancelled) continue;
+            now = t.at;
+            t.expired = true;
+            executed++;
+            t.action.run();
+            return true;
+        }
+        now = Math.max(now, untilNanos);
+        return false;
+    }
+
+    long executed() {
+        return executed;
+    }
+
+    @Override
+    public Timeout newTimeout(TimerTask task, long delay, TimeUnit unit) {
+        Task t = enqueue(now + Math.max(0, unit.toNanos(delay)), null);
+        t.timerTask = task;
+        t.action = () -> {
+            try {
+                task.run(t);
+            } catch (Exception e) {
+                throw new IllegalStateException("timer task failed", e);
+            }
+        };
+        return t;
+    }
+
+    @Override
+    public Set<Timeout> stop() {
+        Set<Timeout> pending = new HashSet<>();
+        for (Task t : queue) {
+            if (t.timerTask != null && !t.cancelled) pending.add(t);
+        }
+        queue.clear();
+        return pending;
+    }
+
+    private Task enqueue(long at, Runnable action) {
+        Task t = new Task(at, order++, action);
+        queue.add(t);
+        return t;
+    }
+
+    private final class Task implements Timeout {
+        final long at;
+        final long order;
+        Runnable action;
+        TimerTask timerTask; // yalnızca newTimeout ile eklenenlerde
+        boolean cancelled;
+        boolean expired;
+
+        Task(long at, long order, Runnable action) {
+            this.at = at;
+            this.order = order;
+            this.action = action;
+        }
+
+        @Override public Timer timer() { return VirtualClock.this; }
+        @Override public TimerTask task() { return timerTask; }
+        @Override public boolean isExpired() { return expired; }
+        @Override public boolean isCancelled() { return cancelled; }
+
+        @Override
+        public boolean cancel() {
+            if (expired || cancelled) return false;
+            cancelled = true; // sıradan çıkarmak O(n); çalışma anında atlanır
+            return true;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.sheila.api.transport.http;
+
+import com.sheila.api.application.OccupancySnapshot;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Salt okunur doluluk görünümü (dashboard'lar için).
+ * GET /api/occupancy?app=<id|name>&app=...&after=<roomId>&limit=N → application/x-ndjson
+ */
+@RestController
+@RequestMapping("/api")
+public class OccupancyController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final OccupancySnapshot snapshot;
+
+    public OccupancyController(OccupancySnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    @GetMapping("/occupancy")
+    public ResponseEntity<StreamingResponseBody> occupancy(
+            @RequestParam(name = "app", required = false) List<String> apps,
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "limit", required = false) Integer limit) {
+        Set<String> appKeys = apps == null ? Set.of() : Set.copyOf(apps);
+        String cursor = (after == null || after.isBlank()) ? null : after.trim();
+        int pageSize = snapshot.normalizeLimit(limit);
+
+        StreamingResponseBody body = out -> snapshot.write(out, appKeys, cursor, pageSize);
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+}
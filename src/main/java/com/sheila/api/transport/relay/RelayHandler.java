@@ -0,0 +1,163 @@
+package com.sheila.api.transport.relay;
+
+import com.sheila.api.application.RoomDirectory;
+import com.sheila.api.application.RoomDirectory.RoomEntry;
+import com.sheila.api.core.dto.Endpoint;
+import com.sheila.api.transport.udp.NetUtil;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.util.CharsetUtil;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.sheila.api.application.ProbeTracker.key;
+
+/**
+ * Relay portu komutları:
+ * - BIND|<token>                         → BOUND|<üye ip:port>
+ * - RELAY|<hedef ip:port veya *>|payload → hedef(ler)e RELAYED|<kaynak ip:port>|payload
+ * Payload kopyalanmaz: gelen buffer'ın dilimi retain edilip yeni başlıkla birlikte yeniden adreslenir.
+ * Kanal yazılamazken (write buffer high watermark aşıldı) relay datagram'ları bütçe harcanmadan atılır.
+ * Henüz BIND etmemiş hedefe gönderilmez (ana port eşlemesi simetrik NAT'ta düşer); bu paketler "unbound" sayılır.
+ */
+final class RelayHandler extends SimpleChannelInboundHandler<DatagramPacket> {
+
+    private static final byte SEP = '|';
+
+    private final RelayRegistry registry;
+    private final RoomDirectory directory;
+    private final RelayMetrics metrics;
+
+    RelayHandler(RelayRegistry registry, RoomDirectory directory, RelayMetrics metrics) {
+        this.registry = registry;
+        this.directory = directory;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) {
+        ctx.flush();
+        ctx.fireChannelReadComplete();
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket packet) {
+        ByteBuf in = packet.content();
+        int start = in.readerIndex();
+        int end = in.writerIndex();
+        InetSocketAddress sender = packet.sender();
+        String relayKey = key(NetUtil.normalizeIp(sender.getAddress().getHostAddress()), sender.getPort());
+
+        int p1 = in.indexOf(start, end, SEP);
+        if (p1 < 0) {
+            metrics.malformed();
+            return;
+        }
+        String cmd = in.toString(start, p1 - start, CharsetUtil.US_ASCII);
+
+        switch (cmd) {
+            case "RELAY" -> {
+                int p2 = in.indexOf(p1 + 1, end, SEP);
+                if (p2 < 0) {
+                    metrics.malformed();
+                    return;
+                }
+                String target = in.toString(p1 + 1, p2 - p1 - 1, CharsetUtil.US_ASCII).trim();
+                relay(ctx, relayKey, target, in, p2 + 1, end - p2 - 1);
+            }
+            case "BIND" -> {
+                String token = in.toString(p1 + 1, end - p1 - 1, CharsetUtil.US_ASCII).trim();
+                Endpoint member = registry.bind(token, sender, relayKey);
+                reply(ctx, sender, member != null ? "BOUND|" + member : "ERR|RELAY_DENIED|invalid token");
+            }
+            default -> metrics.malformed();
+        }
+    }
+
+    private void relay(ChannelHandlerContext ctx, String relayKey, String target, ByteBuf in, int offset, int length) {
+        RelayRegistry.Binding binding = registry.bindingOfRelay(relayKey);
+        if (binding == null) {
+            metrics.denied();
+            return;
+        }
+        Endpoint src = binding.getMember();
+        String srcKey = key(src.getIp(), src.getPort());
+
+        ByteBuf header = Unpooled.copiedBuffer("RELAYED|" + src + "|", CharsetUtil.US_ASCII);
+        try {
+            if ("*".equals(target)) {
+                // Kaynağın odalarındaki herkese (kendisi hariç, tekrarsız)
+                Set<String> seen = new HashSet<>();
+                seen.add(srcKey);
+                for (RoomEntry room : directory.roomsOf(srcKey)) {
+                    List<Endpoint> targets = new ArrayList<>();
+                    for (Endpoint ep : room.members()) {
+                        if (seen.add(key(ep.getIp(), ep.getPort()))) targets.add(ep);
+                    }
+                    forward(ctx, room, targets, header, in, offset, length);
+                }
+            } else {
+                RoomEntry room = directory.sharedRoom(srcKey, target);
+                if (room == null) {
+                    metrics.denied();
+                    return;
+                }
+                Endpoint ep = parseEndpoint(target);
+                if (ep == null) {
+                    metrics.malformed();
+                    return;
+                }
+                forward(ctx, room, List.of(ep), header, in, offset, length);
+            }
+        } finally {
+            header.release();
+        }
+    }
+
+    private void forward(ChannelHandlerContext ctx, RoomEntry room, List<Endpoint> targets,
+                         ByteBuf header, ByteBuf in, int offset, int length) {
+        List<InetSocketAddress> addresses = new ArrayList<>(targets.size());
+        for (Endpoint ep : targets) {
+            InetSocketAddress a = registry.deliveryAddress(ep);
+            if (a != null) addresses.add(a);
+        }
+        if (addresses.size() < targets.size()) metrics.unbound(targets.size() - addresses.size());
+        if (addresses.isEmpty()) return;
+        int n = addresses.size();
+        if (!ctx.channel().isWritable()) {
+            metrics.backpressure(n);
+            return;
+        }
+        if (!registry.budget(room.getId()).tryConsume(n, (long) length * n)) {
+            metrics.throttled(n);
+            return;
+        }
+        for (InetSocketAddress a : addresses) {
+            // Başlık + payload dilimi: payload byte'ları kopyalanmaz, referans sayısı artırılır
+            ByteBuf out = Unpooled.wrappedBuffer(header.retainedDuplicate(), in.retainedSlice(offset, length));
+            ctx.write(new DatagramPacket(out, a));
+        }
+        metrics.relayed(n, (long) length * n);
+    }
+
+    private static void reply(ChannelHandlerContext ctx, InetSocketAddress target, String text) {
+        ctx.write(new DatagramPacket(Unpooled.copiedBuffer(text, CharsetUtil.UTF_8), target));
+    }
+
+    private static Endpoint parseEndpoint(String s) {
+        int i = s.lastIndexOf(':');
+        if (i <= 0) return null;
+        try {
+            return new Endpoint(s.substring(0, i), Integer.parseInt(s.substring(i + 1)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.sheila.api.transport.relay;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/** Relay veri düzlemi sayaçları; oda bazlı değerler RelayRegistry.RoomBudget'tadır. */
+@Component
+public class RelayMetrics {
+
+    private final Counter packets;
+    private final Counter bytes;
+    private final Counter denied;
+    private final Counter throttled;
+    private final Counter malformed;
+    private final Counter backpressure;
+    private final Counter unbound;
+
+    public RelayMetrics(MeterRegistry registry) {
+        this.packets = Counter.builder("sheila.relay.packets").description("Relayed datagrams").register(registry);
+        this.bytes = Counter.builder("sheila.relay.bytes").description("Relayed payload bytes").register(registry);
+        this.denied = dropped(registry, "denied");
+        this.throttled = dropped(registry, "throttled");
+        this.malformed = dropped(registry, "malformed");
+        this.backpressure = dropped(registry, "backpressure");
+        this.unbound = dropped(registry, "unbound");
+    }
+
+    private static Counter dropped(MeterRegistry registry, String reason) {
+        return Counter.builder("sheila.relay.dropped")
+                .description("Relay datagrams not forwarded")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    void relayed(int packetCount, long byteCount) {
+        packets.increment(packetCount);
+        bytes.increment(byteCount);
+    }
+
+    void denied() { denied.increment(); }
+    void throttled(int packetCount) { throttled.increment(packetCount); }
+    void malformed() { malformed.increment(); }
+    void backpressure(int packetCount) { backpressure.increment(packetCount); }
+    void unbound(int packetCount) { unbound.increment(packetCount); }
+}
@@ -0,0 +1,164 @@
+package com.sheila.api.transport.relay;
+
+import com.sheila.api.application.RoomDirectory;
+import com.sheila.api.application.TokenBucket;
+import com.sheila.api.core.dto.Endpoint;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetSocketAddress;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.sheila.api.application.ProbeTracker.key;
+
+/**
+ * Relay tahsisleri ve bağları.
+ * - Ana porttan RELAY_ALLOC → üye için tek kullanımlık token
+ * - Relay portundan BIND|<token> → relay endpoint'i (NAT'ın relay porta açtığı eşleme) üyeye bağlanır
+ * - Oda başına paket/byte bütçesi ve sayaçları
+ */
+@Component
+public class RelayRegistry {
+
+    private final RoomDirectory directory;
+    private final SecureRandom random = new SecureRandom();
+
+    private final Map<String, Allocation> allocations = new ConcurrentHashMap<>(); // token → üye
+    private final Map<String, Binding> byRelayEndpoint = new ConcurrentHashMap<>(); // relay ip:port → bağ
+    private final Map<String, Binding> byMember = new ConcurrentHashMap<>();        // üye ip:port → bağ
+    private final Map<String, RoomBudget> budgets = new ConcurrentHashMap<>();      // roomId → bütçe
+
+    @Value("${app.relay.enabled:false}") private boolean enabled;
+    @Value("${app.relay.port:9877}") private int port;
+    @Value("${app.relay.maxPacketsPerSec:2000}") private double maxPacketsPerSec;
+    @Value("${app.relay.maxBytesPerSec:2000000}") private double maxBytesPerSec;
+    @Value("${app.relay.idleTimeoutMs:60000}") private long idleTimeoutMs;
+
+    public RelayRegistry(RoomDirectory directory) {
+        this.directory = directory;
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public int getPort() { return port; }
+
+    /** Yalnızca bir odanın üyesi relay tahsis edebilir; değilse null. */
+    public String allocate(Endpoint member) {
+        if (!enabled || !directory.isMember(key(member.getIp(), member.getPort()))) return null;
+        String token = Long.toHexString(random.nextLong());
+        allocations.put(token, new Allocation(member, System.currentTimeMillis()));
+        return token;
+    }
+
+    /** Token'ı relay endpoint'ine bağlar; bağlanan üyeyi döner (token geçersizse null). */
+    public Endpoint bind(String token, InetSocketAddress relayAddress, String relayKey) {
+        Allocation a = allocations.remove(token);
+        if (a == null) return null;
+        String memberKey = key(a.member.getIp(), a.member.getPort());
+        Binding b = new Binding(a.member, relayAddress, relayKey);
+        Binding old = byMember.put(memberKey, b);
+        if (old != null) byRelayEndpoint.remove(old.relayKey);
+        byRelayEndpoint.put(relayKey, b);
+        return a.member;
+    }
+
+    public Binding bindingOfRelay(String relayKey) {
+        Binding b = byRelayEndpoint.get(relayKey);
+        if (b != null) b.lastUsed = System.currentTimeMillis();
+        return b;
+    }
+
+    /**
+     * Hedef üyenin relay eşlemesi; BIND etmemişse null. Ana port eşlemesine göndermek simetrik NAT'ta
+     * (eşleme hedefe özgü) düşer, bu yüzden bağlanmamış üyeye relay trafiği gönderilmez.
+     */
+    public InetSocketAddress deliveryAddress(Endpoint member) {
+        Binding b = byMember.get(key(member.getIp(), member.getPort()));
+        return b != null ? b.relayAddress : null;
+    }
+
+    public RoomBudget budget(String roomId) {
+        return budgets.computeIfAbsent(roomId, id -> new RoomBudget(maxPacketsPerSec, maxBytesPerSec));
+    }
+
+    public Map<String, RoomBudget> budgets() { return budgets; }
+
+    /** Boşta kalan bağları, kullanılmamış token'ları ve artık üyesi olmayan odaların bütçelerini temizler. */
+    @Scheduled(fixedDelayString = "${app.relay.sweepMs:10000}")
+    public void sweep() {
+        if (!enabled) return;
+        long cutoff = System.currentTimeMillis() - idleTimeoutMs;
+        allocations.values().removeIf(a -> a.createdAt < cutoff);
+        byMember.entrySet().removeIf(e -> {
+            Binding b = e.getValue();
+            boolean stale = b.lastUsed < cutoff || !directory.isMember(e.getKey());
+            if (stale) byRelayEndpoint.remove(b.relayKey);
+            return stale;
+        });
+        budgets.keySet().removeIf(roomId -> directory.room(roomId) == null);
+    }
+
+    private static final class Allocation {
+        final Endpoint member;
+        final long createdAt;
+
+        Allocation(Endpoint member, long createdAt) {
+            this.member = member;
+            this.createdAt = createdAt;
+        }
+    }
+
+    /** Relay endpoint'i ↔ oda üyesi bağı. */
+    public static final class Binding {
+        private final Endpoint member;
+        private final InetSocketAddress relayAddress;
+        private final String relayKey;
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        Binding(Endpoint member, InetSocketAddress relayAddress, String relayKey) {
+            this.member = member;
+            this.relayAddress = relayAddress;
+            this.relayKey = relayKey;
+        }
+
+        public Endpoint getMember() { return member; }
+    }
+
+    /** Oda başına relay hız sınırı ve sayaçları. */
+    public static final class RoomBudget {
+        private final TokenBucket packets;
+        private final TokenBucket bytes;
+        private final LongAdder relayedPackets = new LongAdder();
+        private final LongAdder relayedBytes = new LongAdder();
+        private final LongAdder throttled = new LongAdder();
+
+        RoomBudget(double packetsPerSec, double bytesPerSec) {
+            this.packets = new TokenBucket(packetsPerSec, packetsPerSec);
+            this.bytes = new TokenBucket(bytesPerSec, bytesPerSec);
+        }
+
+        /**
+         * Bütçe yetiyorsa sayaçları işler ve true döner. Önce iki kova birlikte denetlenir, sonra ikisinden de harcanır:
+         * byte bütçesine takılan paket, paket bütçesinden token yakmaz.
+         */
+        synchronized boolean tryConsume(int packetCount, long byteCount) {
+            if (packets.available() < packetCount || bytes.available() < byteCount) {
+                throttled.add(packetCount);
+                return false;
+            }
+            // Kovalar yalnızca bu kilit altında harcanır ve denetimden beri yalnızca dolmuş olabilir
+            packets.tryAcquire(packetCount);
+            bytes.tryAcquire(byteCount);
+            relayedPackets.add(packetCount);
+            relayedBytes.add(byteCount);
+            return true;
+        }
+
+        public long getRelayedPackets() { return relayedPackets.sum(); }
+        public long getRelayedBytes() { return relayedBytes.sum(); }
+        public long getThrottled() { return throttled.sum(); }
+    }
+}
@@ -0,0 +1,97 @@
+package com.sheila.api.transport.relay;
+
+import com.sheila.api.application.RoomDirectory;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.*;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hole-punch yapamayan istemciler için relay veri düzlemi.
+ * Kendi event loop grubunda ve ayrı portta çalışır; relay trafiği kontrol komutlarını aç bırakamaz.
+ */
+@Component
+public class RelayServer {
+
+    private static final Logger log = LoggerFactory.getLogger(RelayServer.class);
+
+    private final RelayRegistry registry;
+    private final RoomDirectory directory;
+    private final RelayMetrics metrics;
+
+    @Value("${app.relay.threads:1}")
+    private int threads;
+    @Value("${app.udp.epoll:true}")
+    private boolean epollEnabled;
+    @Value("${app.relay.writeBufferLowBytes:262144}")
+    private int writeBufferLowBytes;
+    @Value("${app.relay.writeBufferHighBytes:1048576}")
+    private int writeBufferHighBytes;
+
+    private EventLoopGroup group;
+    private final List<Channel> channels = new ArrayList<>();
+
+    public RelayServer(RelayRegistry registry, RoomDirectory directory, RelayMetrics metrics) {
+        this.registry = registry;
+        this.directory = directory;
+        this.metrics = metrics;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() throws InterruptedException {
+        if (!registry.isEnabled() || !channels.isEmpty()) return;
+
+        boolean useEpoll = epollEnabled && Epoll.isAvailable();
+        int n = Math.max(1, threads);
+        DefaultThreadFactory tf = new DefaultThreadFactory("udp-relay", true);
+        group = useEpoll ? new EpollEventLoopGroup(n, tf) : new NioEventLoopGroup(n, tf);
+
+        Bootstrap bootstrap = new Bootstrap()
+                .group(group)
+                .channel(useEpoll ? EpollDatagramChannel.class : NioDatagramChannel.class)
+                // high watermark aşılınca isWritable()=false → RelayHandler relay trafiğini atar
+                .option(ChannelOption.WRITE_BUFFER_WATER_MARK,
+                        new WriteBufferWaterMark(writeBufferLowBytes, writeBufferHighBytes))
+                .handler(new ChannelInitializer<DatagramChannel>() {
+                    @Override
+                    protected void initChannel(DatagramChannel ch) {
+                        ch.pipeline().addLast(new RelayHandler(registry, directory, metrics));
+                    }
+                });
+
+        // epoll'da SO_REUSEPORT ile thread başına bir soket; NIO'da tek soket
+        int sockets = useEpoll ? n : 1;
+        if (useEpoll && sockets > 1) bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+        for (int i = 0; i < sockets; i++) {
+            channels.add(bootstrap.bind(registry.getPort()).sync().channel());
+        }
+
+        log.info("UDP relay listening on port {} (transport={}, sockets={})",
+                registry.getPort(), useEpoll ? "epoll" : "nio", sockets);
+    }
+
+    @PreDestroy
+    public void stop() {
+        try {
+            for (Channel ch : channels) ch.close().syncUninterruptibly();
+        } finally {
+            if (group != null) group.shutdownGracefully();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.sheila.api.transport.udp;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelOutboundInvoker;
+import io.netty.channel.unix.SegmentedDatagramPacket;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.util.CharsetUtil;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tek flush'ta gönderilecek datagram'ları toplar (event loop'a özel, thread-safe değildir).
+ * - Hepsi write edilip tek flush atılır → epoll'da sendmmsg ile az sayıda syscall
+ * - GSO açıksa aynı hedefe giden ardışık eş boyutlu datagram'lar tek UDP_SEGMENT paketinde birleşir
+ */
+final class DatagramBatch {
+
+    /** UDP_SEGMENT ile tek sendmsg'de taşınabilecek en fazla payload. */
+    private static final int GSO_MAX_BYTES = 65_000;
+
+    private final Map<InetSocketAddress, List<ByteBuf>> byTarget = new LinkedHashMap<>();
+    private int size;
+
+    void add(InetSocketAddress target, String text) {
+        add(target, Unpooled.copiedBuffer(text, CharsetUtil.UTF_8));
+    }
+
+    void add(InetSocketAddress target, ByteBuf content) {
+        byTarget.computeIfAbsent(target, t -> new ArrayList<>(2)).add(content);
+        size++;
+    }
+
+    boolean isEmpty() { return size == 0; }
+
+    int size() { return size; }
+
+    /** Toplananları yazar ve tek flush atar. */
+    void flush(ChannelOutboundInvoker out, UdpTransportSettings settings, UdpMetrics metrics) {
+        if (size == 0) return;
+        for (Map.Entry<InetSocketAddress, List<ByteBuf>> e : byTarget.entrySet()) {
+            write(out, e.getKey(), e.getValue(), settings, metrics);
+        }
+        out.flush();
+        metrics.recordFlush(size);
+        byTarget.clear();
+        size = 0;
+    }
+
+    private static void write(ChannelOutboundInvoker out, InetSocketAddress target, List<ByteBuf> bufs,
+                              UdpTransportSettings settings, UdpMetrics metrics) {
+        int n = bufs.size();
+        int i = 0;
+        while (i < n) {
+            ByteBuf first = bufs.get(i);
+            int segment = first.readableBytes();
+            int j = i + 1;
+            if (settings.gso() && segment > 0) {
+                int maxSegments = Math.min(settings.gsoMaxSegments(), GSO_MAX_BYTES / segment);
+                while (j < n && j - i < maxSegments && bufs.get(j).readableBytes() == segment) j++;
+            }
+
+            if (j - i >= 2) {
+                CompositeByteBuf joined = Unpooled.compositeBuffer(j - i);
+                for (int k = i; k < j; k++) joined.addComponent(true, bufs.get(k));
+                out.write(new SegmentedDatagramPacket(joined, segment, target)).addListener(metrics.failureListener());
+                metrics.recordGso(j - i);
+            } else {
+                out.write(new DatagramPacket(first, target)).addListener(metrics.failureListener());
+            }
+            i = j;
+        }
+    }
+}
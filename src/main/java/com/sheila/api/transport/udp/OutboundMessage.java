@@ -0,0 +1,16 @@
+package com.sheila.api.transport.udp;
+
+import com.sheila.api.core.dto.Endpoint;
+
+/** UdpMessenger.sendBatch için tek bir giden datagram. */
+public class OutboundMessage {
+    private final Endpoint target;
+    private final String text;
+
+    public OutboundMessage(Endpoint target, String text) {
+        this.target = target;
+        this.text = text;
+    }
+    public Endpoint getTarget() { return target; }
+    public String getText() { return text; }
+}
@@ -0,0 +1,134 @@
+package com.sheila.api.transport.udp;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tekrar gönderilen isteklerin (yanıtı kaybolan JOIN/LIST/LEAVE) kısa ömürlü yanıt önbelleği.
+ * Anahtar: gönderen endpoint + istemci request id'si (rid=...) ya da payload'ın 64-bit FNV-1a özeti.
+ * Boyut ve süre sınırlıdır; ekleme sırası korunduğundan süresi dolanlar baştan temizlenir.
+ * Yalnızca birebir tekrar karşılanır: gönderenin storage'a giden her yeni isteği (begin/invalidate) onun önbellekteki
+ * tüm yanıtlarını düşürür (JOIN → LEAVE → JOIN ikinci JOIN'de eski ROOM'u dönmez) ve o ana dek yolda olan
+ * isteklerinin yanıtlarının önbelleğe yazılmasını engeller.
+ */
+final class ResponseCache {
+
+    private final long windowMs;
+    private final int maxEntries;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+    private final Map<String, Sender> senders = new HashMap<>(); // endpoint → önbellekteki anahtarları, yoldaki istekleri
+    private long epochs;
+
+    ResponseCache(long windowMs, int maxEntries) {
+        this.windowMs = windowMs;
+        this.maxEntries = maxEntries;
+    }
+
+    static String key(String endpointKey, String requestId, String payload) {
+        return requestId != null
+                ? endpointKey + "#rid=" + requestId
+                : endpointKey + "#" + Long.toHexString(fnv1a64(payload));
+    }
+
+    /** Pencere içindeki yanıtları döner; yoksa null. rid yoksa özet çakışmasına karşı payload da karşılaştırılır. */
+    synchronized List<String> get(String key, String payload, boolean byRequestId, long now) {
+        Entry e = entries.get(key);
+        if (e == null || e.expiresAt < now) return null;
+        if (!byRequestId && !e.payload.equals(payload)) return null;
+        return e.replies;
+    }
+
+    /** Önbellekte olmayan istek storage'a gidiyor: gönderenin yanıtları düşer; complete'e verilecek dönemi döner. */
+    synchronized long begin(String endpointKey) {
+        Sender s = drop(endpointKey);
+        s.inFlight++;
+        return s.epoch;
+    }
+
+    /** Önbelleğe alınmayan yeni istek (rid'siz LIST): yalnızca gönderenin yanıtlarını ve yoldakilerin yazımını düşürür. */
+    synchronized void invalidate(String endpointKey) {
+        Sender s = drop(endpointKey);
+        release(endpointKey, s);
+    }
+
+    /**
+     * begin ile başlayan istek bitti. replies null değilse ve bu arada gönderenin yeni bir isteği başlamadıysa
+     * yanıtlar pencere süresince saklanır.
+     */
+    synchronized void complete(String endpointKey, long epoch, String key, String payload, List<String> replies, long now) {
+        Sender s = senders.get(endpointKey);
+        if (s == null) return;
+        s.inFlight--;
+        if (replies != null && s.epoch == epoch) {
+            evict(now);
+            entries.remove(key); // yeniden ekleme sıranın sonuna taşır
+            entries.put(key, new Entry(endpointKey, payload, List.copyOf(replies), now + windowMs));
+            s.keys.add(key);
+        }
+        release(endpointKey, s);
+    }
+
+    synchronized int size() { return entries.size(); }
+
+    private void evict(long now) {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Entry> head = it.next();
+            if (head.getValue().expiresAt >= now && entries.size() < maxEntries) break;
+            it.remove();
+            String endpointKey = head.getValue().endpointKey;
+            Sender s = senders.get(endpointKey);
+            if (s != null) {
+                s.keys.remove(head.getKey());
+                release(endpointKey, s);
+            }
+        }
+    }
+
+    /** Gönderenin önbellekteki yanıtlarını siler ve yeni bir dönem başlatır. */
+    private Sender drop(String endpointKey) {
+        Sender s = senders.computeIfAbsent(endpointKey, k -> new Sender());
+        for (String key : s.keys) entries.remove(key);
+        s.keys.clear();
+        s.epoch = ++epochs;
+        return s;
+    }
+
+    private void release(String endpointKey, Sender s) {
+        if (s.keys.isEmpty() && s.inFlight == 0) senders.remove(endpointKey);
+    }
+
+    private static long fnv1a64(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private static final class Sender {
+        final Set<String> keys = new HashSet<>(2);
+        long epoch;
+        int inFlight;
+    }
+
+    private static final class Entry {
+        final String endpointKey;
+        final String payload;
+        final List<String> replies;
+        final long expiresAt;
+
+        Entry(String endpointKey, String payload, List<String> replies, long expiresAt) {
+            this.endpointKey = endpointKey;
+            this.payload = payload;
+            this.replies = replies;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
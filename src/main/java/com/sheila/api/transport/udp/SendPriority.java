@@ -0,0 +1,12 @@
+package com.sheila.api.transport.udp;
+
+/**
+ * Kanal yazılamaz (write buffer high watermark aşıldı) olduğunda hangi trafiğin önce atılacağı.
+ * PROBE önce atılır; MEMBERSHIP ancak buffer sert sınırı da aşarsa atılır.
+ */
+public enum SendPriority {
+    MEMBERSHIP,
+    PROBE;
+
+    String tag() { return name().toLowerCase(); }
+}
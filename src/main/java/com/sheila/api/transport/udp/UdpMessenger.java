@@ -1,29 +1,101 @@
 package com.sheila.api.transport.udp;
 
-import io.netty.buffer.Unpooled;
+import com.sheila.api.core.dto.Endpoint;
 import io.netty.channel.Channel;
-import io.netty.channel.socket.DatagramPacket;
-import io.netty.util.CharsetUtil;
+import io.netty.channel.ChannelOutboundBuffer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Handler dışındaki bean'lerin (prober, olay kaydı) UDP gönderim noktası.
+ * - Event loop dışından gelen batch tek görevle event loop'a devredilir ve bir kez flush edilir.
+ * - Kanal yazılamazsa trafik önceliğe göre atılır: önce PROBE, buffer sert sınırı da aşılırsa MEMBERSHIP.
+ */
 @Component
 public class UdpMessenger {
     private final AtomicReference<Channel> channelRef = new AtomicReference<>();
+    private final UdpMetrics metrics;
+    private volatile UdpTransportSettings settings = UdpTransportSettings.PLAIN;
 
-    void setChannel(Channel ch) { channelRef.set(ch); }
+    @Value("${app.udp.membershipOverflowBytes:4194304}")
+    private long membershipOverflowBytes;
+
+    // Event loop içinde biriken gönderimler (yalnızca event loop thread'i erişir)
+    private final DatagramBatch pending = new DatagramBatch();
+    private boolean flushScheduled;
+
+    public UdpMessenger(UdpMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    void setChannel(Channel ch, UdpTransportSettings settings) {
+        this.settings = settings;
+        channelRef.set(ch);
+    }
     public boolean isReady() {
         Channel ch = channelRef.get();
         return ch != null && ch.isActive();
     }
     public void send(String ip, int port, String text) {
+        send(ip, port, text, SendPriority.MEMBERSHIP);
+    }
+
+    public void send(String ip, int port, String text, SendPriority priority) {
+        sendBatch(List.of(new OutboundMessage(new Endpoint(ip, port), text)), priority);
+    }
+
+    /** Batch'in tamamı tek event loop görevinde yazılır ve bir kez flush edilir. */
+    public void sendBatch(List<OutboundMessage> batch, SendPriority priority) {
+        if (batch.isEmpty()) return;
         Channel ch = channelRef.get();
-        if (ch == null || !ch.isActive()) return;
-        ch.writeAndFlush(new DatagramPacket(
-                Unpooled.copiedBuffer(text, CharsetUtil.UTF_8),
-                new InetSocketAddress(ip, port)
-        ));
+        if (ch == null || !ch.isActive()) {
+            metrics.recordDropped(priority, batch.size());
+            return;
+        }
+
+        // Handler akışından gelen fan-out: mevcut okuma döngüsü bitince toplu flush
+        if (ch.eventLoop().inEventLoop()) {
+            enqueue(ch, batch, priority);
+            if (!flushScheduled) {
+                flushScheduled = true;
+                ch.eventLoop().execute(() -> flushPending(ch));
+            }
+            return;
+        }
+        try {
+            ch.eventLoop().execute(() -> {
+                enqueue(ch, batch, priority);
+                flushPending(ch);
+            });
+        } catch (RejectedExecutionException e) {
+            metrics.recordDropped(priority, batch.size()); // kapanış sırasında
+        }
+    }
+
+    private void enqueue(Channel ch, List<OutboundMessage> batch, SendPriority priority) {
+        if (shouldShed(ch, priority)) {
+            metrics.recordDropped(priority, batch.size());
+            return;
+        }
+        for (OutboundMessage m : batch) {
+            pending.add(new InetSocketAddress(m.getTarget().getIp(), m.getTarget().getPort()), m.getText());
+        }
+    }
+
+    private boolean shouldShed(Channel ch, SendPriority priority) {
+        if (ch.isWritable()) return false;
+        if (priority == SendPriority.PROBE) return true;
+        ChannelOutboundBuffer buf = ch.unsafe().outboundBuffer();
+        return buf == null || buf.totalPendingWriteBytes() >= membershipOverflowBytes;
+    }
+
+    private void flushPending(Channel ch) {
+        flushScheduled = false;
+        pending.flush(ch, settings, metrics);
     }
 }
@@ -0,0 +1,82 @@
+package com.sheila.api.transport.udp;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelFutureListener;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * UDP katmanı sayaçları (actuator /metrics altında görünür).
+ * - rx: bir okuma döngüsünde (channelRead'lerden channelReadComplete'e; epoll'da bir ya da birkaç recvmmsg) alınan
+ *   datagram sayısı; syscall başına değil, döngü başınadır
+ * - tx: tek flush'ta (epoll'da sendmmsg) yazılan datagram sayısı, GSO ile birleştirilen segmentler
+ * - dropped/failed: backpressure nedeniyle atılan ve yazımı başarısız olan gönderimler
+ * - dedup: yanıt önbelleğinden cevaplanan tekrar istekler
+ */
+@Component
+public class UdpMetrics {
+
+    private final DistributionSummary rxPerCycle;
+    private final DistributionSummary txPerFlush;
+    private final Counter gsoPackets;
+    private final Counter gsoSegments;
+    private final Counter failed;
+    private final Map<SendPriority, Counter> dropped = new EnumMap<>(SendPriority.class);
+    private final ChannelFutureListener failureListener;
+    private final Counter dedupHits;
+    private final Counter dedupMisses;
+
+    public UdpMetrics(MeterRegistry registry) {
+        this.rxPerCycle = DistributionSummary.builder("sheila.udp.rx.datagrams.per.cycle")
+                .description("Datagrams received per read cycle (one or more recvmmsg calls until readComplete)")
+                .register(registry);
+        this.txPerFlush = DistributionSummary.builder("sheila.udp.tx.datagrams.per.flush")
+                .description("Datagrams written per flush")
+                .register(registry);
+        this.gsoPackets = Counter.builder("sheila.udp.tx.gso.packets")
+                .description("UDP_SEGMENT sends")
+                .register(registry);
+        this.gsoSegments = Counter.builder("sheila.udp.tx.gso.segments")
+                .description("Datagrams carried by UDP_SEGMENT sends")
+                .register(registry);
+        this.failed = Counter.builder("sheila.udp.tx.failed")
+                .description("Datagram writes that completed with an error")
+                .register(registry);
+        for (SendPriority p : SendPriority.values()) {
+            dropped.put(p, Counter.builder("sheila.udp.tx.dropped")
+                    .description("Datagrams shed because the channel was not writable")
+                    .tag("priority", p.tag())
+                    .register(registry));
+        }
+        this.dedupHits = Counter.builder("sheila.udp.dedup.hits")
+                .description("Retransmitted requests answered from the response cache")
+                .register(registry);
+        this.dedupMisses = Counter.builder("sheila.udp.dedup.misses")
+                .description("Cacheable requests that ran the full path")
+                .register(registry);
+        this.failureListener = f -> {
+            if (!f.isSuccess()) failed.increment();
+        };
+    }
+
+    void recordReadCycle(int datagrams) { rxPerCycle.record(datagrams); }
+
+    void recordFlush(int datagrams) { txPerFlush.record(datagrams); }
+
+    void recordDropped(SendPriority priority, int datagrams) { dropped.get(priority).increment(datagrams); }
+
+    ChannelFutureListener failureListener() { return failureListener; }
+
+    void recordDedupHit() { dedupHits.increment(); }
+
+    void recordDedupMiss() { dedupMisses.increment(); }
+
+    void recordGso(int segments) {
+        gsoPackets.increment();
+        gsoSegments.increment(segments);
+    }
+}
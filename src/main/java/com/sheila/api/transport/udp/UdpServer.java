@@ -1,10 +1,21 @@
 package com.sheila.api.transport.udp;
 
-import com.sheila.api.application.RoomService;
+import com.sheila.api.application.MembershipEventLog;
+import com.sheila.api.application.AsyncRoomService;
+import com.sheila.api.application.ServerClock;
 import com.sheila.api.application.ServerProber;
+import com.sheila.api.application.SessionRegistry;
+import com.sheila.api.application.TenantScheduler;
+import com.sheila.api.infrastructure.trace.RequestTracer;
+import com.sheila.api.transport.relay.RelayRegistry;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.*;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
 import io.netty.channel.socket.nio.NioDatagramChannel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,16 +33,50 @@ public class UdpServer {
 
     @Value("${app.udp.port:9876}")
     private int port;
-    private final RoomService roomService;
+    @Value("${app.udp.epoll:true}")
+    private boolean epollEnabled;
+    @Value("${app.udp.maxDatagramSize:1472}")
+    private int maxDatagramSize;
+    @Value("${app.udp.recvBatch:32}")
+    private int recvBatch;
+    @Value("${app.udp.gso:true}")
+    private boolean gsoEnabled;
+    @Value("${app.udp.gsoMaxSegments:64}")
+    private int gsoMaxSegments;
+    @Value("${app.udp.dedup.windowMs:3000}")
+    private long dedupWindowMs;
+    @Value("${app.udp.dedup.maxEntries:50000}")
+    private int dedupMaxEntries;
+    @Value("${app.udp.writeBufferLowBytes:262144}")
+    private int writeBufferLowBytes;
+    @Value("${app.udp.writeBufferHighBytes:1048576}")
+    private int writeBufferHighBytes;
+    private final AsyncRoomService rooms;
+    private final TenantScheduler scheduler;
     private EventLoopGroup group;
     private Channel channel;
     private final UdpMessenger messenger;
     private final ServerProber prober;
+    private final MembershipEventLog events;
+    private final UdpMetrics metrics;
+    private final RelayRegistry relays;
+    private final RequestTracer tracer;
+    private final SessionRegistry sessions;
+    private final ServerClock clock;
 
-    public UdpServer(RoomService roomService, UdpMessenger messenger, ServerProber prober) {
-        this.roomService = roomService;
+    public UdpServer(AsyncRoomService rooms, TenantScheduler scheduler, UdpMessenger messenger,
+                     ServerProber prober, MembershipEventLog events, UdpMetrics metrics, RelayRegistry relays,
+                     RequestTracer tracer, SessionRegistry sessions, ServerClock clock) {
+        this.rooms = rooms;
+        this.scheduler = scheduler;
         this.messenger = messenger;
         this.prober = prober;
+        this.events = events;
+        this.metrics = metrics;
+        this.relays = relays;
+        this.tracer = tracer;
+        this.sessions = sessions;
+        this.clock = clock;
     }
 
     @EventListener(ApplicationReadyEvent.class)
@@ -42,27 +87,43 @@ public class UdpServer {
             return;
         }
 
-        group = new NioEventLoopGroup();
+        boolean useEpoll = epollEnabled && Epoll.isAvailable();
+        UdpTransportSettings settings = new UdpTransportSettings(
+                useEpoll && gsoEnabled && EpollDatagramChannel.isSegmentedDatagramPacketSupported(), gsoMaxSegments);
+        ResponseCache responses = new ResponseCache(dedupWindowMs, dedupMaxEntries);
+
+        group = useEpoll ? new EpollEventLoopGroup() : new NioEventLoopGroup();
 
         Bootstrap bootstrap = new Bootstrap()
                 .group(group)
-                .channel(NioDatagramChannel.class)
+                .channel(useEpoll ? EpollDatagramChannel.class : NioDatagramChannel.class)
                 .option(ChannelOption.SO_BROADCAST, false)
-                .handler(new ChannelInitializer<NioDatagramChannel>() {
+                // high watermark aşılınca isWritable()=false → UdpMessenger önceliğe göre trafik atar
+                .option(ChannelOption.WRITE_BUFFER_WATER_MARK,
+                        new WriteBufferWaterMark(writeBufferLowBytes, writeBufferHighBytes))
+                .handler(new ChannelInitializer<DatagramChannel>() {
                     @Override
-                    protected void initChannel(NioDatagramChannel ch) {
-                        ch.pipeline().addLast(new UdpServerHandler(roomService, prober));
+                    protected void initChannel(DatagramChannel ch) {
+                        ch.pipeline().addLast(newHandler(settings, responses));
                     }
                 });
 
+        if (useEpoll && recvBatch > 1) {
+            // MAX_DATAGRAM_PAYLOAD_SIZE > 0 ve buffer birden çok datagram alabiliyorsa Netty recvmmsg kullanır
+            bootstrap.option(EpollChannelOption.MAX_DATAGRAM_PAYLOAD_SIZE, maxDatagramSize)
+                    .option(ChannelOption.RCVBUF_ALLOCATOR,
+                            new FixedRecvByteBufAllocator(maxDatagramSize * recvBatch));
+        }
+
         // Porta bağlan
         ChannelFuture bindFuture = bootstrap.bind(port).sync();
         channel = bindFuture.channel();
 
         // Diğer bean'lerin UDP mesajı gönderebilmesi için channel'ı paylaş
-        messenger.setChannel(channel);
+        messenger.setChannel(channel, settings);
 
-        log.info("Netty UDP Server listening on port {}", port);
+        log.info("Netty UDP Server listening on port {} (transport={}, recvBatch={}, gso={})",
+                port, useEpoll ? "epoll" : "nio", useEpoll ? recvBatch : 1, settings.gso());
 
         // Kapanışı arka planda bekle
         Thread waiter = new Thread(() -> {
@@ -76,6 +137,20 @@ public class UdpServer {
         waiter.start();
     }
 
+    /**
+     * Sunucu handler'ını soket açmadan verilen kanala kurar ve messenger'ı ona bağlar.
+     * Ağ simülatörü (tools.sim) EmbeddedChannel ile kullanır; GSO kapalıdır.
+     */
+    public void attach(Channel ch) {
+        ch.pipeline().addLast(newHandler(UdpTransportSettings.PLAIN, new ResponseCache(dedupWindowMs, dedupMaxEntries)));
+        messenger.setChannel(ch, UdpTransportSettings.PLAIN);
+    }
+
+    private UdpServerHandler newHandler(UdpTransportSettings settings, ResponseCache responses) {
+        return new UdpServerHandler(rooms, scheduler, prober, events, metrics, settings, relays, responses, tracer,
+                sessions, clock);
+    }
+
     @PreDestroy
     public void stop() {
         try {
@@ -1,162 +1,741 @@
 package com.sheila.api.transport.udp;
 
-import com.sheila.api.application.RoomService;
+import com.sheila.api.application.AsyncRoomService;
+import com.sheila.api.application.LinkStats;
+import com.sheila.api.application.MembershipEventLog;
+import com.sheila.api.application.MembershipEventLog.Mark;
+import com.sheila.api.application.ProbeTracker;
+import com.sheila.api.application.ServerClock;
 import com.sheila.api.application.ServerProber;
+import com.sheila.api.application.SessionRegistry;
+import com.sheila.api.application.SessionRegistry.Session;
+import com.sheila.api.application.TenantScheduler;
+import com.sheila.api.application.TenantScheduler.Lane;
 import com.sheila.api.core.dto.Endpoint;
+import com.sheila.api.core.dto.GroupJoinResult;
 import com.sheila.api.core.dto.RoomJoinResult;
 import com.sheila.api.core.exception.AppNotFoundException;
 import com.sheila.api.core.exception.ApplicationCapacityExceededException;
 import com.sheila.api.core.exception.RoomFullException;
-import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
+import com.sheila.api.core.exception.TenantOverloadedException;
+import com.sheila.api.infrastructure.trace.RequestTrace;
+import com.sheila.api.infrastructure.trace.RequestTrace.Stage;
+import com.sheila.api.infrastructure.trace.RequestTracer;
+import com.sheila.api.transport.relay.RelayRegistry;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.channel.socket.DatagramPacket;
 import io.netty.util.CharsetUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
 
 import static com.sheila.api.transport.udp.UdpMessageUtil.joinClientsList;
 import static com.sheila.api.transport.udp.UdpMessageUtil.tryParseCapacity;
 
+/**
+ * UDP komutlarını işler; event loop hiçbir zaman I/O beklemez.
+ * - Storage gerektiren komutlar uygulamanın TenantScheduler kuyruğundan AsyncRoomService'e verilir,
+ *   yanıt Mono tamamlanınca event loop'ta yazılır.
+ * - Okuma döngüsünde biriken yanıtlar channelReadComplete'te, döngü dışında tamamlananlar tek flush görevinde çıkar.
+ * - Her istek kendi bağlamını (gönderen, iz, önbellek anahtarı, yakalanan yanıtlar) taşır.
+ * - Komutlar şeride ayrılır: CONTROL (PING/PONG/LEAVE) hemen ve öncelikli slotlarda, HEAVY (JOIN/JOIN_ANY/JOIN_MULTI/LIST)
+ *   okuma döngüsünün sonunda başlatılır; böylece aynı batch'teki canlılık trafiği JOIN'lerin önüne geçer.
+ * - LIST/LEAVE/PING/PONG, JOIN'in döndüğü sid=<hex> ile gelirse uygulama/oda çözümü atlanır:
+ *   oturum bellekten, üye kaydı oda id'si üzerinden bulunur.
+ * - Canlılık (probe sayacı) yalnızca üyeliği doğrulanmış komutla sayılır: geçerli sid, gönderenin üyesi olduğu
+ *   odayı adlandıran PING/PONG/LIST ya da akışı olan odaya ACK. Sahte kaynaklı datagram probe'u erteleyemez.
+ * - PONG, SRV_PING'deki seq=/ts= alanlarını yansıtırsa RTT örneği alınır; ROOM yanıtları ölçülmüş üyelerin
+ *   sunucuya RTT'sini rtt=[ip:port=ms,...] ile taşır (istemciler host/relay seçiminde kullanır).
+ */
 public class UdpServerHandler extends SimpleChannelInboundHandler<DatagramPacket> {
 
     private static final Logger log = LoggerFactory.getLogger(UdpServerHandler.class);
 
-    private final RoomService roomService;
+    /**
+     * Yanıtı kaybolunca istemcinin tekrar gönderdiği, yan etkili komutlar. LIST yalnızca rid= ile önbellekten
+     * karşılanır: rid'siz periyodik LIST tekrarla ayırt edilemez, her seferinde okunur ve lastSeen'i tazeler.
+     */
+    private static final Set<String> DEDUP_COMMANDS = Set.of("JOIN", "JOIN_ANY", "JOIN_MULTI", "LIST", "LEAVE");
+
+    /** Storage'ı uzun tutan komutlar; okuma döngüsü bitene kadar ertelenir ve HEAVY şeridinde çalışır. */
+    private static final Set<String> HEAVY_COMMANDS = Set.of("JOIN", "JOIN_ANY", "JOIN_MULTI", "LIST");
+
+    private final AsyncRoomService rooms;
+    private final TenantScheduler scheduler;
     private final ServerProber prober;
+    private final MembershipEventLog events;
+    private final UdpMetrics metrics;
+    private final UdpTransportSettings settings;
+    private final RelayRegistry relays;
+    private final ResponseCache responses;
+    private final RequestTracer tracer;
+    private final SessionRegistry sessions;
+    private final ServerClock clock;
 
-    public UdpServerHandler(RoomService roomService, ServerProber prober) {
-        this.roomService = roomService;
+    // Aşağıdakilere yalnızca event loop thread'i erişir
+    private final DatagramBatch out = new DatagramBatch();
+    private final List<RequestTrace> awaitingFlush = new ArrayList<>(); // yanıtları flush'ı bekleyen izler
+    private final Set<String> inFlight = new HashSet<>();               // işlenmekte olan dedup anahtarları
+    private final List<Runnable> deferredHeavy = new ArrayList<>();     // bu döngüde okunan HEAVY komutlar
+    private int readsInCycle;
+    private boolean flushScheduled;
+    private Scheduler loop;
+
+    public UdpServerHandler(AsyncRoomService rooms, TenantScheduler scheduler, ServerProber prober,
+                            MembershipEventLog events, UdpMetrics metrics, UdpTransportSettings settings, RelayRegistry relays,
+                            ResponseCache responses, RequestTracer tracer, SessionRegistry sessions, ServerClock clock) {
+        this.rooms = rooms;
+        this.scheduler = scheduler;
         this.prober = prober;
+        this.events = events;
+        this.metrics = metrics;
+        this.settings = settings;
+        this.relays = relays;
+        this.responses = responses;
+        this.tracer = tracer;
+        this.sessions = sessions;
+        this.clock = clock;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        loop = Schedulers.fromExecutor(ctx.executor());
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) {
+        if (!deferredHeavy.isEmpty()) {
+            // CONTROL komutlar zaten kuyrukta; HEAVY olanlar okundukları sırayla şimdi başlar
+            for (Runnable start : deferredHeavy) start.run();
+            deferredHeavy.clear();
+        }
+        if (readsInCycle > 0) {
+            metrics.recordReadCycle(readsInCycle);
+            readsInCycle = 0;
+        }
+        flush(ctx);
+        ctx.fireChannelReadComplete();
     }
 
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket packet) {
+        readsInCycle++;
+        long received = clock.nanoTime();
+        RequestTrace trace = tracer.begin(received);
+        try {
+            handle(ctx, packet, received, trace);
+        } finally {
+            if (trace != null) tracer.suspend();
+        }
+    }
+
+    private void handle(ChannelHandlerContext ctx, DatagramPacket packet, long received, RequestTrace trace) {
         String msg = packet.content().toString(CharsetUtil.UTF_8).trim();
         InetSocketAddress sender = packet.sender();
         String rawIp = packet.sender().getAddress().getHostAddress();
         String senderIp = NetUtil.normalizeIp(rawIp);
         int senderPort = sender.getPort();
+        Request req = new Request(sender, senderIp, senderPort, msg, received, trace);
+        if (trace != null) trace.sender(ProbeTracker.key(senderIp, senderPort));
 
         if (msg.isEmpty()) {
-            send(ctx, sender, "ERR|BAD_REQUEST|empty message");
+            send(req, "ERR|BAD_REQUEST|empty message");
+            done(ctx, req);
             return;
         }
 
         String[] parts = msg.split("\\|");
         String cmd = parts[0].trim().toUpperCase();
 
-        try {
-            switch (cmd) {
-                case "JOIN" -> handleJoin(ctx, sender, parts, senderIp, senderPort);
-                case "LEAVE" -> handleLeave(ctx, sender, parts, senderIp, senderPort);
-                case "LIST" -> handleList(ctx, sender, parts , senderIp , senderPort);
-                case "PING" -> handlePing(ctx, sender, parts, senderIp, senderPort);
-                case "PONG" -> handlePong(ctx, sender, parts, senderIp, senderPort);
-                default -> send(ctx, sender, "ERR|UNKNOWN_COMMAND|" + cmd);
+        // Opsiyonel son alan rid=<id>: istemcinin request id'si (tekrar gönderimde aynı kalır)
+        String requestId = null;
+        if (parts.length > 1 && parts[parts.length - 1].trim().startsWith("rid=")) {
+            requestId = parts[parts.length - 1].trim().substring(4);
+            parts = Arrays.copyOf(parts, parts.length - 1);
+        }
+        if (trace != null) {
+            trace.command(cmd, !"ACK".equals(cmd) && parts.length > 1 ? parts[1].trim() : null);
+            trace.add(Stage.PARSE, received);
+        }
+
+        // Pencere içindeki tekrar: önbellekteki yanıt, storage'a ve broadcast'e dokunmadan
+        String endpointKey = ProbeTracker.key(senderIp, senderPort);
+        if ("LIST".equals(cmd) && requestId == null) {
+            responses.invalidate(endpointKey);
+        } else if (DEDUP_COMMANDS.contains(cmd)) {
+            String cacheKey = ResponseCache.key(endpointKey, requestId, msg);
+            List<String> cached = responses.get(cacheKey, msg, requestId != null, clock.millis());
+            if (cached != null) {
+                metrics.recordDedupHit();
+                if (trace != null) trace.outcome("DEDUP");
+                for (String reply : cached) send(req, reply);
+                done(ctx, req);
+                return;
             }
-        } catch (AppNotFoundException e) {
-            send(ctx, sender, "ERR|APP_NOT_FOUND|" + e.getMessage());
-        } catch (RoomFullException e) {
-            send(ctx, sender, "ERR|ROOM_FULL|" + e.getMessage());
-        } catch (IllegalArgumentException e) {
-            send(ctx, sender, "ERR|BAD_REQUEST|" + e.getMessage());
-        } catch (ApplicationCapacityExceededException e) {
-            send(ctx, sender, "ERR|APP_CAP_EXCEEDED|" + e.getMessage());
-        } catch (Exception e) {
-            log.error("UDP handler error", e);
-            send(ctx, sender, "ERR|INTERNAL|unexpected");
+            if (!inFlight.add(cacheKey)) {
+                // Asıl istek hâlâ storage'da; onun yanıtı bu tekrarı da karşılar
+                metrics.recordDedupHit();
+                if (trace != null) trace.outcome("DEDUP_IN_FLIGHT");
+                done(ctx, req);
+                return;
+            }
+            metrics.recordDedupMiss();
+            req.cacheKey = cacheKey;
+            req.cacheEpoch = responses.begin(endpointKey); // gönderenin önceki yanıtları artık tekrar sayılmaz
+            req.captured = new ArrayList<>(1);
+        }
+
+        Mono<Void> built;
+        try {
+            built = switch (cmd) {
+                case "JOIN" -> handleJoin(req, parts);
+                case "JOIN_ANY" -> handleJoinAny(req, parts);
+                case "JOIN_MULTI" -> handleJoinMulti(req, parts);
+                case "LEAVE" -> handleLeave(req, parts);
+                case "LIST" -> handleList(req, parts);
+                case "PING" -> handlePing(req, parts);
+                case "PONG" -> handlePong(req, parts);
+                case "ACK" -> handleAck(req, parts);
+                case "RELAY_ALLOC" -> handleRelayAlloc(req);
+                default -> {
+                    send(req, "ERR|UNKNOWN_COMMAND|" + cmd);
+                    yield Mono.empty();
+                }
+            };
+        } catch (RuntimeException e) {
+            built = Mono.error(e);
+        }
+
+        // Senkron komutlar burada tamamlanır; storage'a gidenler publishOn(loop) ile event loop'a döner
+        Mono<Void> work = trace == null ? built : built.contextWrite(RequestTrace.context(trace)); // reaktif aşamalar ve Mongo süreleri
+        Runnable start = () -> work.subscribe(null,
+                e -> {
+                    fail(req, e);
+                    done(ctx, req);
+                },
+                () -> done(ctx, req));
+        if (HEAVY_COMMANDS.contains(cmd) && sessionId(parts) == null) {
+            deferredHeavy.add(start);
+        } else {
+            start.run();
         }
     }
 
-    private void handleJoin(ChannelHandlerContext ctx, InetSocketAddress sender, String[] p, String ip, int port) {
+    private Mono<Void> handleJoin(Request req, String[] p) {
         if (p.length < 3) throw new IllegalArgumentException("JOIN|<appKey>|<roomName>|[capacity]");
         String appKey = p[1].trim();
         String roomName = p[2].trim();
         Integer capacity = (p.length >= 4) ? tryParseCapacity(p[3]) : null;
 
-        RoomJoinResult result = roomService.joinRoom(appKey, roomName, ip, port, capacity);
+        long t = clock.nanoTime();
+        Mark[] mark = new Mark[1];
+        return scheduler.submit(appKey, Lane.HEAVY, () -> {
+                    mark[0] = events.mark(req.ip, req.port);
+                    return rooms.joinRoom(appKey, roomName, req.ip, req.port, capacity);
+                })
+                .publishOn(loop)
+                .doOnNext(result -> {
+                    req.stage(Stage.STORAGE, t);
+                    replyJoined(req, appKey, result, mark[0]);
+                })
+                .then();
+    }
+
+    /** JOIN_ANY|<appKey>|[roomPrefix] → boş koltuğu en çok olan odaya yerleştirir; yanıt JOIN ile aynıdır. */
+    private Mono<Void> handleJoinAny(Request req, String[] p) {
+        if (p.length < 2) throw new IllegalArgumentException("JOIN_ANY|<appKey>|[roomPrefix]");
+        String appKey = p[1].trim();
+        String prefix = (p.length >= 3 && !p[2].isBlank()) ? p[2].trim() : null;
+
+        long t = clock.nanoTime();
+        Mark[] mark = new Mark[1];
+        return scheduler.submit(appKey, Lane.HEAVY, () -> {
+                    mark[0] = events.mark(req.ip, req.port);
+                    return rooms.joinAnyRoom(appKey, prefix, req.ip, req.port);
+                })
+                .publishOn(loop)
+                .doOnNext(result -> {
+                    req.stage(Stage.STORAGE, t);
+                    replyJoined(req, appKey, result, mark[0]);
+                })
+                .then();
+    }
+
+    /** mark: storage okumasından önce alınmış olay işareti (snapshot'ın kapsadığı son seq). */
+    private void replyJoined(Request req, String appKey, RoomJoinResult result, Mark mark) {
+        String roomName = result.getRoomName();
 
-        // 1) İstek sahibine oda listesi
+        // 1) İstek sahibine oda listesi (seq: snapshot'ın kapsadığı son olay, sid: takip komutları için oturum)
         List<String> peers = result.getParticipants().stream().map(Endpoint::toString).toList();
-        send(ctx, sender, "ROOM|" + result.getRoomName() + "|clients=" + joinClientsList(peers));
+        long seq = events.snapshotSeq(req.ip, req.port, result.getRoomId(), mark);
+        String sid = sessions.issue(appKey, result.getRoomId(), roomName, ProbeTracker.key(req.ip, req.port));
+        send(req, "ROOM|" + result.getRoomName() + "|clients=" + joinClientsList(peers) + "|seq=" + seq
+                + (sid != null ? "|sid=" + sid : "") + rttField(result.getParticipants()));
+
+        // 2) Odadaki diğerlerine NEW_CLIENT (sıralı + onaylı)
+        long t = clock.nanoTime();
+        events.broadcast(appKey, result.getRoomId(), roomName, result.getParticipants(), "NEW_CLIENT",
+                result.getJoined(), result.getJoined());
+        req.stage(Stage.FANOUT, t);
+    }
+
+    /**
+     * JOIN_MULTI|<appKey>|<oda,oda,...>|[port,port,...]|[capacity] → grup (gönderen + aynı IP'deki ek portlar)
+     * tüm odalara ya hep birlikte girer ya hiç; tek ROOM_MULTI yanıtı, oda başına tek NEW_CLIENT batch'i.
+     * Ek endpoint'ler gönderenin IP'siyle sınırlıdır: başka bir adresi odaya yazdırmak mümkün değildir.
+     */
+    private Mono<Void> handleJoinMulti(Request req, String[] p) {
+        if (p.length < 3) {
+            throw new IllegalArgumentException("JOIN_MULTI|<appKey>|<room,room,...>|[port,port,...]|[capacity]");
+        }
+        String appKey = p[1].trim();
+        List<String> roomNames = new ArrayList<>(splitList(p[2]));
+        Map<String, Endpoint> group = new LinkedHashMap<>();
+        group.put(ProbeTracker.key(req.ip, req.port), new Endpoint(req.ip, req.port));
+        if (p.length >= 4) {
+            for (String raw : splitList(p[3])) {
+                int port = parsePort(raw);
+                group.putIfAbsent(ProbeTracker.key(req.ip, port), new Endpoint(req.ip, port));
+            }
+        }
+        Integer capacity = (p.length >= 5) ? tryParseCapacity(p[4]) : null;
+        List<Endpoint> members = new ArrayList<>(group.values());
+
+        long t = clock.nanoTime();
+        List<Mark> marks = new ArrayList<>(members.size());
+        return scheduler.submit(appKey, Lane.HEAVY, () -> {
+                    for (Endpoint ep : members) marks.add(events.mark(ep.getIp(), ep.getPort()));
+                    return rooms.joinRooms(appKey, roomNames, members, capacity);
+                })
+                .publishOn(loop)
+                .doOnNext(results -> {
+                    req.stage(Stage.STORAGE, t);
+                    replyJoinedMulti(req, appKey, roomNames, members, marks, results);
+                })
+                .then();
+    }
+
+    /**
+     * ROOM_MULTI|rooms=[r1,r2]|clients=[..];[..]|seq=[N,...]|sid=[hex,...]
+     * clients odaların sırasıyla; seq ve sid oda sırasıyla, her odada grup sırasıyla (her (oda, endpoint) akışının
+     * snapshot seq'i ve oturumu). marks grup sırasıyla, storage okumasından önce alınmış olay işaretleri.
+     */
+    private void replyJoinedMulti(Request req, String appKey, List<String> roomNames, List<Endpoint> group,
+                                  List<Mark> marks, List<GroupJoinResult> results) {
+        StringJoiner clients = new StringJoiner(";");
+        List<String> sids = new ArrayList<>();
+        List<String> seqs = new ArrayList<>(results.size() * group.size());
+        for (GroupJoinResult r : results) {
+            clients.add(joinClientsList(r.getParticipants().stream().map(Endpoint::toString).toList()));
+            for (int i = 0; i < group.size(); i++) {
+                Endpoint ep = group.get(i);
+                seqs.add(Long.toString(events.snapshotSeq(ep.getIp(), ep.getPort(), r.getRoomId(), marks.get(i))));
+                String sid = sessions.issue(appKey, r.getRoomId(), r.getRoomName(), ProbeTracker.key(ep.getIp(), ep.getPort()));
+                if (sid != null) sids.add(sid);
+            }
+        }
+        send(req, "ROOM_MULTI|rooms=" + joinClientsList(roomNames) + "|clients=" + clients
+                + "|seq=" + joinClientsList(seqs) + (sids.isEmpty() ? "" : "|sid=" + joinClientsList(sids)));
 
-        // 2) Odadaki diğerlerine NEW_CLIENT
-        String me = result.getJoined().toString();
-        for (Endpoint ep : result.getParticipants()) {
-            if (Objects.equals(ep.toString(), me)) continue; // kendine gönderme
-            InetSocketAddress target = new InetSocketAddress(ep.getIp(), ep.getPort());
-            send(ctx, target, "NEW_CLIENT|" + me);
+        // Odadaki diğerlerine grubun NEW_CLIENT'ları, oda başına tek batch
+        long t = clock.nanoTime();
+        for (GroupJoinResult r : results) {
+            events.broadcastAll(appKey, r.getRoomId(), r.getRoomName(), r.getParticipants(), "NEW_CLIENT", r.getJoined());
         }
+        req.stage(Stage.FANOUT, t);
     }
 
-    private void handleLeave(ChannelHandlerContext ctx, InetSocketAddress sender, String[] p, String ip, int port) {
+    private Mono<Void> handleLeave(Request req, String[] p) {
+        String sid = sessionId(p);
+        if (sid != null) return handleLeaveSession(req, sid);
         if (p.length < 3) throw new IllegalArgumentException("LEAVE|<appKey>|<roomName>");
         String appKey = p[1].trim();
         String roomName = p[2].trim();
 
-        roomService.leaveRoom(appKey, roomName, ip, port);
+        long t = clock.nanoTime();
+        String[] roomId = new String[1]; // silmeden önce: üyelik dizinden kalkınca oda adla çözülemez
+        return scheduler.submit(appKey, Lane.CONTROL, () -> {
+                    roomId[0] = events.roomIdOf(appKey, roomName, req.ip, req.port);
+                    return rooms.leaveRoom(appKey, roomName, req.ip, req.port)
+                            .then(rooms.listRoomPeers(appKey, roomName));
+                })
+                .publishOn(loop)
+                .doOnNext(remain -> {
+                    req.stage(Stage.STORAGE, t);
+                    if (roomId[0] != null) {
+                        events.forget(req.ip, req.port, roomId[0]);
 
-        // Kalanlara broadcast
-        List<Endpoint> remain = roomService.listRoomPeers(appKey, roomName);
-        for (Endpoint ep : remain) {
-            InetSocketAddress target = new InetSocketAddress(ep.getIp(), ep.getPort());
-            send(ctx, target, "CLIENT_LEFT|" + ip + ":" + port);
-        }
-        send(ctx, sender, "OK|LEFT");
+                        // Kalanlara broadcast (üye değilse ayrılan da yok)
+                        long f = clock.nanoTime();
+                        events.broadcast(appKey, roomId[0], roomName, remain, "CLIENT_LEFT",
+                                new Endpoint(req.ip, req.port), null);
+                        req.stage(Stage.FANOUT, f);
+                    }
+                    send(req, "OK|LEFT");
+                })
+                .then();
+    }
+
+    /** LEAVE|sid=<hex>: üye kaydı oda id'si üzerinden silinir; kalanlar bellek içi dizinden. */
+    private Mono<Void> handleLeaveSession(Request req, String sid) {
+        Session s = session(req, sid);
+        if (s == null) return Mono.empty();
+
+        long t = clock.nanoTime();
+        return scheduler.submit(s.getAppKey(), Lane.CONTROL, () -> rooms.evictClient(s.getRoomId(), req.ip, req.port))
+                .publishOn(loop)
+                .then(Mono.fromRunnable(() -> {
+                    req.stage(Stage.STORAGE, t);
+                    sessions.revoke(s);
+                    events.forget(req.ip, req.port, s.getRoomId());
+
+                    long f = clock.nanoTime();
+                    events.broadcast(s.getAppKey(), s.getRoomId(), s.getRoomName(), sessions.members(s), "CLIENT_LEFT",
+                            new Endpoint(req.ip, req.port), null);
+                    req.stage(Stage.FANOUT, f);
+                    send(req, "OK|LEFT");
+                }));
     }
 
-    private void handleList(ChannelHandlerContext ctx, InetSocketAddress sender, String[] p , String ip, int port) {
+    private Mono<Void> handleList(Request req, String[] p) {
+        String sid = sessionId(p);
+        if (sid != null) return handleListSession(req, sid);
         if (p.length < 2) throw new IllegalArgumentException("LIST|<appKey>|<roomName>");
         String appKey = p[1].trim();
+        long t = clock.nanoTime();
 
         if (p.length == 2 || p[2].isBlank()) {
-            var roomNames = roomService.listRoomNames(appKey);
-            send(ctx, sender, "ROOMS|" + appKey + "|rooms=" + joinClientsList(roomNames));
-            return;
+            return scheduler.submit(appKey, Lane.HEAVY, () -> rooms.listRoomNames(appKey))
+                    .publishOn(loop)
+                    .doOnNext(roomNames -> {
+                        req.stage(Stage.STORAGE, t);
+                        send(req, "ROOMS|" + appKey + "|rooms=" + joinClientsList(roomNames));
+                    })
+                    .then();
         }
 
         String roomName = p[2].trim();
+        if (events.roomIdOf(appKey, roomName, req.ip, req.port) != null) heard(req);
+        Mark[] mark = new Mark[1];
+        return scheduler.submit(appKey, Lane.HEAVY, () -> {
+                    mark[0] = events.mark(req.ip, req.port);
+                    return rooms.touchAndListPeers(appKey, roomName, req.ip, req.port);
+                })
+                .publishOn(loop)
+                .doOnNext(endpoints -> {
+                    req.stage(Stage.STORAGE, t);
+                    List<String> peers = endpoints.stream().map(Endpoint::toString).toList();
+                    // Üye olmayanın akışı yoktur (0); LIST akış açmaz
+                    long seq = events.snapshotSeq(req.ip, req.port,
+                            events.roomIdOf(appKey, roomName, req.ip, req.port), mark[0]);
+                    send(req, "ROOM|" + roomName + "|clients=" + joinClientsList(peers) + "|seq=" + seq + rttField(endpoints));
+                })
+                .then();
+    }
 
-        roomService.touchClient(appKey, roomName, ip , port);
+    /** LIST|sid=<hex>: üye listesi bellek içi dizinden hemen döner; lastSeen arka planda tazelenir. */
+    private Mono<Void> handleListSession(Request req, String sid) {
+        Session s = session(req, sid);
+        if (s == null) return Mono.empty();
 
-        List<String> peers = roomService.listRoomPeers(appKey, roomName).stream()
-                .map(Endpoint::toString)
-                .collect(Collectors.toList());
-        send(ctx, sender, "ROOM|" + roomName + "|clients=" + joinClientsList(peers));
+        Mark mark = events.mark(req.ip, req.port);
+        List<Endpoint> members = sessions.members(s);
+        List<String> peers = members.stream().map(Endpoint::toString).toList();
+        long seq = events.snapshotSeq(req.ip, req.port, s.getRoomId(), mark);
+        send(req, "ROOM|" + s.getRoomName() + "|clients=" + joinClientsList(peers) + "|seq=" + seq + rttField(members));
+
+        scheduler.submit(s.getAppKey(), Lane.CONTROL, () -> rooms.touchMember(s.getRoomId(), req.ip, req.port))
+                .subscribe(null, e -> log.debug("session LIST: touch failed for {}:{}: {}", req.ip, req.port, e.toString()));
+        return Mono.empty();
     }
 
     /** PING: lastSeen tazeleme. Eğer kayıt yoksa oluşturmak istersen JOIN gibi davranır. */
-    private void handlePing(ChannelHandlerContext ctx, InetSocketAddress sender, String[] p, String ip, int port) {
+    private Mono<Void> handlePing(Request req, String[] p) {
+        String sid = sessionId(p);
+        if (sid != null) return touchSession(req, sid, "OK|PING");
         if (p.length < 3) throw new IllegalArgumentException("PING|<appKey>|<roomName>");
-        String appKey = p[1].trim();
-        String roomName = p[2].trim();
-        roomService.joinRoom(appKey, roomName, ip, port); // keep-alive mantığı
-        send(ctx, sender, "OK|PING");
+        return keepAlive(req, p[1].trim(), p[2].trim(), "OK|PING");
     }
 
-    private void handlePong(ChannelHandlerContext ctx, InetSocketAddress sender, String[] p, String ip, int port) {
+    private Mono<Void> handlePong(Request req, String[] p) {
+        p = probeEcho(req, p);
+        String sid = sessionId(p);
+        if (sid != null) return touchSession(req, sid, null);
         if (p.length < 3) throw new IllegalArgumentException("PONG|<appName>|<roomName>");
-        String appName = p[1].trim();    // app NAME bekliyoruz
-        String roomName = p[2].trim();
+        // Probe sayacı üyelik doğrulanınca (keepAlive) sıfırlanır; lastSeen'i tazele; başarıda yanıt dönülmez
+        return keepAlive(req, p[1].trim(), p[2].trim(), null); // app NAME bekliyoruz
+    }
 
-        // lastSeen'i tazele (JOIN'le aynı idempotent davranış)
-        roomService.joinRoom(appName, roomName, ip, port);
+    /**
+     * Adla gelen PING/PONG: üye ise CONTROL şeridinde tek belgelik lastSeen güncellemesi (oda id'si bellek içi
+     * dizinden). Üye değilse (ya da kayıt bu arada silindiyse, ör. probe ile düşürüldüyse) JOIN'in kendisi, HEAVY
+     * şeridinde: istemciye ROOM snapshot'ı (yeni olay akışının seq'iyle) gider, odadakilere NEW_CLIENT yayınlanır.
+     * Sessizce yeniden kaydetmek istemcinin görünümünü ve olay sırasını sunucudan koparırdı.
+     */
+    private Mono<Void> keepAlive(Request req, String appKey, String roomName, String okReply) {
+        String roomId = events.roomIdOf(appKey, roomName, req.ip, req.port);
+        if (roomId != null) heard(req);
+        Mono<Boolean> touched = roomId == null ? Mono.just(false)
+                : scheduler.submit(appKey, Lane.CONTROL, () -> rooms.touchMember(roomId, req.ip, req.port));
+        return touched
+                .publishOn(loop)
+                .flatMap(found -> {
+                    if (!found) return rejoin(req, appKey, roomName);
+                    if (okReply != null) send(req, okReply);
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Void> rejoin(Request req, String appKey, String roomName) {
+        Mark[] mark = new Mark[1];
+        return scheduler.submit(appKey, Lane.HEAVY, () -> {
+                    mark[0] = events.mark(req.ip, req.port);
+                    return rooms.joinRoom(appKey, roomName, req.ip, req.port, null);
+                })
+                .publishOn(loop)
+                .doOnNext(result -> replyJoined(req, appKey, result, mark[0]))
+                .then();
+    }
+
+    /**
+     * PONG'un sonundaki seq=<n>|ts=<µs> yankısını (SRV_PING'den) RTT ölçümüne verir ve alanları çıkarır.
+     * Yankısız (eski istemci) ya da bozuk yankılı PONG yalnızca canlılık sayılır; istek reddedilmez.
+     */
+    private String[] probeEcho(Request req, String[] p) {
+        int n = p.length;
+        String seq = null;
+        String ts = null;
+        while (n > 1) {
+            String f = p[n - 1].trim();
+            if (f.startsWith("seq=") && seq == null) seq = f.substring(4);
+            else if (f.startsWith("ts=") && ts == null) ts = f.substring(3);
+            else break;
+            n--;
+        }
+        if (n == p.length) return p;
+        if (seq != null && ts != null) {
+            try {
+                prober.onEcho(req.ip, req.port, Integer.parseInt(seq), Long.parseLong(ts), req.received);
+            } catch (NumberFormatException e) {
+                log.debug("PONG: bad probe echo from {}:{} (seq={}, ts={})", req.ip, req.port, seq, ts);
+            }
+        }
+        return Arrays.copyOf(p, n);
+    }
+
+    /** ROOM yanıtına |rtt=[ip:port=ms,...]: ölçülmüş üyelerin sunucuya RTT'si (0.1 ms); ölçüm kapalı/boşsa alan yok. */
+    private String rttField(List<Endpoint> peers) {
+        LinkStats links = prober.links();
+        if (links == null) return "";
+        StringJoiner j = new StringJoiner(",", "|rtt=[", "]");
+        j.setEmptyValue("");
+        for (Endpoint ep : peers) {
+            double ms = links.rttMillis(ProbeTracker.key(ep.getIp(), ep.getPort()));
+            if (!Double.isNaN(ms)) j.add(ep + "=" + Math.round(ms * 10) / 10.0);
+        }
+        return j.toString();
+    }
+
+    /** PING/PONG|sid=<hex>: tek belgelik lastSeen güncellemesi; üye kaydı yoksa (düşürülmüş) RESYNC. */
+    private Mono<Void> touchSession(Request req, String sid, String okReply) {
+        Session s = session(req, sid);
+        if (s == null) return Mono.empty();
+
+        long t = clock.nanoTime();
+        return scheduler.submit(s.getAppKey(), Lane.CONTROL, () -> rooms.touchMember(s.getRoomId(), req.ip, req.port))
+                .publishOn(loop)
+                .doOnNext(found -> {
+                    req.stage(Stage.STORAGE, t);
+                    if (!found) {
+                        sessions.revoke(s);
+                        send(req, "ERR|RESYNC|not a member anymore");
+                    } else if (okReply != null) {
+                        send(req, okReply);
+                    }
+                })
+                .then();
+    }
+
+    /** Komutun tek argümanı sid=<hex> ise token, değilse null. */
+    private static String sessionId(String[] p) {
+        if (p.length != 2) return null;
+        String arg = p[1].trim();
+        return arg.startsWith("sid=") ? arg.substring(4) : null;
+    }
+
+    /** Oturum çözülemezse ERR|RESYNC yazar ve null döner; istemci tekrar JOIN olmalıdır. */
+    private Session session(Request req, String sid) {
+        Session s = sessions.resolve(sid, ProbeTracker.key(req.ip, req.port));
+        if (s == null) send(req, "ERR|RESYNC|unknown or expired session");
+        else heard(req);
+        return s;
+    }
+
+    /** Üyeliği doğrulanmış datagram canlılık kanıtı: probe sayacı storage'ı beklemeden, alındığı anla sıfırlanır. */
+    private void heard(Request req) {
+        prober.onHeard(req.ip, req.port, req.received);
+    }
+
+    /** ACK|<kümülatif>|[s1,s2,...]|room=<oda> — üyelik olaylarının onayı; yanıt dönülmez. */
+    private Mono<Void> handleAck(Request req, String[] p) {
+        String roomName = null;
+        if (p.length > 1 && p[p.length - 1].trim().startsWith("room=")) {
+            roomName = p[p.length - 1].trim().substring(5);
+            p = Arrays.copyOf(p, p.length - 1);
+        }
+        if (p.length < 2) throw new IllegalArgumentException("ACK|<cumulativeSeq>|[seq,seq,...]|room=<roomName>");
+        long cumulative = parseSeq(p[1]);
+        List<Long> selective = new ArrayList<>();
+        if (p.length >= 3 && !p[2].isBlank()) {
+            for (String s : p[2].split(",")) {
+                if (!s.isBlank()) selective.add(parseSeq(s));
+            }
+        }
+        if (events.onAck(req.ip, req.port, roomName, cumulative, selective)) heard(req);
+        return Mono.empty();
+    }
+
+    /** RELAY_ALLOC → RELAY_ALLOC|<relayPort>|<token>; token relay portuna BIND|<token> ile gönderilir. */
+    private Mono<Void> handleRelayAlloc(Request req) {
+        if (!relays.isEnabled()) {
+            send(req, "ERR|RELAY_DISABLED|relay is not enabled");
+            return Mono.empty();
+        }
+        String token = relays.allocate(new Endpoint(req.ip, req.port));
+        if (token == null) {
+            send(req, "ERR|RELAY_DENIED|not a room member");
+            return Mono.empty();
+        }
+        send(req, "RELAY_ALLOC|" + relays.getPort() + "|" + token);
+        return Mono.empty();
+    }
+
+    /** Virgüllü liste; boş ve tekrarlanan öğeler atılır, sıra korunur. */
+    private static Set<String> splitList(String raw) {
+        Set<String> items = new LinkedHashSet<>();
+        for (String s : raw.split(",")) {
+            if (!s.isBlank()) items.add(s.trim());
+        }
+        return items;
+    }
+
+    private static int parsePort(String raw) {
+        int port;
+        try {
+            port = Integer.parseInt(raw.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid port: " + raw);
+        }
+        if (port < 1 || port > 65535) throw new IllegalArgumentException("invalid port: " + raw);
+        return port;
+    }
+
+    private static long parseSeq(String raw) {
+        try {
+            return Long.parseLong(raw.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid seq: " + raw);
+        }
+    }
+
+    /** Hata → ERR yanıtı; beklenmeyen hata önbelleğe alınmaz, tekrar denensin. */
+    private void fail(Request req, Throwable e) {
+        if (e instanceof AppNotFoundException) {
+            send(req, "ERR|APP_NOT_FOUND|" + e.getMessage());
+        } else if (e instanceof RoomFullException) {
+            send(req, "ERR|ROOM_FULL|" + e.getMessage());
+        } else if (e instanceof IllegalArgumentException) {
+            send(req, "ERR|BAD_REQUEST|" + e.getMessage());
+        } else if (e instanceof ApplicationCapacityExceededException) {
+            send(req, "ERR|APP_CAP_EXCEEDED|" + e.getMessage());
+        } else if (e instanceof TenantOverloadedException) {
+            req.captured = null; // geçici; tekrar deneme yeniden değerlendirilsin
+            send(req, "ERR|BUSY|" + e.getMessage());
+        } else {
+            log.error("UDP handler error", e);
+            req.captured = null;
+            send(req, "ERR|INTERNAL|unexpected");
+        }
+    }
+
+    /** İstek tamamlandı (event loop'ta): yanıtlar önbelleğe, iz flush kuyruğuna; döngü dışındaysak flush planlanır. */
+    private void done(ChannelHandlerContext ctx, Request req) {
+        if (req.cacheKey != null) {
+            inFlight.remove(req.cacheKey);
+            responses.complete(ProbeTracker.key(req.ip, req.port), req.cacheEpoch, req.cacheKey, req.msg,
+                    req.captured, clock.millis());
+        }
+        if (req.trace != null) awaitingFlush.add(req.trace);
+        if (readsInCycle == 0 && !flushScheduled) {
+            // Aynı anda tamamlanan diğer isteklerle tek flush
+            flushScheduled = true;
+            ctx.executor().execute(() -> flush(ctx));
+        }
+    }
+
+    private void flush(ChannelHandlerContext ctx) {
+        flushScheduled = false;
+        long flushStart = awaitingFlush.isEmpty() ? 0L : clock.nanoTime();
+        out.flush(ctx, settings, metrics);
+        if (!awaitingFlush.isEmpty()) {
+            long flushEnd = clock.nanoTime();
+            for (RequestTrace t : awaitingFlush) tracer.complete(t, flushStart, flushEnd);
+            awaitingFlush.clear();
+        }
+    }
 
-        // probe sayaçlarını sıfırla
-        prober.onPong(ip, port);
+    private void send(Request req, String text) {
+        if (req.captured != null) req.captured.add(text);
+        if (req.trace != null) req.trace.outcome(replyType(text));
+        out.add(req.sender, text);
+    }
 
-        // send(ctx, sender, "OK|PONG");
+    /** ROOM|... → ROOM, ERR|ROOM_FULL|... → ERR|ROOM_FULL */
+    private static String replyType(String text) {
+        int i = text.indexOf('|');
+        if (i < 0) return text;
+        if (!text.startsWith("ERR|")) return text.substring(0, i);
+        int j = text.indexOf('|', i + 1);
+        return j < 0 ? text : text.substring(0, j);
     }
 
-    private void send(ChannelHandlerContext ctx, InetSocketAddress target, String text) {
-        ByteBuf buf = Unpooled.copiedBuffer(text, CharsetUtil.UTF_8);
-        ctx.writeAndFlush(new DatagramPacket(buf, target));
+    /** Tek isteğin bağlamı; asenkron tamamlanmaya kadar taşınır. */
+    private static final class Request {
+        final InetSocketAddress sender;
+        final String ip;
+        final int port;
+        final String msg;
+        final long received;      // datagram'ın alındığı an (ServerClock)
+        final RequestTrace trace; // izleme kapalıysa null
+        String cacheKey;          // dedup komutlarında
+        long cacheEpoch;          // ResponseCache.begin'in döndüğü dönem
+        List<String> captured;    // önbelleğe alınacak yanıtlar
+
+        Request(InetSocketAddress sender, String ip, int port, String msg, long received, RequestTrace trace) {
+            this.sender = sender;
+            this.ip = ip;
+            this.port = port;
+            this.msg = msg;
+            this.received = received;
+            this.trace = trace;
+        }
+
+        void stage(Stage stage, long startNanos) {
+            if (trace != null) trace.add(stage, startNanos);
+        }
     }
 }
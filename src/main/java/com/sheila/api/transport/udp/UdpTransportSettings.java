@@ -0,0 +1,21 @@
+package com.sheila.api.transport.udp;
+
+/**
+ * UdpServer'ın bind sırasında belirlediği gönderim ayarları.
+ * gso yalnızca native epoll aktif ve çekirdek UDP_SEGMENT destekliyorsa true olur.
+ */
+final class UdpTransportSettings {
+
+    static final UdpTransportSettings PLAIN = new UdpTransportSettings(false, 1);
+
+    private final boolean gso;
+    private final int gsoMaxSegments;
+
+    UdpTransportSettings(boolean gso, int gsoMaxSegments) {
+        this.gso = gso;
+        this.gsoMaxSegments = gsoMaxSegments;
+    }
+
+    boolean gso() { return gso; }
+    int gsoMaxSegments() { return gsoMaxSegments; }
+}
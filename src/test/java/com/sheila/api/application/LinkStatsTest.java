@@ -0,0 +1,101 @@
+package com.sheila.api.application;
+
+import com.sheila.api.core.dto.Endpoint;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class LinkStatsTest {
+
+    private static final String A = "10.0.0.1:4000";
+    private static final long MS = 1_000_000L;
+    private static final long SAMPLE = 5_000 * MS;
+
+    private final LinkStats stats = new LinkStats();
+
+    @Test
+    void onlyTheLatestProbesSeqAndTimestampAreSampled() {
+        int first = stats.onProbeSent(A, 1_000 * MS);
+        int second = stats.onProbeSent(A, 2_000 * MS);
+
+        assertThat(stats.onEcho(A, first, 1_000 * 1_000, 2_010 * MS)).as("stale probe").isEqualTo(-1);
+        assertThat(stats.onEcho(A, second, 1_999 * 1_000, 2_010 * MS)).as("forged timestamp").isEqualTo(-1);
+        assertThat(stats.onEcho(A, second, 2_000 * 1_000, 2_040 * MS)).isEqualTo(40 * MS);
+        assertThat(stats.onEcho(A, second, 2_000 * 1_000, 2_050 * MS)).as("duplicate").isEqualTo(-1);
+        assertThat(stats.rttMillis(A)).isCloseTo(40, within(0.01));
+    }
+
+    @Test
+    void lossCountsOnlyAfterTheFirstEcho() {
+        stats.onProbeSent(A, 0);
+        stats.onProbeSent(A, 1_000 * MS);
+        echo(stats.onProbeSent(A, 2_000 * MS), 2_000 * MS, 2_020 * MS);
+        assertThat(summary(A).getLoss()).isZero();
+
+        stats.onProbeSent(A, 3_000 * MS);
+        stats.onProbeSent(A, 4_000 * MS);
+        assertThat(summary(A).getLoss()).isCloseTo(1f / 8, within(0.001));
+    }
+
+    @Test
+    void clientsThatNeverEchoStopBeingSampledUntilTheyDo() {
+        assertThat(stats.needsSample(A, 0, SAMPLE, 3)).isTrue();
+        long now = 0;
+        for (int i = 0; i < 4; i++) {
+            now += SAMPLE;
+            stats.onProbeSent(A, now);
+        }
+        assertThat(stats.needsSample(A, now + SAMPLE, SAMPLE, 3)).isFalse();
+
+        now += SAMPLE;
+        echo(stats.onProbeSent(A, now), now, now + 10 * MS);
+        assertThat(stats.needsSample(A, now + 2 * SAMPLE, SAMPLE, 3)).isTrue();
+    }
+
+    @Test
+    void bulkAccumulateSumsPerGroup() {
+        String b = "10.0.0.2:4000";
+        echo(stats.onProbeSent(A, 0), 0, 20 * MS);
+        stats.onProbeSent(b, 0);
+        stats.onEcho(b, 1, 0, 60 * MS);
+
+        LinkStats.Summary both = new LinkStats.Summary();
+        LinkStats.Summary unmeasured = new LinkStats.Summary();
+        stats.accumulate(List.of(both, unmeasured), List.of(
+                List.of(new Endpoint("10.0.0.1", 4000), new Endpoint("10.0.0.2", 4000)),
+                List.of(new Endpoint("10.0.0.3", 4000))));
+
+        assertThat(both.getCount()).isEqualTo(2);
+        assertThat(both.getRttMillis()).isCloseTo(40, within(0.01));
+        assertThat(unmeasured.getCount()).isZero();
+        assertThat(unmeasured.getRttMillis()).isNaN();
+    }
+
+    @Test
+    void releasedSlotsStartFresh() {
+        echo(stats.onProbeSent(A, 0), 0, 20 * MS);
+        stats.retainAll(Set.of());
+        assertThat(stats.rttMillis(A)).isNaN();
+
+        String b = "10.0.0.2:4000";
+        assertThat(stats.onProbeSent(b, 0)).as("reused slot's seq").isEqualTo(1);
+        assertThat(stats.rttMillis(b)).isNaN();
+        stats.clear(b);
+        assertThat(stats.needsSample(b, 0, SAMPLE, 3)).isTrue();
+    }
+
+    private void echo(int seq, long sentNanos, long receivedNanos) {
+        assertThat(stats.onEcho(A, seq, sentNanos / 1000, receivedNanos)).isPositive();
+    }
+
+    private LinkStats.Summary summary(String endpointKey) {
+        String[] p = endpointKey.split(":");
+        LinkStats.Summary s = new LinkStats.Summary();
+        stats.accumulate(s, List.of(new Endpoint(p[0], Integer.parseInt(p[1]))));
+        return s;
+    }
+}
@@ -0,0 +1,75 @@
+package com.sheila.api.application;
+
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/** Testler için elle ilerletilen timer: görevler advance() ile, süresi dolduğunda çağıran thread'de çalışır. */
+final class ManualTimer implements Timer {
+    private final List<Task> tasks = new ArrayList<>();
+    private long now;
+
+    @Override
+    public Timeout newTimeout(TimerTask task, long delay, TimeUnit unit) {
+        Task t = new Task(task, now + unit.toNanos(delay));
+        tasks.add(t);
+        return t;
+    }
+
+    /** Saati ilerletir; süresi dolan görevleri zaman sırasıyla çalıştırır (çalışırken eklenenler dahil). */
+    void advance(long millis) {
+        long until = now + TimeUnit.MILLISECONDS.toNanos(millis);
+        while (true) {
+            Task next = null;
+            for (Task t : tasks) {
+                if (!t.cancelled && t.deadline <= until && (next == null || t.deadline < next.deadline)) next = t;
+            }
+            if (next == null) break;
+            tasks.remove(next);
+            now = next.deadline;
+            next.expired = true;
+            try {
+                next.task.run(next);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        now = until;
+    }
+
+    @Override
+    public Set<Timeout> stop() {
+        tasks.clear();
+        return Set.of();
+    }
+
+    private final class Task implements Timeout {
+        final TimerTask task;
+        final long deadline;
+        boolean cancelled;
+        boolean expired;
+
+        Task(TimerTask task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override public Timer timer() { return ManualTimer.this; }
+        @Override public TimerTask task() { return task; }
+        @Override public boolean isExpired() { return expired; }
+        @Override public boolean isCancelled() { return cancelled; }
+
+        @Override
+        public boolean cancel() {
+            if (expired || cancelled) return false;
+            cancelled = true;
+            tasks.remove(this);
+            return true;
+        }
+    }
+}
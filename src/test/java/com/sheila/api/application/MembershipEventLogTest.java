@@ -0,0 +1,164 @@
+package com.sheila.api.application;
+
+import com.sheila.api.application.MembershipEventLog.Mark;
+import com.sheila.api.core.dto.Endpoint;
+import com.sheila.api.transport.udp.OutboundMessage;
+import com.sheila.api.transport.udp.SendPriority;
+import com.sheila.api.transport.udp.UdpMessenger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MembershipEventLogTest {
+
+    private static final Endpoint CLIENT = new Endpoint("10.0.0.1", 4000);
+    private static final Endpoint JOINER = new Endpoint("10.0.0.2", 4000);
+
+    private final ManualTimer timer = new ManualTimer();
+    private final List<String> sent = new ArrayList<>();
+    private final AsyncRoomService rooms = mock(AsyncRoomService.class);
+    private MembershipEventLog events;
+
+    @BeforeEach
+    void setUp() {
+        UdpMessenger messenger = new UdpMessenger(null) {
+            @Override
+            public void sendBatch(List<OutboundMessage> batch, SendPriority priority) {
+                for (OutboundMessage m : batch) sent.add(m.getText());
+            }
+        };
+        events = new MembershipEventLog(messenger, rooms, mock(RoomDirectory.class), mock(ApplicationCatalog.class));
+        ReflectionTestUtils.setField(events, "enabled", true);
+        ReflectionTestUtils.setField(events, "retransmitMs", 500L);
+        ReflectionTestUtils.setField(events, "maxRetransmits", 2);
+        ReflectionTestUtils.setField(events, "window", 4);
+        events.start(timer, Runnable::run);
+    }
+
+    @Test
+    void snapshotOfOneRoomKeepsTheOtherRoomsPendingEvents() {
+        publishJoin("A", "room-a");
+        publishJoin("B", "room-b");
+        assertThat(sent).containsExactly(
+                "NEW_CLIENT|10.0.0.2:4000|seq=1|room=room-a",
+                "NEW_CLIENT|10.0.0.2:4000|seq=1|room=room-b");
+        sent.clear();
+
+        Mark mark = events.mark(CLIENT.getIp(), CLIENT.getPort());
+        assertThat(events.snapshotSeq(CLIENT.getIp(), CLIENT.getPort(), "A", mark)).isEqualTo(1);
+
+        timer.advance(500);
+        assertThat(sent).containsExactly("NEW_CLIENT|10.0.0.2:4000|seq=1|room=room-b");
+    }
+
+    @Test
+    void ackAndForgetApplyOnlyToTheNamedRoom() {
+        publishJoin("A", "room-a");
+        publishJoin("B", "room-b");
+        sent.clear();
+
+        events.onAck(CLIENT.getIp(), CLIENT.getPort(), "room-b", 1, List.of());
+        timer.advance(500);
+        assertThat(sent).containsExactly("NEW_CLIENT|10.0.0.2:4000|seq=1|room=room-a");
+        sent.clear();
+
+        events.forget(CLIENT.getIp(), CLIENT.getPort(), "A");
+        publishJoin("B", "room-b");
+        timer.advance(500);
+        assertThat(sent).containsExactly(
+                "NEW_CLIENT|10.0.0.2:4000|seq=2|room=room-b",
+                "NEW_CLIENT|10.0.0.2:4000|seq=2|room=room-b");
+    }
+
+    @Test
+    void ackWithoutRoomIsIgnoredWhenTheClientIsInSeveralRooms() {
+        publishJoin("A", "room-a");
+        publishJoin("B", "room-b");
+        sent.clear();
+
+        events.onAck(CLIENT.getIp(), CLIENT.getPort(), null, 1, List.of());
+        timer.advance(500);
+        assertThat(sent).hasSize(2);
+    }
+
+    @Test
+    void unackedEventIsRetransmittedThenResynced() {
+        when(rooms.listRoomPeers("app", "room-a")).thenReturn(Mono.just(List.of(CLIENT, JOINER)));
+        publishJoin("A", "room-a");
+
+        timer.advance(500);
+        timer.advance(500);
+        assertThat(sent).containsExactly(
+                "NEW_CLIENT|10.0.0.2:4000|seq=1|room=room-a",
+                "NEW_CLIENT|10.0.0.2:4000|seq=1|room=room-a",
+                "NEW_CLIENT|10.0.0.2:4000|seq=1|room=room-a");
+        sent.clear();
+
+        timer.advance(500);
+        assertThat(sent).containsExactly("RESYNC|room-a|seq=1|clients=[10.0.0.1:4000,10.0.0.2:4000]");
+        sent.clear();
+
+        timer.advance(5_000);
+        assertThat(sent).isEmpty();
+    }
+
+    @Test
+    void fullWindowFallsBackToResync() {
+        when(rooms.listRoomPeers("app", "room-a")).thenReturn(Mono.just(List.of(JOINER)));
+        for (int i = 0; i < 5; i++) publishJoin("A", "room-a");
+
+        assertThat(sent).hasSize(5);
+        assertThat(sent.get(3)).isEqualTo("NEW_CLIENT|10.0.0.2:4000|seq=4|room=room-a");
+        assertThat(sent.get(4)).isEqualTo("RESYNC|room-a|seq=5|clients=[10.0.0.2:4000]");
+        sent.clear();
+
+        publishJoin("A", "room-a");
+        assertThat(sent).containsExactly("NEW_CLIENT|10.0.0.2:4000|seq=6|room=room-a");
+    }
+
+    @Test
+    void selectiveAckLeavesOnlyTheGaps() {
+        publishJoin("A", "room-a");
+        publishJoin("A", "room-a");
+        publishJoin("A", "room-a");
+        sent.clear();
+
+        events.onAck(CLIENT.getIp(), CLIENT.getPort(), "room-a", 0, List.of(2L));
+        timer.advance(500);
+
+        assertThat(sent).containsExactly(
+                "NEW_CLIENT|10.0.0.2:4000|seq=1|room=room-a",
+                "NEW_CLIENT|10.0.0.2:4000|seq=3|room=room-a");
+    }
+
+    @Test
+    void eventPublishedDuringTheSnapshotReadIsRedeliveredAfterIt() {
+        publishJoin("A", "room-a");
+        Mark mark = events.mark(CLIENT.getIp(), CLIENT.getPort());
+        publishJoin("A", "room-a"); // depolama okuması sürerken
+        sent.clear();
+
+        assertThat(events.snapshotSeq(CLIENT.getIp(), CLIENT.getPort(), "A", mark)).isEqualTo(1);
+        // ROOM'dan önce yazılmış kümülatif ACK yeniden teslimi iptal etmez
+        events.onAck(CLIENT.getIp(), CLIENT.getPort(), "room-a", 2, List.of());
+        timer.advance(500);
+        assertThat(sent).containsExactly("NEW_CLIENT|10.0.0.2:4000|seq=2|room=room-a");
+        sent.clear();
+
+        events.onAck(CLIENT.getIp(), CLIENT.getPort(), "room-a", 2, List.of());
+        timer.advance(5_000);
+        assertThat(sent).isEmpty();
+    }
+
+    private void publishJoin(String roomId, String roomName) {
+        events.broadcast("app", roomId, roomName, List.of(CLIENT), "NEW_CLIENT", JOINER, null);
+    }
+}
@@ -0,0 +1,68 @@
+package com.sheila.api.application;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sheila.api.core.dto.Endpoint;
+import com.sheila.api.core.model.ApplicationDoc;
+import com.sheila.api.infrastructure.repository.LegacyMemberLayout;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/** Katalog ilk tazelemeden önce boştur; akış o sırada uygulamaları Mongo'dan okur, boş sayfa dönmez. */
+class OccupancySnapshotTest {
+
+    private final ApplicationCatalog catalog = mock(ApplicationCatalog.class);
+    private final MongoTemplate mongo = mock(MongoTemplate.class);
+    private final ApplicationDoc app = new ApplicationDoc("demo", 10);
+    private OccupancySnapshot snapshot;
+
+    @BeforeEach
+    void setUp() {
+        app.setId("app-1");
+        RoomDirectory directory = new RoomDirectory(null, null, null);
+        ReflectionTestUtils.setField(directory, "loaded", true);
+        directory.putRoom("r1", "app-1", "lobby", 4);
+        directory.addMember("r1", new Endpoint("10.0.0.1", 4000));
+        snapshot = new OccupancySnapshot(directory, catalog, mongo, new LegacyMemberLayout(), new ObjectMapper(),
+                mock(ServerProber.class));
+    }
+
+    @Test
+    void catalogNotLoadedReadsApplicationsFromMongo() throws Exception {
+        when(catalog.isLoaded()).thenReturn(false);
+        when(mongo.findAll(ApplicationDoc.class)).thenReturn(List.of(app));
+        when(mongo.find(any(Query.class), eq(ApplicationDoc.class))).thenReturn(List.of(app));
+
+        assertThat(write(List.of())).contains("\"type\":\"app\"", "\"room\":\"lobby\",\"members\":1", "\"count\":1");
+        assertThat(write(List.of("demo"))).contains("\"room\":\"lobby\"", "\"count\":1");
+    }
+
+    @Test
+    void loadedCatalogIsUsedWithoutMongo() throws Exception {
+        when(catalog.isLoaded()).thenReturn(true);
+        when(catalog.all()).thenReturn(List.of(app));
+
+        assertThat(write(List.of("app-1"))).contains("\"room\":\"lobby\"", "\"count\":1");
+        verify(mongo, never()).findAll(ApplicationDoc.class);
+    }
+
+    private String write(List<String> appKeys) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshot.write(out, appKeys, null, 10);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
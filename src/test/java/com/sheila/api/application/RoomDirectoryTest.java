@@ -0,0 +1,169 @@
+package com.sheila.api.application;
+
+import com.sheila.api.application.RoomDirectory.RoomEntry;
+import com.sheila.api.application.RoomDirectory.Seat;
+import com.sheila.api.core.dto.Endpoint;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RoomDirectoryTest {
+
+    private RoomDirectory directory;
+
+    @BeforeEach
+    void setUp() {
+        directory = new RoomDirectory(null, null, null);
+        ReflectionTestUtils.setField(directory, "defaultRoomCapacity", 100);
+    }
+
+    @Test
+    void reservationBecomesMembershipOnCommit() {
+        RoomEntry room = directory.putRoom("r1", "app", "lobby", 2);
+        Endpoint ep = new Endpoint("10.0.0.1", 4000);
+
+        assertThat(directory.reserve(room, "10.0.0.1:4000")).isEqualTo(Seat.RESERVED);
+        assertThat(room.free()).isEqualTo(1);
+
+        directory.commitReservation("r1", ep);
+        assertThat(room.free()).isEqualTo(1);
+        assertThat(room.hasMember("10.0.0.1:4000")).isTrue();
+        assertThat(directory.reserve(room, "10.0.0.1:4000")).isEqualTo(Seat.MEMBER);
+        assertThat(directory.roomsOf("10.0.0.1:4000")).extracting(RoomEntry::getId).containsExactly("r1");
+    }
+
+    @Test
+    void fullRoomRejectsUntilAReservationIsReleased() {
+        RoomEntry room = directory.putRoom("r1", "app", "lobby", 1);
+
+        assertThat(directory.reserve(room, "10.0.0.1:4000")).isEqualTo(Seat.RESERVED);
+        assertThat(directory.reserve(room, "10.0.0.2:4000")).isEqualTo(Seat.FULL);
+
+        directory.releaseReservation("r1");
+        assertThat(directory.reserve(room, "10.0.0.2:4000")).isEqualTo(Seat.RESERVED);
+    }
+
+    @Test
+    void roomWithMembersOrReservationsIsNotRetired() {
+        RoomEntry room = directory.putRoom("r1", "app", "lobby", 10);
+        directory.reserve(room, "10.0.0.1:4000");
+        assertThat(directory.tryRetire("r1")).isFalse();
+
+        directory.commitReservation("r1", new Endpoint("10.0.0.1", 4000));
+        assertThat(directory.tryRetire("r1")).isFalse();
+
+        directory.removeMember("r1", new Endpoint("10.0.0.1", 4000));
+        assertThat(directory.tryRetire("r1")).isTrue();
+        assertThat(directory.room("r1")).isNull();
+        assertThat(directory.pickAny("app", null, "10.0.0.9:4000")).isNull();
+    }
+
+    @Test
+    void reserveOnARetiredRoomRevivesIt() {
+        RoomEntry room = directory.putRoom("r1", "app", "lobby", 10);
+        assertThat(directory.tryRetire("r1")).isTrue();
+
+        assertThat(directory.reserve(room, "10.0.0.1:4000")).isEqualTo(Seat.RESERVED);
+        assertThat(directory.room("r1")).isSameAs(room);
+        assertThat(directory.pickAny("app", null, "10.0.0.9:4000")).isSameAs(room);
+    }
+
+    @Test
+    void pickAnyPrefersTheRoomWithMostFreeSeats() {
+        directory.putRoom("r1", "app", "lobby-1", 10);
+        directory.putRoom("r2", "app", "lobby-2", 20);
+        directory.putRoom("r3", "app", "arena", 50);
+        directory.putRoom("r4", "other", "lobby-3", 99);
+
+        assertThat(directory.pickAny("app", null, "10.0.0.1:4000").getId()).isEqualTo("r3");
+        assertThat(directory.pickAny("app", "lobby", "10.0.0.1:4000").getId()).isEqualTo("r2");
+
+        directory.addMember("r1", new Endpoint("10.0.0.1", 4000));
+        assertThat(directory.pickAny("app", "lobby", "10.0.0.1:4000").getId()).as("already a member").isEqualTo("r1");
+    }
+
+    @Test
+    void pickAnyWithPrefixSeesOnlyLiveMatchingRooms() {
+        directory.putRoom("r1", "app", "lob", 90);
+        directory.putRoom("r2", "app", "lobby-1", 1);
+        directory.putRoom("r3", "app", "lobbz", 80);
+        directory.putRoom("r4", "app", "lobby-2", 5);
+
+        assertThat(directory.pickAny("app", "lobby", "10.0.0.9:4000").getId()).isEqualTo("r4");
+
+        assertThat(directory.tryRetire("r4")).isTrue();
+        assertThat(directory.pickAny("app", "lobby", "10.0.0.9:4000").getId()).isEqualTo("r2");
+
+        directory.addMember("r2", new Endpoint("10.0.0.1", 4000));
+        assertThat(directory.pickAny("app", "lobby", "10.0.0.9:4000")).as("every match is full").isNull();
+    }
+
+    @Test
+    void concurrentReservationsNeverOverbook() throws Exception {
+        RoomEntry room = directory.putRoom("r1", "app", "lobby", 50);
+        AtomicInteger reserved = new AtomicInteger();
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                tasks.add(pool.submit(() -> {
+                    go.await();
+                    for (int i = 0; i < 50; i++) {
+                        if (directory.reserve(room, "10.0." + thread + "." + i + ":4000") == Seat.RESERVED) {
+                            reserved.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            go.countDown();
+            for (Future<?> f : tasks) f.get(10, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(reserved.get()).isEqualTo(50);
+        assertThat(room.free()).isZero();
+    }
+
+    @Test
+    void reservedRoomIsNeverRetiredUnderneathTheJoin() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 500; i++) {
+                String id = "r" + i;
+                RoomEntry room = directory.putRoom(id, "app", "lobby", 10);
+                CountDownLatch go = new CountDownLatch(1);
+                Future<Seat> join = pool.submit(() -> {
+                    go.await();
+                    return directory.reserve(room, "10.0.0.1:4000");
+                });
+                Future<Boolean> reap = pool.submit(() -> {
+                    go.await();
+                    return directory.tryRetire(id);
+                });
+                go.countDown();
+
+                assertThat(join.get(5, TimeUnit.SECONDS)).isEqualTo(Seat.RESERVED);
+                reap.get(5, TimeUnit.SECONDS);
+                assertThat(directory.room(id)).as("room %s after a successful reserve", id).isSameAs(room);
+                assertThat(directory.tryRetire(id)).isFalse();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
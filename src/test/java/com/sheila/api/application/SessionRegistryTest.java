@@ -0,0 +1,81 @@
+package com.sheila.api.application;
+
+import com.sheila.api.application.SessionRegistry.Session;
+import com.sheila.api.core.dto.Endpoint;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SessionRegistryTest {
+
+    private static final String ME = "10.0.0.1:4000";
+
+    private final AtomicLong nanos = new AtomicLong(TimeUnit.SECONDS.toNanos(1));
+    private RoomDirectory directory;
+    private SessionRegistry sessions;
+
+    @BeforeEach
+    void setUp() {
+        directory = new RoomDirectory(null, null, null);
+        directory.putRoom("r1", "app-id", "lobby", 10);
+        directory.addMember("r1", new Endpoint("10.0.0.1", 4000));
+
+        sessions = new SessionRegistry(directory, nanos::get, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(sessions, "enabled", true);
+        ReflectionTestUtils.setField(sessions, "idleTimeoutMs", 1000L);
+    }
+
+    @Test
+    void repeatedJoinGetsTheSameToken() {
+        String sid = sessions.issue("app", "r1", "lobby", ME);
+
+        assertThat(sessions.issue("app", "r1", "lobby", ME)).isEqualTo(sid);
+        Session s = sessions.resolve(sid, ME);
+        assertThat(s).isNotNull();
+        assertThat(s.getRoomName()).isEqualTo("lobby");
+        assertThat(sessions.members(s)).extracting(Endpoint::toString).containsExactly(ME);
+    }
+
+    @Test
+    void tokenIsBoundToItsEndpoint() {
+        String sid = sessions.issue("app", "r1", "lobby", ME);
+
+        assertThat(sessions.resolve(sid, "10.0.0.2:4000")).isNull();
+        assertThat(sessions.resolve("not-hex", ME)).isNull();
+        assertThat(sessions.resolve(sid, ME)).as("a foreign attempt does not revoke").isNotNull();
+    }
+
+    @Test
+    void idleOrFormerMemberSessionsAreRevoked() {
+        String sid = sessions.issue("app", "r1", "lobby", ME);
+        advanceMillis(900);
+        assertThat(sessions.resolve(sid, ME)).as("use refreshes the idle timer").isNotNull();
+        advanceMillis(1001);
+        assertThat(sessions.resolve(sid, ME)).isNull();
+
+        String again = sessions.issue("app", "r1", "lobby", ME);
+        assertThat(again).isNotEqualTo(sid);
+        directory.removeMember("r1", new Endpoint("10.0.0.1", 4000));
+        assertThat(sessions.resolve(again, ME)).isNull();
+    }
+
+    @Test
+    void sweepDropsExpiredSessions() {
+        String sid = sessions.issue("app", "r1", "lobby", ME);
+        advanceMillis(1001);
+
+        sessions.sweep();
+
+        assertThat(sessions.issue("app", "r1", "lobby", ME)).isNotEqualTo(sid);
+    }
+
+    private void advanceMillis(long ms) {
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(ms));
+    }
+}
@@ -0,0 +1,110 @@
+package com.sheila.api.application;
+
+import com.sheila.api.application.TenantScheduler.Lane;
+import com.sheila.api.core.exception.TenantOverloadedException;
+import com.sheila.api.core.model.ApplicationDoc;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TenantSchedulerTest {
+
+    private final ApplicationCatalog catalog = mock(ApplicationCatalog.class);
+    private final List<String> started = new ArrayList<>();
+    private TenantScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        app("a", 2);
+        app("b", 1);
+        app("c", 1);
+        scheduler = new TenantScheduler(catalog, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(scheduler, "enabled", true);
+        ReflectionTestUtils.setField(scheduler, "maxInFlight", 1);
+        ReflectionTestUtils.setField(scheduler, "maxControlInFlight", 4);
+        ReflectionTestUtils.setField(scheduler, "controlMaxConcurrency", 2);
+        ReflectionTestUtils.setField(scheduler, "maxQueue", 20);
+        ReflectionTestUtils.setField(scheduler, "defaultWeight", 1);
+        ReflectionTestUtils.setField(scheduler, "defaultMaxConcurrency", 8);
+    }
+
+    @Test
+    void freedSlotsAreSharedByWeight() {
+        Sinks.Empty<Void> blocker = Sinks.empty();
+        scheduler.submit("c", Lane.HEAVY, blocker::asMono).subscribe();
+        for (int i = 0; i < 10; i++) {
+            scheduler.submit("a", Lane.HEAVY, () -> quick("a")).subscribe();
+            scheduler.submit("b", Lane.HEAVY, () -> quick("b")).subscribe();
+        }
+        assertThat(started).isEmpty();
+
+        blocker.tryEmitEmpty();
+
+        List<String> first = started.subList(0, 9);
+        assertThat(first.stream().filter("a"::equals).count()).isEqualTo(6);
+        assertThat(first.stream().filter("b"::equals).count()).isEqualTo(3);
+        assertThat(started).hasSize(20);
+    }
+
+    @Test
+    void controlRunsWhileHeavySlotsAreFull() {
+        scheduler.submit("c", Lane.HEAVY, () -> Sinks.empty().asMono()).subscribe();
+        scheduler.submit("a", Lane.HEAVY, () -> quick("a-heavy")).subscribe();
+
+        scheduler.submit("a", Lane.CONTROL, () -> quick("a-control")).subscribe();
+
+        assertThat(started).containsExactly("a-control");
+    }
+
+    @Test
+    void oneAppsControlFloodIsCappedPerApp() {
+        for (int i = 0; i < 5; i++) {
+            scheduler.submit("a", Lane.CONTROL, () -> hang("a")).subscribe();
+        }
+        scheduler.submit("b", Lane.CONTROL, () -> hang("b")).subscribe();
+
+        assertThat(started).containsExactly("a", "a", "b");
+    }
+
+    @Test
+    void fullQueueRejectsOnlyThatApp() {
+        ReflectionTestUtils.setField(scheduler, "maxQueue", 2);
+        scheduler.submit("c", Lane.HEAVY, () -> Sinks.empty().asMono()).subscribe();
+        scheduler.submit("a", Lane.HEAVY, () -> quick("a")).subscribe();
+        scheduler.submit("a", Lane.HEAVY, () -> quick("a")).subscribe();
+
+        assertThatThrownBy(() -> scheduler.submit("a", Lane.HEAVY, () -> quick("a")).block())
+                .isInstanceOf(TenantOverloadedException.class);
+        scheduler.submit("b", Lane.HEAVY, () -> quick("b")).subscribe();
+        assertThat(started).isEmpty();
+    }
+
+    private Mono<String> quick(String name) {
+        return Mono.fromCallable(() -> {
+            started.add(name);
+            return name;
+        });
+    }
+
+    private Mono<Void> hang(String name) {
+        started.add(name);
+        return Sinks.empty().asMono().then();
+    }
+
+    private void app(String name, int weight) {
+        ApplicationDoc doc = new ApplicationDoc(name, 100);
+        doc.setWeight(weight);
+        when(catalog.find(name)).thenReturn(doc);
+    }
+}
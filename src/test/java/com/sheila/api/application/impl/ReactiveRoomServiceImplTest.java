@@ -0,0 +1,174 @@
+package com.sheila.api.application.impl;
+
+import com.sheila.api.application.RoomDirectory;
+import com.sheila.api.core.dto.Endpoint;
+import com.sheila.api.core.dto.GroupJoinResult;
+import com.sheila.api.core.exception.ApplicationCapacityExceededException;
+import com.sheila.api.core.exception.RoomFullException;
+import com.sheila.api.core.model.ApplicationDoc;
+import com.sheila.api.core.model.RoomDoc;
+import com.sheila.api.infrastructure.repository.LegacyMemberLayout;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/** JOIN_MULTI'nin hep-ya-hiç kuralı: Mongo taklit edilir, koltuklar gerçek RoomDirectory'de izlenir. */
+class ReactiveRoomServiceImplTest {
+
+    private static final String APP_ID = "app-id";
+    private static final Endpoint HOST = new Endpoint("10.0.0.1", 4000);
+    private static final Endpoint GUEST = new Endpoint("10.0.0.1", 4001);
+
+    private final ReactiveMongoTemplate mongo = mock(ReactiveMongoTemplate.class);
+    private final ReactiveBulkOperations bulk = mock(ReactiveBulkOperations.class);
+    private final RoomDirectory directory = new RoomDirectory(null, null, null);
+    private final Map<String, RoomDoc> stored = new HashMap<>();      // oda adı → Mongo'daki oda
+    private final Map<String, Integer> storedMembers = new HashMap<>(); // roomId → Mongo'daki üye sayısı
+    private final Set<String> missing = new HashSet<>();              // upsert'ü boş dönen odalar
+    private final ApplicationDoc app = new ApplicationDoc("app", null);
+    private boolean written; // üye bulk yazımına abone olundu mu
+    private ReactiveRoomServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        app.setId(APP_ID);
+        when(mongo.findById(anyString(), eq(ApplicationDoc.class))).thenReturn(Mono.just(app));
+        when(mongo.find(any(Query.class), eq(RoomDoc.class))).thenAnswer(inv -> {
+            Object names = ((Query) inv.getArgument(0)).getQueryObject().get("name");
+            List<?> in = names instanceof Document d ? d.getList("$in", Object.class) : null;
+            return Flux.fromIterable(stored.values()).filter(r -> in == null || in.contains(r.getName()));
+        });
+        when(mongo.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(RoomDoc.class)))
+                .thenAnswer(inv -> {
+                    String name = ((Query) inv.getArgument(0)).getQueryObject().getString("name");
+                    if (missing.contains(name)) return Mono.empty();
+                    return Mono.just(stored.computeIfAbsent(name, n -> room(n, 2)));
+                });
+        when(mongo.aggregate(any(Aggregation.class), anyString(), eq(Document.class))).thenAnswer(inv ->
+                Flux.fromIterable(storedMembers.entrySet()).map(e -> new Document("_id", e.getKey()).append("n", e.getValue())));
+        when(mongo.bulkOps(any(BulkOperations.BulkMode.class), anyString())).thenReturn(bulk);
+        when(bulk.execute()).thenReturn(Mono.fromRunnable(() -> written = true));
+        when(mongo.find(any(Query.class), eq(Document.class), anyString())).thenReturn(Flux.empty());
+
+        TransactionalOperator tx = mock(TransactionalOperator.class);
+        when(tx.transactional(any(Mono.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        service = new ReactiveRoomServiceImpl(mongo, tx, directory, null, new LegacyMemberLayout());
+        ReflectionTestUtils.setField(service, "defaultRoomCapacity", 2);
+        ReflectionTestUtils.setField(service, "maxMultiRooms", 8);
+        ReflectionTestUtils.setField(service, "maxMultiEndpoints", 8);
+    }
+
+    @Test
+    void groupJoinsEveryRoomTogether() {
+        List<GroupJoinResult> results = service.joinRooms("app", List.of("a", "b"), List.of(HOST, GUEST), null).block();
+
+        assertThat(results).extracting(GroupJoinResult::getRoomName).containsExactly("a", "b");
+        for (String name : List.of("a", "b")) {
+            RoomDirectory.RoomEntry room = directory.room(stored.get(name).getId());
+            assertThat(room.memberCount()).isEqualTo(2);
+            assertThat(room.free()).as("no reservation left in %s", name).isZero();
+        }
+        assertThat(written).isTrue();
+    }
+
+    @Test
+    void oneFullRoomReleasesEverySeat() {
+        stored.put("b", room("b", 2));
+        directory.putRoom(stored.get("b").getId(), APP_ID, "b", 2);
+        directory.addMember(stored.get("b").getId(), new Endpoint("10.0.0.9", 4000));
+
+        assertThatThrownBy(() -> service.joinRooms("app", List.of("a", "b"), List.of(HOST, GUEST), null).block())
+                .isInstanceOf(RoomFullException.class);
+
+        assertNothingHeld("a", 2);
+        assertNothingHeld("b", 1);
+        assertThat(written).isFalse();
+    }
+
+    @Test
+    void roomFullInMongoButNotInMemoryReleasesEverySeat() {
+        stored.put("b", room("b", 2));
+        storedMembers.put(stored.get("b").getId(), 1);
+
+        assertThatThrownBy(() -> service.joinRooms("app", List.of("a", "b"), List.of(HOST, GUEST), null).block())
+                .isInstanceOf(RoomFullException.class);
+
+        assertNothingHeld("a", 2);
+        assertNothingHeld("b", 2);
+        assertThat(written).isFalse();
+    }
+
+    @Test
+    void missingRoomFailsTheWholeGroup() {
+        missing.add("b");
+
+        assertThatThrownBy(() -> service.joinRooms("app", List.of("a", "b"), List.of(HOST, GUEST), null).block())
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(directory.rooms()).isEmpty();
+        assertThat(written).isFalse();
+    }
+
+    @Test
+    void failedWriteRollsBackEverySeat() {
+        when(bulk.execute()).thenReturn(Mono.error(new IllegalStateException("write conflict")));
+
+        assertThatThrownBy(() -> service.joinRooms("app", List.of("a", "b"), List.of(HOST, GUEST), null).block())
+                .hasMessageContaining("write conflict");
+
+        assertNothingHeld("a", 2);
+        assertNothingHeld("b", 2);
+    }
+
+    @Test
+    void newRoomsOverTheAppCapacityAreRejectedBeforeAnySeat() {
+        app.setCapacity(3);
+
+        assertThatThrownBy(() -> service.joinRooms("app", List.of("a", "b"), List.of(HOST), null).block())
+                .isInstanceOf(ApplicationCapacityExceededException.class);
+
+        assertThat(directory.rooms()).isEmpty();
+        verify(mongo, never()).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(RoomDoc.class));
+    }
+
+    private void assertNothingHeld(String name, int free) {
+        RoomDirectory.RoomEntry room = directory.room(stored.get(name).getId());
+        assertThat(room.free()).as("free seats in %s", name).isEqualTo(free);
+        assertThat(room.hasMember(HOST.toString())).isFalse();
+        assertThat(room.hasMember(GUEST.toString())).isFalse();
+    }
+
+    private static RoomDoc room(String name, int capacity) {
+        RoomDoc r = new RoomDoc(APP_ID, name, capacity);
+        r.setId("room-" + name);
+        return r;
+    }
+}
@@ -0,0 +1,194 @@
+package com.sheila.api.infrastructure.config;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.sheila.api.application.MongoProbeSource;
+import com.sheila.api.application.impl.ReactiveRoomServiceImpl;
+import com.sheila.api.core.dto.Endpoint;
+import com.sheila.api.core.model.ApplicationDoc;
+import com.sheila.api.core.model.RoomDoc;
+import com.sheila.api.infrastructure.repository.LegacyMemberLayout;
+import com.sheila.api.infrastructure.repository.MemberLayout;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.springframework.data.mongodb.ReactiveMongoTransactionManager;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.SimpleReactiveMongoDatabaseFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 3 üyeli replica set üzerinde SecondaryReads:
+ * - LIST (touchAndListPeers) ve probe taraması okumaları primary'ye değil secondary'lere gider (profiler ile doğrulanır);
+ * - LIST'in causal session'ı kendi yazısını ve ondan önceki yazıları görür: okuma 2 sn geriden gelen (delayed)
+ *   secondary'ye düşse bile afterClusterTime'a kadar bekler, eski liste dönmez.
+ * Üyeler host ağında sabit portlarla çalışır (replica set adresleri test ile aynı olmalı); Docker yoksa atlanır.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@EnabledOnOs(OS.LINUX)
+class SecondaryReadsReplicaSetTest {
+
+    private static final DockerImageName MONGO = DockerImageName.parse("mongo:7.0");
+    private static final int[] PORTS = {27117, 27118, 27119};
+    private static final String DB = "sheila_it";
+    private static final String URI = "mongodb://localhost:27117,localhost:27118,localhost:27119/" + DB + "?replicaSet=rs0";
+
+    @Container static final GenericContainer<?> NODE0 = node(PORTS[0]);
+    @Container static final GenericContainer<?> NODE1 = node(PORTS[1]);
+    @Container static final GenericContainer<?> NODE2 = node(PORTS[2]);
+
+    private static MongoClient client;
+    private static com.mongodb.reactivestreams.client.MongoClient reactiveClient;
+    private static final List<MongoClient> direct = new ArrayList<>(); // üye başına, profiler okumaları için
+    private static final AtomicInteger apps = new AtomicInteger(); // test başına ayrı uygulama; profiler sayımları farkla
+
+    private final MemberLayout layout = new LegacyMemberLayout();
+    private MongoTemplate primary;
+    private SecondaryReads reads;
+    private ReactiveRoomServiceImpl service;
+    private String appName;
+    private String roomId;
+
+    private static GenericContainer<?> node(int port) {
+        return new GenericContainer<>(MONGO)
+                .withNetworkMode("host")
+                .withCommand("--replSet", "rs0", "--bind_ip_all", "--port", String.valueOf(port))
+                .waitingFor(Wait.forLogMessage(".*Waiting for connections.*", 1));
+    }
+
+    @BeforeAll
+    static void initiate() throws InterruptedException {
+        try (MongoClient seed = MongoClients.create("mongodb://localhost:" + PORTS[0] + "/?directConnection=true")) {
+            seed.getDatabase("admin").runCommand(new Document("replSetInitiate", new Document("_id", "rs0")
+                    .append("members", List.of(
+                            new Document("_id", 0).append("host", "localhost:" + PORTS[0]).append("priority", 2),
+                            new Document("_id", 1).append("host", "localhost:" + PORTS[1]).append("priority", 1),
+                            // Okumaları geriden gelen bir secondary'ye de düşürmek için
+                            new Document("_id", 2).append("host", "localhost:" + PORTS[2]).append("priority", 0)
+                                    .append("secondaryDelaySecs", 2)))));
+            awaitStates(seed);
+        }
+        client = MongoClients.create(URI);
+        reactiveClient = com.mongodb.reactivestreams.client.MongoClients.create(URI);
+        for (int port : PORTS) {
+            MongoClient c = MongoClients.create("mongodb://localhost:" + port + "/?directConnection=true&readPreference=secondaryPreferred");
+            c.getDatabase(DB).runCommand(new Document("profile", 2));
+            direct.add(c);
+        }
+    }
+
+    /** Biri PRIMARY, ikisi SECONDARY olana dek. */
+    private static void awaitStates(MongoClient seed) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 60_000;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Document status = seed.getDatabase("admin").runCommand(new Document("replSetGetStatus", 1));
+                List<Document> members = status.getList("members", Document.class);
+                long primaries = members.stream().filter(m -> m.getInteger("state") == 1).count();
+                long secondaries = members.stream().filter(m -> m.getInteger("state") == 2).count();
+                if (primaries == 1 && secondaries == 2) return;
+            } catch (Exception e) {
+                // replSetInitiate henüz yayılmadı
+            }
+            Thread.sleep(250);
+        }
+        throw new IllegalStateException("replica set did not come up");
+    }
+
+    @AfterAll
+    static void close() {
+        direct.forEach(MongoClient::close);
+        if (client != null) client.close();
+        if (reactiveClient != null) reactiveClient.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        primary = new MongoTemplate(client, DB);
+        SimpleReactiveMongoDatabaseFactory factory = new SimpleReactiveMongoDatabaseFactory(reactiveClient, DB);
+        ReactiveMongoTemplate primaryReactive = new ReactiveMongoTemplate(factory);
+
+        reads = new SecondaryReads(primary, primaryReactive);
+        ReflectionTestUtils.setField(reads, "enabled", true);
+        ReflectionTestUtils.setField(reads, "uri", URI);
+        ReflectionTestUtils.setField(reads, "primaryUri", URI);
+        ReflectionTestUtils.setField(reads, "maxStalenessSeconds", 90L);
+        ReflectionTestUtils.setField(reads, "maxPoolSize", 4);
+        reads.init();
+
+        TransactionalOperator tx = TransactionalOperator.create(new ReactiveMongoTransactionManager(factory));
+        service = new ReactiveRoomServiceImpl(primaryReactive, tx, null, reads, layout);
+
+        appName = "app-" + apps.incrementAndGet();
+        ApplicationDoc app = primary.insert(new ApplicationDoc(appName, 1000));
+        roomId = primary.insert(new RoomDoc(app.getId(), "lobby", 100)).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reads.close();
+    }
+
+    @Test
+    void listReadsItsOwnWritesFromSecondaries() {
+        long[] before = memberQueries();
+        List<String> joined = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            // JOIN birincile yazar (çoğunluk: primary + gecikmesiz secondary); delayed üye 2 sn geride kalır
+            Endpoint me = new Endpoint("10.0.0." + (i + 1), 4000 + i);
+            primary.upsert(layout.member(roomId, me.getIp(), me.getPort()),
+                    layout.upsert(roomId, me.getIp(), me.getPort(), new Date()), layout.collection());
+            joined.add(me.toString());
+
+            List<Endpoint> peers = service.touchAndListPeers(appName, "lobby", me.getIp(), me.getPort()).block();
+
+            assertThat(peers).extracting(Endpoint::toString).containsExactlyInAnyOrderElementsOf(joined);
+        }
+        long[] after = memberQueries();
+
+        assertThat(after[0] - before[0]).as("LIST reads on the primary").isZero();
+        assertThat((after[1] - before[1]) + (after[2] - before[2])).as("LIST reads on secondaries").isGreaterThanOrEqualTo(6);
+    }
+
+    @Test
+    void probeSweepReadsFromSecondaries() {
+        primary.upsert(layout.member(roomId, "10.0.0.1", 4000),
+                layout.upsert(roomId, "10.0.0.1", 4000, new Date()), layout.collection());
+        long[] before = memberQueries();
+
+        new MongoProbeSource(reads, layout).members();
+        long[] after = memberQueries();
+
+        assertThat(after[0] - before[0]).as("probe sweep reads on the primary").isZero();
+        assertThat((after[1] - before[1]) + (after[2] - before[2])).as("probe sweep reads on secondaries").isGreaterThanOrEqualTo(1);
+    }
+
+    /** Üye başına (PORTS sırasıyla) üyelik koleksiyonunda profillenmiş okuma sayısı. */
+    private long[] memberQueries() {
+        long[] counts = new long[PORTS.length];
+        for (int i = 0; i < PORTS.length; i++) {
+            counts[i] = direct.get(i).getDatabase(DB).getCollection("system.profile")
+                    .countDocuments(new Document("ns", DB + "." + layout.collection()).append("op", "query"));
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,117 @@
+package com.sheila.api.infrastructure.repository;
+
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.bson.types.MaxKey;
+import org.bson.types.MinKey;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CompactMemberLayoutTest {
+
+    private static final String ROOM = new ObjectId().toHexString();
+
+    private final MongoTemplate mongo = mock(MongoTemplate.class, RETURNS_DEEP_STUBS);
+    private CompactMemberLayout layout;
+
+    @BeforeEach
+    void setUp() {
+        layout = new CompactMemberLayout(mongo);
+        ReflectionTestUtils.setField(layout, "migrate", true);
+        ReflectionTestUtils.setField(layout, "migrateBatch", 2);
+    }
+
+    @Test
+    void memberIdRoundTripsIpv4Ipv6AndHighPorts() {
+        assertRoundTrip("10.0.0.1", 4000, "10.0.0.1", 6);
+        assertRoundTrip("192.168.1.20", 65535, "192.168.1.20", 6);
+        assertRoundTrip("2001:db8::1", 5000, "2001:db8:0:0:0:0:0:1", 18);
+    }
+
+    @Test
+    void roomQueriesAreRangesOverTheId() {
+        Document range = (Document) layout.room(ROOM).getQueryObject().get("_id");
+        Document from = (Document) range.get("$gte");
+        Document to = (Document) range.get("$lte");
+
+        assertThat(from.get("r")).isEqualTo(new ObjectId(ROOM));
+        assertThat(from.get("e")).isInstanceOf(MinKey.class);
+        assertThat(to.get("r")).isEqualTo(new ObjectId(ROOM));
+        assertThat(to.get("e")).isInstanceOf(MaxKey.class);
+        assertThat(List.copyOf(from.keySet())).as("field order matters for comparison").containsExactly("r", "e");
+
+        Document in = layout.inRooms(List.of(ROOM, "legacy-room")).getCriteriaObject();
+        assertThat(in.getList("$or", Document.class)).hasSize(2);
+        Document legacy = (Document) ((Document) in.getList("$or", Document.class).get(1).get("_id")).get("$gte");
+        assertThat(legacy.get("r")).isEqualTo("legacy-room");
+    }
+
+    @Test
+    void migrationIsSkippedWhenDisabledOrAlreadyDone() {
+        when(mongo.collectionExists("clients")).thenReturn(true);
+
+        ReflectionTestUtils.setField(layout, "migrate", false);
+        layout.prepare();
+        verify(mongo, never()).stream(any(Query.class), eq(Document.class), anyString());
+
+        ReflectionTestUtils.setField(layout, "migrate", true);
+        when(mongo.exists(any(Query.class), eq("migrations"))).thenReturn(true);
+        layout.prepare();
+        verify(mongo, never()).stream(any(Query.class), eq(Document.class), anyString());
+        verify(mongo, never()).upsert(any(Query.class), any(Update.class), eq("migrations"));
+    }
+
+    @Test
+    void migrationCopiesInBatchesAndWritesTheMarker() {
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongo.collectionExists("clients")).thenReturn(true);
+        when(mongo.exists(any(Query.class), eq("migrations"))).thenReturn(false);
+        when(mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, "clients_v2")).thenReturn(bulk);
+        when(mongo.stream(any(Query.class), eq(Document.class), eq("clients"))).thenReturn(Stream.of(
+                legacy(ROOM, "10.0.0.1", 4000),
+                legacy(ROOM, "10.0.0.2", 4000),
+                new Document("roomId", ROOM).append("ip", "10.0.0.3"), // portsuz: atlanır
+                legacy(ROOM, "10.0.0.4", 4000)));
+
+        layout.prepare();
+
+        verify(bulk, times(3)).upsert(any(Query.class), any(Update.class));
+        verify(bulk, times(2)).execute();
+        verify(mongo).upsert(any(Query.class), any(Update.class), eq("migrations"));
+    }
+
+    private void assertRoundTrip(String ip, int port, String expectedIp, int packedLength) {
+        Object id = layout.member(ROOM, ip, port).getQueryObject().get("_id");
+        assertThat(((Binary) ((Document) id).get("e")).getData()).hasSize(packedLength);
+
+        MemberLayout.Member m = layout.toMember(new Document("_id", id).append("s", new Date()));
+        assertThat(m.getRoomId()).isEqualTo(ROOM);
+        assertThat(m.getIp()).isEqualTo(expectedIp);
+        assertThat(m.getPort()).isEqualTo(port);
+    }
+
+    private static Document legacy(String roomId, String ip, int port) {
+        return new Document("roomId", roomId).append("ip", ip).append("port", port).append("lastSeen", new Date());
+    }
+}
@@ -0,0 +1,29 @@
+package com.sheila.api.tools.sim;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NetworkSimulatorTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void membershipConvergesAfterChurnWithoutFalseDrops() {
+        Map<String, Object> report = new NetworkSimulator(Map.of(
+                "clients", "200",
+                "rooms", "8",
+                "durationMs", "110000",
+                "churnAtMs", "20000")).simulate();
+
+        Map<String, Object> membership = (Map<String, Object>) report.get("membership");
+        Map<String, Object> probe = (Map<String, Object>) report.get("probe");
+        assertThat(membership.get("joinConvergenceMs")).isNotNull();
+        assertThat(membership.get("churnConvergenceMs")).isNotNull();
+        assertThat(((Number) membership.get("finalInconsistencies")).longValue()).isZero();
+        assertThat(((Number) probe.get("falseDrops")).longValue()).isZero();
+        assertThat(((Number) probe.get("undetected")).longValue()).isZero();
+        assertThat(((Number) probe.get("crashed")).longValue()).isPositive();
+    }
+}
@@ -0,0 +1,89 @@
+package com.sheila.api.transport.relay;
+
+import com.sheila.api.application.RoomDirectory;
+import com.sheila.api.core.dto.Endpoint;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.util.CharsetUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Relay yalnızca BIND etmiş hedefe, onun relay eşlemesine iletir; bağlanmamış hedefin paketi sayılıp atılır. */
+class RelayHandlerTest {
+
+    private static final InetSocketAddress SERVER = new InetSocketAddress("127.0.0.1", 9877);
+    private static final Endpoint A = new Endpoint("10.0.0.1", 4000);
+    private static final Endpoint B = new Endpoint("10.0.0.2", 4000);
+    private static final InetSocketAddress A_RELAY = new InetSocketAddress("10.0.0.1", 5000);
+    private static final InetSocketAddress B_RELAY = new InetSocketAddress("10.0.0.2", 5001);
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private RelayRegistry registry;
+    private EmbeddedChannel channel;
+
+    @BeforeEach
+    void setUp() {
+        RoomDirectory directory = new RoomDirectory(null, null, null);
+        directory.putRoom("r1", "app", "lobby", 10);
+        directory.addMember("r1", A);
+        directory.addMember("r1", B);
+        registry = new RelayRegistry(directory);
+        ReflectionTestUtils.setField(registry, "enabled", true);
+        ReflectionTestUtils.setField(registry, "maxPacketsPerSec", 1_000.0);
+        ReflectionTestUtils.setField(registry, "maxBytesPerSec", 1_000_000.0);
+        channel = new EmbeddedChannel(new RelayHandler(registry, directory, new RelayMetrics(meters)));
+        bind(A, A_RELAY);
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void unboundTargetIsDroppedNotSentToItsMainPort() {
+        assertThat(send(A_RELAY, "RELAY|" + B + "|hi")).isEmpty();
+        assertThat(send(A_RELAY, "RELAY|*|hi")).isEmpty();
+
+        assertThat(meters.counter("sheila.relay.dropped", "reason", "unbound").count()).isEqualTo(2);
+        assertThat(meters.counter("sheila.relay.packets").count()).isZero();
+    }
+
+    @Test
+    void boundTargetGetsThePacketOnItsRelayMapping() {
+        bind(B, B_RELAY);
+
+        List<DatagramPacket> out = send(A_RELAY, "RELAY|" + B + "|hi");
+
+        assertThat(out).hasSize(1);
+        assertThat(out.get(0).recipient()).isEqualTo(B_RELAY);
+        assertThat(out.get(0).content().toString(CharsetUtil.UTF_8)).isEqualTo("RELAYED|" + A + "|hi");
+        out.forEach(DatagramPacket::release);
+        assertThat(meters.counter("sheila.relay.dropped", "reason", "unbound").count()).isZero();
+    }
+
+    private void bind(Endpoint member, InetSocketAddress relayAddress) {
+        List<DatagramPacket> replies = send(relayAddress, "BIND|" + registry.allocate(member));
+        assertThat(replies).extracting(p -> p.content().toString(CharsetUtil.UTF_8)).containsExactly("BOUND|" + member);
+        replies.forEach(DatagramPacket::release);
+    }
+
+    private List<DatagramPacket> send(InetSocketAddress sender, String text) {
+        channel.writeInbound(new DatagramPacket(Unpooled.copiedBuffer(text, CharsetUtil.UTF_8), SERVER, sender));
+        channel.flushOutbound();
+        List<DatagramPacket> out = new ArrayList<>();
+        Object o;
+        while ((o = channel.readOutbound()) != null) out.add((DatagramPacket) o);
+        return out;
+    }
+}
@@ -0,0 +1,30 @@
+package com.sheila.api.transport.relay;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RoomBudgetTest {
+
+    @Test
+    void byteThrottledPacketDoesNotBurnPacketTokens() {
+        // Yenilenme ihmal edilebilir: saniyede 2 paket / 100 byte
+        RelayRegistry.RoomBudget budget = new RelayRegistry.RoomBudget(2, 100);
+
+        assertThat(budget.tryConsume(1, 500)).isFalse();
+        assertThat(budget.tryConsume(1, 50)).isTrue();
+        assertThat(budget.tryConsume(1, 50)).isTrue();
+
+        assertThat(budget.getRelayedPackets()).isEqualTo(2);
+        assertThat(budget.getRelayedBytes()).isEqualTo(100);
+        assertThat(budget.getThrottled()).isEqualTo(1);
+    }
+
+    @Test
+    void packetThrottledBatchDoesNotBurnByteTokens() {
+        RelayRegistry.RoomBudget budget = new RelayRegistry.RoomBudget(2, 100);
+
+        assertThat(budget.tryConsume(3, 30)).isFalse();
+        assertThat(budget.tryConsume(2, 100)).isTrue();
+    }
+}
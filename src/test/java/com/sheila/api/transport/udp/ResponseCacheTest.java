@@ -0,0 +1,97 @@
+package com.sheila.api.transport.udp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheTest {
+
+    private static final String SENDER = "10.0.0.1:4000";
+    private static final String JOIN = "JOIN|app|room";
+    private static final String LEAVE = "LEAVE|app|room";
+
+    private final ResponseCache cache = new ResponseCache(1_000, 100);
+
+    @Test
+    void exactRetryWithinWindowIsReplayed() {
+        String key = run(JOIN, "ROOM|room|clients=[]|seq=0", 0);
+
+        assertThat(cache.get(key, JOIN, false, 999)).containsExactly("ROOM|room|clients=[]|seq=0");
+        assertThat(cache.get(key, JOIN, false, 1_001)).isNull();
+    }
+
+    @Test
+    void requestIdMatchesWithoutComparingPayload() {
+        String key = ResponseCache.key(SENDER, "7", JOIN);
+        long epoch = cache.begin(SENDER);
+        cache.complete(SENDER, epoch, key, JOIN, List.of("ROOM|room"), 0);
+
+        assertThat(cache.get(ResponseCache.key(SENDER, "7", JOIN + " "), JOIN + " ", true, 10)).containsExactly("ROOM|room");
+    }
+
+    @Test
+    void newRequestDropsTheSendersEarlierReplies() {
+        String join = run(JOIN, "ROOM|room", 0);
+        String leave = run(LEAVE, "OK|LEFT", 10);
+
+        // JOIN → LEAVE → JOIN: ikinci JOIN eski ROOM'u almaz
+        assertThat(cache.get(join, JOIN, false, 20)).isNull();
+        assertThat(cache.get(leave, LEAVE, false, 20)).containsExactly("OK|LEFT");
+
+        // LEAVE, yeniden katılımdan sonra eski OK|LEFT'i almaz
+        run(JOIN, "ROOM|room", 30);
+        assertThat(cache.get(leave, LEAVE, false, 40)).isNull();
+    }
+
+    @Test
+    void repliesOfRequestsOvertakenByANewerOneAreNotCached() {
+        String join = ResponseCache.key(SENDER, null, JOIN);
+        long joinEpoch = cache.begin(SENDER);
+        String leave = ResponseCache.key(SENDER, null, LEAVE);
+        long leaveEpoch = cache.begin(SENDER);
+
+        cache.complete(SENDER, leaveEpoch, leave, LEAVE, List.of("OK|LEFT"), 10);
+        cache.complete(SENDER, joinEpoch, join, JOIN, List.of("ROOM|room"), 20);
+
+        assertThat(cache.get(join, JOIN, false, 30)).isNull();
+        assertThat(cache.get(leave, LEAVE, false, 30)).containsExactly("OK|LEFT");
+    }
+
+    @Test
+    void invalidateDropsRepliesWithoutCaching() {
+        String join = run(JOIN, "ROOM|room", 0);
+        cache.invalidate(SENDER);
+
+        assertThat(cache.get(join, JOIN, false, 10)).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void otherSendersAreUnaffected() {
+        String join = run(JOIN, "ROOM|room", 0);
+        long epoch = cache.begin("10.0.0.2:4000");
+        cache.complete("10.0.0.2:4000", epoch, ResponseCache.key("10.0.0.2:4000", null, LEAVE), LEAVE, null, 10);
+
+        assertThat(cache.get(join, JOIN, false, 20)).containsExactly("ROOM|room");
+    }
+
+    @Test
+    void sizeIsBounded() {
+        ResponseCache small = new ResponseCache(1_000, 2);
+        for (int i = 0; i < 5; i++) {
+            String sender = "10.0.0." + i + ":4000";
+            long epoch = small.begin(sender);
+            small.complete(sender, epoch, ResponseCache.key(sender, null, JOIN), JOIN, List.of("ROOM|room"), i);
+        }
+        assertThat(small.size()).isLessThanOrEqualTo(2);
+    }
+
+    private String run(String payload, String reply, long now) {
+        String key = ResponseCache.key(SENDER, null, payload);
+        long epoch = cache.begin(SENDER);
+        cache.complete(SENDER, epoch, key, payload, List.of(reply), now);
+        return key;
+    }
+}
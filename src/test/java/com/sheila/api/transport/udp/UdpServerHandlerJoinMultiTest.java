@@ -0,0 +1,125 @@
+package com.sheila.api.transport.udp;
+
+import com.sheila.api.application.ApplicationCatalog;
+import com.sheila.api.application.AsyncRoomService;
+import com.sheila.api.application.MembershipEventLog;
+import com.sheila.api.application.ServerClock;
+import com.sheila.api.application.ServerProber;
+import com.sheila.api.application.SessionRegistry;
+import com.sheila.api.application.TenantScheduler;
+import com.sheila.api.core.dto.Endpoint;
+import com.sheila.api.core.dto.GroupJoinResult;
+import com.sheila.api.core.exception.RoomFullException;
+import com.sheila.api.infrastructure.trace.RequestTracer;
+import com.sheila.api.transport.relay.RelayRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.util.CharsetUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/** JOIN_MULTI şeridi: grup gönderenin IP'siyle kurulur; storage reddederse ne oturum ne NEW_CLIENT çıkar. */
+class UdpServerHandlerJoinMultiTest {
+
+    private static final InetSocketAddress SERVER = new InetSocketAddress("127.0.0.1", 9876);
+    private static final InetSocketAddress SENDER = new InetSocketAddress("10.0.0.1", 4000);
+
+    private final AsyncRoomService rooms = mock(AsyncRoomService.class);
+    private final MembershipEventLog events = mock(MembershipEventLog.class);
+    private final SessionRegistry sessions = mock(SessionRegistry.class);
+    private EmbeddedChannel channel;
+
+    @BeforeEach
+    void setUp() {
+        UdpServerHandler handler = new UdpServerHandler(rooms,
+                new TenantScheduler(mock(ApplicationCatalog.class), new SimpleMeterRegistry()), // kapalı: işler hemen başlar
+                mock(ServerProber.class), events, new UdpMetrics(new SimpleMeterRegistry()), UdpTransportSettings.PLAIN,
+                mock(RelayRegistry.class), new ResponseCache(1_000, 100), mock(RequestTracer.class), sessions,
+                ServerClock.SYSTEM);
+        channel = new EmbeddedChannel(handler);
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void groupIsTheSenderPlusItsOwnPortsInEveryRoom() {
+        List<List<Endpoint>> groups = new ArrayList<>();
+        when(rooms.joinRooms(eq("app"), eq(List.of("a", "b")), any(), eq(null))).thenAnswer(inv -> {
+            List<Endpoint> group = inv.getArgument(2);
+            groups.add(group);
+            return Mono.just(List.of(
+                    new GroupJoinResult("ra", "a", group, group),
+                    new GroupJoinResult("rb", "b", group, group)));
+        });
+        when(sessions.issue(eq("app"), anyString(), anyString(), anyString())).thenReturn("5");
+
+        List<String> replies = request("JOIN_MULTI|app|a,b|4001,4000");
+
+        assertThat(groups).hasSize(1);
+        assertThat(groups.get(0)).extracting(Endpoint::toString).containsExactly("10.0.0.1:4000", "10.0.0.1:4001");
+        assertThat(replies).hasSize(1);
+        assertThat(replies.get(0)).startsWith("ROOM_MULTI|rooms=[a,b]|clients=[10.0.0.1:4000,10.0.0.1:4001];[")
+                .contains("|sid=[5,5,5,5]");
+        verify(events).broadcastAll(eq("app"), eq("ra"), eq("a"), any(), eq("NEW_CLIENT"), any());
+        verify(events).broadcastAll(eq("app"), eq("rb"), eq("b"), any(), eq("NEW_CLIENT"), any());
+        verify(sessions, times(4)).issue(eq("app"), anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void rejectedGroupGetsOneErrorAndNoSideEffects() {
+        when(rooms.joinRooms(eq("app"), any(), any(), any())).thenReturn(Mono.error(new RoomFullException("b")));
+
+        List<String> replies = request("JOIN_MULTI|app|a,b|4001");
+
+        assertThat(replies).containsExactly("ERR|ROOM_FULL|" + new RoomFullException("b").getMessage());
+        verify(events, never()).broadcastAll(anyString(), anyString(), anyString(), anyCollection(), anyString(), anyCollection());
+        verify(sessions, never()).issue(anyString(), anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void retryOfARejectedGroupIsAnsweredFromTheCache() {
+        when(rooms.joinRooms(eq("app"), any(), any(), any())).thenReturn(Mono.error(new RoomFullException("b")));
+        request("JOIN_MULTI|app|a,b|4001|rid=7");
+
+        List<String> replies = request("JOIN_MULTI|app|a,b|4001|rid=7");
+
+        assertThat(replies).hasSize(1).allMatch(r -> r.startsWith("ERR|ROOM_FULL|"));
+        verify(rooms, times(1)).joinRooms(eq("app"), any(), any(), any());
+    }
+
+    private List<String> request(String text) {
+        channel.writeInbound(new DatagramPacket(Unpooled.copiedBuffer(text, CharsetUtil.UTF_8), SERVER, SENDER));
+        channel.runPendingTasks();
+        List<String> replies = new ArrayList<>();
+        Object o;
+        while ((o = channel.readOutbound()) != null) {
+            DatagramPacket p = (DatagramPacket) o;
+            assertThat(p.recipient()).isEqualTo(SENDER);
+            replies.add(p.content().toString(CharsetUtil.UTF_8));
+            p.release();
+        }
+        return replies;
+    }
+}
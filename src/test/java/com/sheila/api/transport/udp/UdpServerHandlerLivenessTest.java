@@ -0,0 +1,121 @@
+package com.sheila.api.transport.udp;
+
+import com.sheila.api.application.ApplicationCatalog;
+import com.sheila.api.application.AsyncRoomService;
+import com.sheila.api.application.MembershipEventLog;
+import com.sheila.api.application.ServerClock;
+import com.sheila.api.application.ServerProber;
+import com.sheila.api.application.SessionRegistry;
+import com.sheila.api.application.SessionRegistry.Session;
+import com.sheila.api.application.TenantScheduler;
+import com.sheila.api.infrastructure.trace.RequestTracer;
+import com.sheila.api.transport.relay.RelayRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/** Probe sayacı yalnızca üyeliği doğrulanmış komutla sıfırlanır; sahte ya da bozuk datagram probe'u erteleyemez. */
+class UdpServerHandlerLivenessTest {
+
+    private static final InetSocketAddress SERVER = new InetSocketAddress("127.0.0.1", 9876);
+    private static final InetSocketAddress SENDER = new InetSocketAddress("10.0.0.1", 4000);
+
+    private final AsyncRoomService rooms = mock(AsyncRoomService.class);
+    private final MembershipEventLog events = mock(MembershipEventLog.class);
+    private final SessionRegistry sessions = mock(SessionRegistry.class);
+    private final ServerProber prober = mock(ServerProber.class);
+    private EmbeddedChannel channel;
+
+    @BeforeEach
+    void setUp() {
+        UdpServerHandler handler = new UdpServerHandler(rooms,
+                new TenantScheduler(mock(ApplicationCatalog.class), new SimpleMeterRegistry()),
+                prober, events, new UdpMetrics(new SimpleMeterRegistry()), UdpTransportSettings.PLAIN,
+                mock(RelayRegistry.class), new ResponseCache(1_000, 100), mock(RequestTracer.class), sessions,
+                ServerClock.SYSTEM);
+        channel = new EmbeddedChannel(handler);
+        when(rooms.touchMember(anyString(), anyString(), anyInt())).thenReturn(Mono.just(true));
+        when(rooms.joinRoom(anyString(), anyString(), anyString(), anyInt(), any())).thenReturn(Mono.empty());
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void unparsableOrUnknownDatagramsAreNotLiveness() {
+        request("HELLO|app|room");
+        request("PING|app");
+        request("ACK|x");
+
+        verify(prober, never()).onHeard(anyString(), anyInt(), anyLong());
+    }
+
+    @Test
+    void pingNamingARoomTheSenderIsNotInIsNotLiveness() {
+        request("PONG|app|other-room");
+
+        verify(prober, never()).onHeard(anyString(), anyInt(), anyLong());
+    }
+
+    @Test
+    void pingNamingTheSendersRoomIsLiveness() {
+        when(events.roomIdOf("app", "room", "10.0.0.1", 4000)).thenReturn("r1");
+
+        request("PONG|app|room");
+
+        verify(prober).onHeard(eq("10.0.0.1"), eq(4000), anyLong());
+    }
+
+    @Test
+    void onlyAValidSessionIsLiveness() {
+        request("PING|sid=bad");
+        verify(prober, never()).onHeard(anyString(), anyInt(), anyLong());
+
+        Session s = mock(Session.class);
+        when(s.getAppKey()).thenReturn("app");
+        when(s.getRoomId()).thenReturn("r1");
+        when(sessions.resolve("1f", "10.0.0.1:4000")).thenReturn(s);
+        request("PING|sid=1f");
+
+        verify(prober).onHeard(eq("10.0.0.1"), eq(4000), anyLong());
+    }
+
+    @Test
+    void ackIsLivenessOnlyForAStreamTheSenderHas() {
+        request("ACK|3||room=room");
+        verify(prober, never()).onHeard(anyString(), anyInt(), anyLong());
+
+        when(events.onAck(eq("10.0.0.1"), eq(4000), eq("room"), eq(3L), any())).thenReturn(true);
+        request("ACK|3||room=room");
+
+        verify(prober).onHeard(eq("10.0.0.1"), eq(4000), anyLong());
+    }
+
+    private void request(String text) {
+        channel.writeInbound(new DatagramPacket(Unpooled.copiedBuffer(text, CharsetUtil.UTF_8), SERVER, SENDER));
+        channel.runPendingTasks();
+        Object o;
+        while ((o = channel.readOutbound()) != null) ReferenceCountUtil.release(o);
+    }
+}